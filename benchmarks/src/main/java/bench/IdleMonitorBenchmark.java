@@ -0,0 +1,97 @@
+package bench;
+
+import core.IdleMonitor;
+import core.StateManager;
+import core.TimerService;
+import core.TimerSink;
+import core.VirtualClock;
+import log.Log;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 无操作检测的开销：在虚拟时钟上推进一小时学习，比较自适应采样和固定每秒采样（1Hz）。
+ * none为不检测的基线；active表示用户一直在操作，away表示用户离开（检测到后自动暂停）。
+ * 每次采样在活动来源上做一次指纹计算，事件计数samples为每小时的采样次数。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IdleMonitorBenchmark {
+
+    @Param({"none", "fixed1Hz", "adaptive"})
+    public String policy;
+
+    @Param({"active", "away"})
+    public String scenario;
+
+    private log.Level logLevel;
+
+    /**
+     * 每小时的采样次数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Samples {
+        public long samples;
+    }
+
+    private static final TimerSink SILENT_SINK = new TimerSink() {
+        @Override
+        public void showStudyProgress(int elapsedSeconds, int totalSeconds, boolean testMode) {
+        }
+
+        @Override
+        public void showBreakProgress(int remainingSeconds, int totalSeconds) {
+        }
+
+        @Override
+        public void breakStarted(boolean longBreak, int breakSeconds) {
+        }
+
+        @Override
+        public void breakFinished() {
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void silence() {
+        logLevel = Log.getLevel();
+        Log.setLevel(log.Level.OFF);
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        Log.setLevel(logLevel);
+    }
+
+    @Benchmark
+    public int hour(Samples counters) {
+        VirtualClock clock = new VirtualClock();
+        StateManager stateManager = new StateManager();
+        TimerService timerService = new TimerService(stateManager, SILENT_SINK, clock, new Random(42));
+        timerService.setDisplayVisible(false);
+
+        IdleMonitor monitor = null;
+        if (!policy.equals("none")) {
+            boolean active = scenario.equals("active");
+            long[] pointer = {0};
+            // 模拟读取鼠标位置：用户操作时位置一直在变
+            IdleMonitor.ActivitySource source = () -> active ? ++pointer[0] * 0x9E3779B97F4A7C15L : pointer[0];
+            long maxPoll = policy.equals("fixed1Hz") ? 1000 : 60_000;
+            monitor = new IdleMonitor(timerService, stateManager, clock, source, 10 * 60, 1000, maxPoll);
+            monitor.start();
+        }
+
+        timerService.start();
+        int executed = clock.advance(1, TimeUnit.HOURS);
+        timerService.stop();
+        if (monitor != null) counters.samples += monitor.getSampleCount();
+        return executed;
+    }
+}
@@ -0,0 +1,93 @@
+package bench;
+
+import log.Log;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 计时线程上写一条提醒日志的耗时（按采样统计，关注p99和最大值）：
+ * println为原来的System.out.println加字符串拼接，async为异步日志，filtered为级别过滤掉的日志，off为关闭日志。
+ * slowMicros模拟慢速的控制台或磁盘，每次写出等待的微秒数：println会在调用线程上等待，
+ * 异步日志只由写日志线程等待，队列满时丢弃，调用线程的耗时不随之变化。
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Dstudyassist.log.file=none"})
+@State(Scope.Thread)
+public class LogBenchmark {
+
+    @Param({"println", "async", "filtered", "off"})
+    public String mode;
+
+    @Param({"0", "200"})
+    public long slowMicros;
+
+    private PrintStream console;
+    private log.Level logLevel;
+    private boolean testMode = false;
+    private int elapsedSeconds = 0;
+
+    /**
+     * 每次写出都等待固定时长的输出流
+     */
+    private static final class SlowOutputStream extends OutputStream {
+        private final long delayNanos;
+
+        SlowOutputStream(long delayMicros) {
+            this.delayNanos = TimeUnit.MICROSECONDS.toNanos(delayMicros);
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (delayNanos > 0) LockSupport.parkNanos(delayNanos);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        console = System.out;
+        logLevel = Log.getLevel();
+        System.setOut(new PrintStream(new SlowOutputStream(slowMicros), false));
+        Log.setFile(null);
+        Log.setConsole(true);
+        switch (mode) {
+            case "filtered":
+                Log.setLevel(log.Level.WARN);
+                break;
+            case "off":
+                Log.setLevel(log.Level.OFF);
+                break;
+            default:
+                Log.setLevel(log.Level.INFO);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Log.flush(1000);
+        Log.setLevel(logLevel);
+        System.setOut(console);
+        console.println("log.dropped=" + Log.getDroppedCount());
+    }
+
+    @Benchmark
+    public void reminderLine() {
+        elapsedSeconds++;
+        if (mode.equals("println")) {
+            System.out.println((testMode ? "测试模式：" : "") + "提示音触发于 " + elapsedSeconds + " 秒");
+        } else {
+            Log.info("{}提示音触发于 {} 秒", testMode ? "测试模式：" : "", elapsedSeconds);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import ui.ProgressController;
+
+import javax.swing.*;
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每秒一次的进度条更新开销：旧实现（String.format + new Color + 全部属性重设）对比 ProgressController
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ProgressBarBenchmark {
+    private static final int TOTAL_SECONDS = 90 * 60;
+
+    private JProgressBar legacyBar;
+    private JProgressBar controllerBar;
+    private ProgressController controller;
+    private int elapsedSeconds;
+
+    @Setup
+    public void setup() {
+        legacyBar = new JProgressBar(0, TOTAL_SECONDS);
+        legacyBar.setStringPainted(true);
+        controllerBar = new JProgressBar(0, TOTAL_SECONDS);
+        controllerBar.setStringPainted(true);
+        // 不经过EDT，直接在基准线程上调用applyPending
+        controller = new ProgressController(controllerBar, task -> { });
+    }
+
+    private int nextSecond() {
+        elapsedSeconds = (elapsedSeconds + 1) % TOTAL_SECONDS;
+        return elapsedSeconds;
+    }
+
+    @Benchmark
+    public JProgressBar legacyTick() {
+        int elapsed = nextSecond();
+        legacyBar.setMaximum(TOTAL_SECONDS);
+        legacyBar.setValue(elapsed);
+        int remaining = TOTAL_SECONDS - elapsed;
+        legacyBar.setString(String.format("学习剩余：%02d:%02d", remaining / 60, remaining % 60));
+        legacyBar.setForeground(new Color(46, 204, 113));
+        return legacyBar;
+    }
+
+    @Benchmark
+    public JProgressBar controllerTick() {
+        controller.showStudy(nextSecond(), TOTAL_SECONDS, false);
+        controller.applyPending();
+        return controllerBar;
+    }
+
+    // 同一秒内多次提交（例如多个线程同时刷新）只会产生一次界面更新
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public JProgressBar controllerCoalesced() {
+        int elapsed = nextSecond();
+        for (int i = 0; i < 10; i++) {
+            controller.showStudy(elapsed, TOTAL_SECONDS, false);
+        }
+        controller.applyPending();
+        return controllerBar;
+    }
+}
@@ -0,0 +1,34 @@
+package bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 运行基准测试并把结果导出为JSON（results/jmh-时间戳.json），便于在不同版本之间比较。
+ * 支持JMH的全部命令行参数，例如只运行某一组：java -jar target/benchmarks.jar TimerService
+ */
+public class RunBenchmarks {
+    public static void main(String[] args) throws Exception {
+        Path resultDir = Paths.get("results");
+        Files.createDirectories(resultDir);
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path resultFile = resultDir.resolve("jmh-" + timestamp + ".json");
+
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.toString())
+                .build();
+        new Runner(options).run();
+        System.out.println("结果已保存: " + resultFile.toAbsolutePath());
+    }
+}
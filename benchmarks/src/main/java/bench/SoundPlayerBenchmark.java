@@ -0,0 +1,58 @@
+package bench;
+
+import core.AudioCache;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.Clip;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提示音的启动延迟：冷启动（每次新建缓存，需要读取、解码并打开Clip）对比预热后（从Clip池取出直接播放）。
+ * 需要有可用的音频设备，没有声卡的机器上Clip无法打开。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SoundPlayerBenchmark {
+    private static final String SOUND = "short_break";
+
+    private AudioCache warmCache;
+
+    @Setup
+    public void setup() {
+        warmCache = new AudioCache();
+        warmCache.preload(SOUND);
+    }
+
+    @TearDown
+    public void tearDown() {
+        warmCache.clear();
+    }
+
+    @Benchmark
+    public Clip cold() {
+        AudioCache cache = new AudioCache();
+        Clip clip = cache.acquire(SOUND);
+        if (clip != null) {
+            clip.start();
+            clip.stop();
+        }
+        cache.clear();
+        if (clip != null) clip.close();
+        return clip;
+    }
+
+    @Benchmark
+    public Clip warm() {
+        Clip clip = warmCache.acquire(SOUND);
+        if (clip != null) {
+            clip.start();
+            // 停止后Clip通过STOP事件归还到池中
+            clip.stop();
+        }
+        return clip;
+    }
+}
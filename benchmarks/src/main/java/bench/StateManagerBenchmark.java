@@ -0,0 +1,62 @@
+package bench;
+
+import core.LearningState;
+import core.StateManager;
+import log.Log;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 状态切换在竞争下的开销：多个线程同时在 STUDYING/PAUSED 之间切换，另有线程只读状态。
+ * 每次成功的切换都会记录日志，测量期间关闭日志，只测量原子状态字本身
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class StateManagerBenchmark {
+    private StateManager stateManager;
+    private log.Level logLevel;
+
+    @Setup
+    public void setup() {
+        logLevel = Log.getLevel();
+        Log.setLevel(log.Level.OFF);
+        stateManager = new StateManager();
+        stateManager.setState(LearningState.STUDYING);
+    }
+
+    @TearDown
+    public void restore() {
+        Log.setLevel(logLevel);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public boolean pauseResume() {
+        // 与另一个线程竞争，失败的CAS同样计入开销
+        if (stateManager.compareAndSet(LearningState.STUDYING, LearningState.PAUSED)) {
+            return stateManager.compareAndSet(LearningState.PAUSED, LearningState.STUDYING);
+        }
+        return false;
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public boolean reader() {
+        return stateManager.isStudying();
+    }
+
+    @Benchmark
+    @Group("uncontended")
+    @GroupThreads(1)
+    public boolean singleThread() {
+        stateManager.compareAndSet(LearningState.STUDYING, LearningState.PAUSED);
+        return stateManager.compareAndSet(LearningState.PAUSED, LearningState.STUDYING);
+    }
+}
@@ -0,0 +1,108 @@
+package bench;
+
+import core.StateManager;
+import core.TimerService;
+import core.TimerSink;
+import core.VirtualClock;
+import log.Log;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计时引擎的热路径：在虚拟时钟上推进时间，分别测量窗口可见时每秒一次的刷新路径，
+ * 以及包含提示音、短休息和长休息在内的完整学习周期，正常模式和测试模式各一组
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimerServiceBenchmark {
+
+    @Param({"false", "true"})
+    public boolean testMode;
+
+    private VirtualClock clock;
+    private TimerService timerService;
+    private log.Level logLevel;
+
+    /**
+     * 只把输出交给Blackhole，避免被优化掉
+     */
+    private static final class BlackholeSink implements TimerSink {
+        private final Blackhole blackhole;
+
+        BlackholeSink(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void showStudyProgress(int elapsedSeconds, int totalSeconds, boolean testMode) {
+            blackhole.consume(elapsedSeconds);
+        }
+
+        @Override
+        public void showBreakProgress(int remainingSeconds, int totalSeconds) {
+            blackhole.consume(remainingSeconds);
+        }
+
+        @Override
+        public void breakStarted(boolean longBreak, int breakSeconds) {
+            blackhole.consume(breakSeconds);
+        }
+
+        @Override
+        public void breakFinished() {
+            blackhole.consume(this);
+        }
+    }
+
+    // 计时服务每次提醒和状态切换都会打印日志，测量时关闭，只测计时本身
+    @Setup(Level.Trial)
+    public void silence() {
+        logLevel = Log.getLevel();
+        Log.setLevel(log.Level.OFF);
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        Log.setLevel(logLevel);
+    }
+
+    @Setup(Level.Iteration)
+    public void setup(Blackhole blackhole) {
+        clock = new VirtualClock();
+        timerService = new TimerService(new StateManager(), new BlackholeSink(blackhole), clock, new Random(42));
+        timerService.setTestMode(testMode);
+        timerService.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        timerService.stop();
+    }
+
+    /**
+     * 窗口可见时每秒执行的路径（进度刷新，偶尔包含提示音截止）
+     */
+    @Benchmark
+    public int perSecond() {
+        return clock.advance(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 窗口隐藏时推进一个完整的学习周期（两小时），只执行真正的截止任务
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int hiddenCycle() {
+        timerService.setDisplayVisible(false);
+        int executed = clock.advance(2, TimeUnit.HOURS);
+        timerService.setDisplayVisible(true);
+        return executed;
+    }
+}
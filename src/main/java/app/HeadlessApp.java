@@ -0,0 +1,123 @@
+package app;
+
+import core.Clock;
+import core.CyclePlan;
+import core.LearningState;
+import core.StateManager;
+import core.TimerService;
+import core.TimingWheel;
+import log.Level;
+import log.Log;
+import metrics.Metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无界面入口：在一个JVM中同时运行多个学习会话（例如教室里每个学生一个），
+ * 不初始化Swing，适合在服务器上运行或做测试。
+ *
+ * 用法：java -cp studyassist.jar app.HeadlessApp [--sessions N] [--plan ID | --test] [--duration 秒] [--verbose]
+ */
+public class HeadlessApp {
+    private static final long REPORT_INTERVAL_SECONDS = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        int sessionCount = 1;
+        CyclePlan plan = CyclePlan.CLASSIC;
+        long durationSeconds = 0; // 0表示一直运行
+        boolean verbose = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sessions":
+                    sessionCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--plan":
+                    plan = CyclePlan.byId(args[++i]);
+                    break;
+                case "--test":
+                    plan = CyclePlan.TEST;
+                    break;
+                case "--duration":
+                    durationSeconds = Long.parseLong(args[++i]);
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                default:
+                    System.err.println("未知参数: " + args[i]);
+                    System.err.println("用法: app.HeadlessApp [--sessions N] [--plan ID | --test] [--duration 秒] [--verbose]");
+                    System.exit(1);
+            }
+        }
+
+        // 会话很多时关闭各会话的日志输出，只打印汇总
+        PrintStream console = System.out;
+        if (!verbose) {
+            Log.setLevel(Level.WARN);
+        }
+
+        Metrics.registerMBean();
+        AtomicLong shortBreaks = new AtomicLong();
+        AtomicLong longBreaks = new AtomicLong();
+        AtomicLong resumes = new AtomicLong();
+        Clock clock = TimingWheel.shared();
+
+        List<StateManager> states = new ArrayList<>(sessionCount);
+        List<TimerService> sessions = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            StateManager stateManager = new StateManager();
+            TimerService timerService = new TimerService(stateManager,
+                    new HeadlessSink(shortBreaks, longBreaks, resumes), clock);
+            timerService.setDisplayVisible(false);
+            if (plan.isTest()) {
+                timerService.setTestMode(true);
+            } else if (plan != CyclePlan.CLASSIC) {
+                timerService.setPlan(plan);
+            }
+            timerService.start();
+            states.add(stateManager);
+            sessions.add(timerService);
+        }
+        console.println("已启动 " + sessionCount + " 个学习会话（" + plan.getName() + "）");
+
+        long startMillis = System.currentTimeMillis();
+        while (durationSeconds <= 0 || System.currentTimeMillis() - startMillis < durationSeconds * 1000) {
+            long remainingMillis = durationSeconds <= 0 ? Long.MAX_VALUE
+                    : durationSeconds * 1000 - (System.currentTimeMillis() - startMillis);
+            Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(REPORT_INTERVAL_SECONDS), Math.max(1, remainingMillis)));
+            report(console, states, sessions, shortBreaks, longBreaks, resumes, startMillis);
+        }
+
+        for (TimerService session : sessions) {
+            session.stop();
+        }
+        console.println("全部会话已停止");
+        console.print(Metrics.dump());
+    }
+
+    private static void report(PrintStream console, List<StateManager> states, List<TimerService> sessions,
+                               AtomicLong shortBreaks, AtomicLong longBreaks, AtomicLong resumes, long startMillis) {
+        int[] counts = new int[LearningState.values().length];
+        for (StateManager state : states) {
+            counts[state.getState().ordinal()]++;
+        }
+        // 休息结束到恢复学习的最大延迟
+        long maxResumeNanos = 0;
+        for (TimerService session : sessions) {
+            maxResumeNanos = Math.max(maxResumeNanos, session.getLastResumeLatenessNanos());
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        console.printf("[%ds] 学习中=%d 暂停=%d 休息中=%d 空闲=%d | 短休息=%d 长休息=%d 恢复=%d 恢复延迟<=%.1fms | 线程=%d 堆=%dMB%n",
+                (System.currentTimeMillis() - startMillis) / 1000,
+                counts[LearningState.STUDYING.ordinal()], counts[LearningState.PAUSED.ordinal()],
+                counts[LearningState.BREAK.ordinal()], counts[LearningState.IDLE.ordinal()],
+                shortBreaks.get(), longBreaks.get(), resumes.get(), maxResumeNanos / 1e6,
+                Thread.activeCount(), usedMb);
+    }
+}
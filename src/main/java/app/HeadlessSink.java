@@ -0,0 +1,38 @@
+package app;
+
+import core.TimerSink;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无界面模式的计时输出：不显示进度，只统计提醒次数，休息结束后立即恢复学习
+ */
+public class HeadlessSink implements TimerSink {
+    private final AtomicLong shortBreaks;
+    private final AtomicLong longBreaks;
+    private final AtomicLong resumes;
+
+    public HeadlessSink(AtomicLong shortBreaks, AtomicLong longBreaks, AtomicLong resumes) {
+        this.shortBreaks = shortBreaks;
+        this.longBreaks = longBreaks;
+        this.resumes = resumes;
+    }
+
+    @Override
+    public void showStudyProgress(int elapsedSeconds, int totalSeconds, boolean testMode) {
+    }
+
+    @Override
+    public void showBreakProgress(int remainingSeconds, int totalSeconds) {
+    }
+
+    @Override
+    public void breakStarted(boolean longBreak, int breakSeconds) {
+        (longBreak ? longBreaks : shortBreaks).incrementAndGet();
+    }
+
+    @Override
+    public void breakFinished() {
+        resumes.incrementAndGet();
+    }
+}
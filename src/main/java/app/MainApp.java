@@ -1,17 +1,80 @@
 package app;
 
 import com.formdev.flatlaf.FlatLightLaf;
+import core.SettingsStore;
+import metrics.StartupTimer;
 import ui.MainWindow;
+import ui.StartupTasks;
 
 import javax.swing.*;
+import java.io.IOException;
 
+/**
+ * 桌面程序入口，同时是命令行客户端：
+ *   java -jar studyassist.jar [show|start|pause|status]
+ * 已有实例在运行时把命令转发给它并打印回复后退出；否则show（默认）和start启动程序，pause和status报告没有实例。
+ */
 public class MainApp {
+    // 另一个实例已持有锁但还没开始监听（正在启动）时等待的时长
+    private static final long STARTUP_WAIT_MILLIS = 5000;
+
     public static void main(String[] args) {
+        StartupTimer.begin();
+        String command = args.length > 0 ? args[0] : "show";
+        if (args.length > 1 || !SingleInstance.COMMANDS.contains(command)) {
+            System.err.println("用法: java -jar studyassist.jar [show|start|pause|status]");
+            System.exit(1);
+        }
+
+        // 先转发给已运行的实例，成功时不初始化Swing和外观
+        SingleInstance instance = null;
+        try {
+            String reply = SingleInstance.send(command, 0);
+            if (reply == null) {
+                instance = SingleInstance.acquire();
+                if (instance == null) reply = SingleInstance.send(command, STARTUP_WAIT_MILLIS);
+            }
+            if (reply != null) {
+                System.out.println(reply);
+                System.exit(reply.startsWith(SingleInstance.ERROR_PREFIX) ? 1 : 0);
+            }
+            if (instance == null) {
+                System.err.println("另一个实例正在运行但没有响应");
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            // 锁文件不可用时不做单实例保护，照常启动
+            System.err.println("无法检查已运行的实例: " + e.getMessage());
+        }
+        StartupTimer.mark("singleInstance");
+
+        if (command.equals("pause") || command.equals("status")) {
+            System.err.println("学习辅助工具没有在运行");
+            System.exit(1);
+        }
+
+        // 托盘、提示音、会话日志和JMX在后台线程上预热，与外观初始化并行
+        StartupTasks startupTasks = StartupTasks.start();
+        // 设置文件很小，在首帧之前同步读取
+        SettingsStore settings = SettingsStore.openDefault();
+        StartupTimer.mark("settings");
+
         // 设置现代化主题
         FlatLightLaf.setup();
-        
+        StartupTimer.mark("laf");
+
+        SingleInstance owner = instance;
         SwingUtilities.invokeLater(() -> {
-            new MainWindow().createAndShowGUI();
+            MainWindow mainWindow = new MainWindow();
+            mainWindow.createAndShowGUI(startupTasks, settings);
+            if (command.equals("start")) mainWindow.handleCommand("start");
+            if (owner != null) {
+                try {
+                    owner.serve(mainWindow::handleCommand);
+                } catch (IOException e) {
+                    System.err.println("无法监听实例命令，再次启动时不会转发: " + e.getMessage());
+                }
+            }
         });
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,201 @@
+package app;
+
+import core.CyclePlan;
+import core.StateManager;
+import core.TimerService;
+import core.TimerSink;
+import core.VirtualClock;
+import log.Level;
+import log.Log;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 虚拟时间模拟：用VirtualClock驱动多个学习会话，几小时的学习/休息周期在毫秒级时间内跑完，
+ * 同时检查提示音时间窗口、长休息时机和休息时长是否符合预期，可作为快速回归检查。
+ * 相同的种子得到完全相同的结果；发现违规时以退出码1结束。
+ *
+ * 用法：java -cp studyassist.jar app.Simulator [--sessions N] [--hours H] [--seed S] [--plan ID | --test]
+ */
+public class Simulator {
+    private static final int MAX_REPORTED_VIOLATIONS = 10;
+
+    private final List<String> violations = new ArrayList<>();
+    private long shortBreaks = 0;
+    private long longBreaks = 0;
+
+    /**
+     * 检查每个会话的提醒与休息是否符合周期规则
+     */
+    private class CheckingSink implements TimerSink {
+        private final VirtualClock clock;
+        private final CyclePlan plan;
+        private final int id;
+        private TimerService timerService;
+        private int lastReminderCycle = -1;
+        private long breakStartNanos = -1;
+        private int breakSeconds;
+
+        CheckingSink(int id, VirtualClock clock, CyclePlan plan) {
+            this.id = id;
+            this.clock = clock;
+            this.plan = plan;
+        }
+
+        @Override
+        public void showStudyProgress(int elapsedSeconds, int totalSeconds, boolean testMode) {
+        }
+
+        @Override
+        public void showBreakProgress(int remainingSeconds, int totalSeconds) {
+        }
+
+        @Override
+        public void breakStarted(boolean longBreak, int breakSeconds) {
+            int elapsed = timerService.getElapsedSeconds();
+            if (longBreak) {
+                longBreaks++;
+                int cycle = plan.getCycleSeconds();
+                if (elapsed != cycle) violation("长休息应在 " + cycle + " 秒触发，实际 " + elapsed + " 秒");
+                lastReminderCycle = -1;
+            } else {
+                shortBreaks++;
+                int reminderCycle = plan.getBlockSeconds();
+                int min = plan.getReminderMinOffset();
+                int max = plan.getReminderMaxOffset();
+                if (reminderCycle == 0) {
+                    violation("计划 " + plan.getId() + " 不应有短休息，实际在 " + elapsed + " 秒");
+                    reminderCycle = plan.getCycleSeconds();
+                }
+                int cycleIndex = elapsed / reminderCycle;
+                int offset = elapsed % reminderCycle;
+                // 窗口上界等于小段时长时（如180-300秒），提醒恰好落在下一段的第0秒
+                if (offset == 0 && max == reminderCycle) {
+                    cycleIndex--;
+                    offset = reminderCycle;
+                }
+                if (offset < min || offset > max) violation("提示音时间 " + elapsed + " 秒不在周期窗口 " + min + "-" + max + " 内");
+                if (cycleIndex == lastReminderCycle) violation("周期 " + cycleIndex + " 重复提醒");
+                lastReminderCycle = cycleIndex;
+            }
+            this.breakSeconds = breakSeconds;
+            this.breakStartNanos = clock.nanoTime();
+        }
+
+        @Override
+        public void breakFinished() {
+            long actual = clock.nanoTime() - breakStartNanos;
+            if (breakStartNanos < 0 || actual != TimeUnit.SECONDS.toNanos(breakSeconds)) {
+                violation("休息时长应为 " + breakSeconds + " 秒，实际 " + actual / 1_000_000 + " 毫秒");
+            }
+            // 恢复必须在休息结束的同一时刻完成
+            if (timerService.getLastResumeLatenessNanos() != 0) {
+                violation("恢复学习延迟 " + timerService.getLastResumeLatenessNanos() + " 纳秒");
+            }
+            breakStartNanos = -1;
+        }
+
+        private void violation(String message) {
+            violations.add("会话" + id + " @" + clock.nanoTime() / 1_000_000_000L + "s: " + message);
+        }
+    }
+
+    public static void main(String[] args) {
+        int sessionCount = 100;
+        int hours = 24;
+        long seed = 42;
+        CyclePlan plan = CyclePlan.CLASSIC;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sessions":
+                    sessionCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--hours":
+                    hours = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--plan":
+                    plan = CyclePlan.byId(args[++i]);
+                    break;
+                case "--test":
+                    plan = CyclePlan.TEST;
+                    break;
+                default:
+                    System.err.println("未知参数: " + args[i]);
+                    System.err.println("用法: app.Simulator [--sessions N] [--hours H] [--seed S] [--plan ID | --test]");
+                    System.exit(1);
+            }
+        }
+
+        int violationCount = new Simulator().run(sessionCount, hours, seed, plan);
+        System.exit(violationCount == 0 ? 0 : 1);
+    }
+
+    /**
+     * 已发现的违规（最近一次run的结果）
+     */
+    public List<String> getViolations() {
+        return Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * 运行模拟并打印结果
+     * @return 违规次数
+     */
+    public int run(int sessionCount, int hours, long seed, CyclePlan plan) {
+        PrintStream console = System.out;
+        Level logLevel = Log.getLevel();
+        Log.setLevel(Level.WARN);
+        try {
+            VirtualClock clock = new VirtualClock();
+            List<TimerService> sessions = new ArrayList<>(sessionCount);
+            for (int i = 0; i < sessionCount; i++) {
+                CheckingSink sink = new CheckingSink(i, clock, plan);
+                TimerService timerService = new TimerService(new StateManager(), sink, clock, new Random(seed + i));
+                sink.timerService = timerService;
+                timerService.setDisplayVisible(false);
+                if (plan.isTest()) {
+                    timerService.setTestMode(true);
+                } else {
+                    timerService.setPlan(plan);
+                }
+                timerService.start();
+                sessions.add(timerService);
+            }
+
+            long startNanos = System.nanoTime();
+            // 按小时推进，便于观察进度；每小时内的事件仍按精确的虚拟时间执行
+            for (int h = 0; h < hours; h++) {
+                clock.advance(1, TimeUnit.HOURS);
+            }
+            long realNanos = System.nanoTime() - startNanos;
+
+            for (TimerService session : sessions) {
+                session.stop();
+            }
+
+            double realMillis = realNanos / 1e6;
+            console.printf("模拟完成：%d 个会话 × %d 小时（%s），种子 %d%n", sessionCount, hours, plan.getName(), seed);
+            console.printf("短休息 %d 次，长休息 %d 次，执行事件 %d 个%n", shortBreaks, longBreaks, clock.getExecutedCount());
+            console.printf("真实耗时 %.1f ms，%.0f 会话小时/秒，%.0f 事件/秒%n",
+                    realMillis, sessionCount * (double) hours / (realNanos / 1e9), clock.getExecutedCount() / (realNanos / 1e9));
+            if (violations.isEmpty()) {
+                console.println("检查通过");
+            } else {
+                console.println("发现 " + violations.size() + " 处违规：");
+                violations.stream().limit(MAX_REPORTED_VIOLATIONS).forEach(v -> console.println("  " + v));
+            }
+            return violations.size();
+        } finally {
+            Log.setLevel(logLevel);
+        }
+    }
+}
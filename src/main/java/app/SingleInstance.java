@@ -0,0 +1,190 @@
+package app;
+
+import log.Log;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+/**
+ * 单实例保护：第一个启动的进程持有 ~/.studyassist/instance.lock 的文件锁，并在 ~/.studyassist/instance.sock
+ * 上监听Unix域套接字；之后启动的进程直接连接套接字，把命令交给已运行的实例后退出，不初始化Swing和外观。
+ *
+ * 协议：每个连接发送一行命令（show、start、pause、status），收到一行回复后关闭；回复以"错误:"开头表示失败。
+ * 文件锁随进程退出自动释放，残留的套接字文件由下一个获得锁的进程删除。
+ */
+public final class SingleInstance implements AutoCloseable {
+    public static final Set<String> COMMANDS = Set.of("show", "start", "pause", "status");
+    public static final String ERROR_PREFIX = "错误:";
+
+    private static final int MAX_LINE = 256;
+    private static final long RETRY_MILLIS = 20;
+
+    /**
+     * 处理其他进程转发来的命令，返回一行回复；在监听线程上调用
+     */
+    public interface Handler {
+        String handle(String command);
+    }
+
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final Path socketPath;
+    private ServerSocketChannel server;
+    private Thread thread;
+
+    private SingleInstance(FileChannel lockChannel, FileLock lock, Path socketPath) {
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+        this.socketPath = socketPath;
+    }
+
+    private static Path directory() {
+        return Paths.get(System.getProperty("user.home"), ".studyassist");
+    }
+
+    private static Path defaultSocketPath() {
+        return directory().resolve("instance.sock");
+    }
+
+    /**
+     * 尝试成为唯一实例
+     * @return 已有其他实例持有锁时返回null
+     */
+    public static SingleInstance acquire() throws IOException {
+        Files.createDirectories(directory());
+        FileChannel channel = FileChannel.open(directory().resolve("instance.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            return null;
+        }
+        return new SingleInstance(channel, lock, defaultSocketPath());
+    }
+
+    /**
+     * 把命令发给已运行的实例
+     * @param waitMillis 连接不上时重试的时长（已运行的实例可能还没开始监听），0表示只试一次
+     * @return 回复；没有实例在监听时返回null
+     */
+    public static String send(String command, long waitMillis) throws IOException {
+        Path socketPath = defaultSocketPath();
+        long deadline = System.nanoTime() + waitMillis * 1_000_000L;
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+            } catch (IOException | UnsupportedOperationException e) {
+                if (System.nanoTime() - deadline >= 0) return null;
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+                continue;
+            }
+            try (channel) {
+                writeLine(channel, command);
+                String reply = readLine(channel);
+                return reply != null ? reply : ERROR_PREFIX + " 已运行的实例没有回复";
+            }
+        }
+    }
+
+    /**
+     * 开始监听其他进程的命令，每个连接在监听线程上依次处理
+     */
+    public synchronized void serve(Handler handler) throws IOException {
+        if (server != null) throw new IllegalStateException("已经在监听");
+        // 持有锁时残留的套接字文件一定是上次异常退出留下的
+        Files.deleteIfExists(socketPath);
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException | UnsupportedOperationException e) {
+            server.close();
+            server = null;
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+        ServerSocketChannel listening = server;
+        thread = new Thread(() -> acceptLoop(listening, handler), "instance-ipc");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void acceptLoop(ServerSocketChannel listening, Handler handler) {
+        while (listening.isOpen()) {
+            try (SocketChannel channel = listening.accept()) {
+                String command = readLine(channel);
+                if (command == null) continue;
+                String reply;
+                if (!COMMANDS.contains(command)) {
+                    reply = ERROR_PREFIX + " 未知命令 " + command;
+                } else {
+                    try {
+                        reply = handler.handle(command);
+                    } catch (RuntimeException e) {
+                        reply = ERROR_PREFIX + " " + e;
+                    }
+                }
+                writeLine(channel, reply);
+            } catch (IOException e) {
+                if (!listening.isOpen()) return;
+                Log.warn("处理实例命令失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void writeLine(SocketChannel channel, String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    // 读取一行（不含换行），超过MAX_LINE字节或连接在换行前关闭时返回已读到的内容，没有内容时返回null
+    private static String readLine(SocketChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_LINE);
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            if (channel.read(buffer) < 0) break;
+            for (int i = start; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return new String(buffer.array(), 0, i, StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return buffer.position() == 0 ? null : new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 停止监听并释放锁
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (server != null) {
+            server.close();
+            server = null;
+            Files.deleteIfExists(socketPath);
+        }
+        if (lock.isValid()) lock.release();
+        lockChannel.close();
+    }
+}
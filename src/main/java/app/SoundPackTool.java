@@ -0,0 +1,54 @@
+package app;
+
+import core.SoundPack;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 音效包工具：把提示音压缩打包，或列出音效包中的音频。
+ *
+ * 用法：java -cp studyassist.jar app.SoundPackTool 输出.pack ID=音频文件 [ID=音频文件 ...]
+ *      java -cp studyassist.jar app.SoundPackTool --list 音效包.pack
+ */
+public class SoundPackTool {
+    private static final String USAGE = "用法: app.SoundPackTool 输出.pack ID=音频文件 [ID=音频文件 ...]\n"
+            + "      app.SoundPackTool --list 音效包.pack";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--list")) {
+            list(Paths.get(args[1]));
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        Path output = Paths.get(args[0]);
+        Map<String, Path> sounds = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            int separator = args[i].indexOf('=');
+            if (separator <= 0) {
+                System.err.println("参数格式应为 ID=音频文件: " + args[i]);
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+            sounds.put(args[i].substring(0, separator), Paths.get(args[i].substring(separator + 1)));
+        }
+        SoundPack.write(output, sounds, SoundPack.DEFAULT_SAMPLES_PER_BLOCK);
+        list(output);
+    }
+
+    private static void list(Path path) throws Exception {
+        SoundPack pack = SoundPack.open(path);
+        System.out.println(path + "（" + pack.size() / 1024 + " KB）");
+        for (String id : pack.ids()) {
+            SoundPack.Entry entry = pack.entry(id);
+            System.out.printf("  %-20s %s，%.2f 秒，%d KB（PCM %d KB）%n", id, entry.getFormat(),
+                    entry.getFrames() / entry.getFormat().getFrameRate(), entry.getLength() / 1024, entry.getPcmLength() / 1024);
+        }
+    }
+}
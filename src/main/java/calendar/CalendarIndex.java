@@ -0,0 +1,211 @@
+package calendar;
+
+import core.BusyCalendar;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 日历索引：把各个.ics文件中的事件在一个时间窗口内展开为具体的发生，放入一棵区间树，
+ * 计时服务在每个截止时间上以O(log n)查询忙碌时段。
+ *
+ * 窗口为[当前时间 - KEEP_MILLIS, 当前时间 + HORIZON_MILLIS)，由advance向前推进：只展开新进入窗口的那一段，
+ * 并删除已经结束的发生。文件修改后按事件（UID，以及被单独修改的那一次的RECURRENCE-ID）比较，
+ * 只重新展开内容变化的事件，其余事件的区间不动。
+ *
+ * 所有方法加同一把锁；解析在调用方线程上进行，加锁期间只修改区间树。
+ */
+public class CalendarIndex implements BusyCalendar {
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    // 已结束多久的发生仍保留在索引中
+    private static final long KEEP_MILLIS = DAY_MILLIS;
+    // 向后展开的时长
+    private static final long HORIZON_MILLIS = 14 * DAY_MILLIS;
+
+    /**
+     * 一个事件及其已放入区间树的发生（按开始时间排序）
+     */
+    private static final class Entry {
+        final IcsEvent event;
+        long[] starts = new long[4];
+        long[] ids = new long[4];
+        int head;
+        int tail;
+
+        Entry(IcsEvent event) {
+            this.event = event;
+        }
+
+        void add(long start, long id) {
+            if (tail == starts.length) {
+                // 先把前面已删除的位置挪掉，仍然不够时扩容
+                int size = tail - head;
+                int capacity = size * 2 >= starts.length ? starts.length * 2 : starts.length;
+                starts = Arrays.copyOfRange(starts, head, head + capacity);
+                ids = Arrays.copyOfRange(ids, head, head + capacity);
+                head = 0;
+                tail = size;
+            }
+            starts[tail] = start;
+            ids[tail] = id;
+            tail++;
+        }
+    }
+
+    private final IntervalTree tree = new IntervalTree();
+    private final Map<Path, Map<String, Entry>> files = new HashMap<>();
+    private long horizonStart;
+    private long horizonEnd;
+    private long nextId = 0;
+
+    public CalendarIndex(long nowMillis) {
+        this.horizonStart = nowMillis - KEEP_MILLIS;
+        this.horizonEnd = nowMillis + HORIZON_MILLIS;
+    }
+
+    @Override
+    public synchronized long firstBusyStart(long fromMillis, long toMillis) {
+        long start = tree.firstOverlapStart(fromMillis, toMillis);
+        return start == Long.MIN_VALUE ? -1 : start;
+    }
+
+    @Override
+    public synchronized long busyUntil(long timeMillis) {
+        long until = -1;
+        long probe = timeMillis;
+        // 每次取覆盖probe的一个区间，把probe移到它的结束时间，直到没有区间覆盖
+        while (true) {
+            long end = tree.firstOverlapEnd(probe, probe + 1);
+            if (end == Long.MIN_VALUE) return until;
+            until = end;
+            probe = end;
+        }
+    }
+
+    /**
+     * 用文件的最新内容替换它的事件，只重新展开新增或内容变化的事件
+     * @return 本次变化的描述
+     */
+    public synchronized String update(Path file, List<IcsEvent> events) {
+        Map<String, IcsEvent> next = keyed(events);
+        Map<String, Entry> old = files.getOrDefault(file, Map.of());
+        Map<String, Entry> merged = new HashMap<>(next.size() * 2);
+        int removed = 0;
+        int added = 0;
+        for (Map.Entry<String, Entry> e : old.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.event.equals(next.get(e.getKey()))) {
+                merged.put(e.getKey(), entry);
+            } else {
+                removeOccurrences(entry);
+                removed++;
+            }
+        }
+        for (Map.Entry<String, IcsEvent> e : next.entrySet()) {
+            if (merged.containsKey(e.getKey())) continue;
+            Entry entry = new Entry(e.getValue());
+            e.getValue().occurrences(horizonStart, horizonEnd, start -> insert(entry, start));
+            merged.put(e.getKey(), entry);
+            added++;
+        }
+        if (merged.isEmpty()) {
+            files.remove(file);
+        } else {
+            files.put(file, merged);
+        }
+        return file.getFileName() + ": 事件 " + merged.size() + "，新增或修改 " + added + "，删除或修改 " + removed
+                + "，索引中的时段 " + tree.size();
+    }
+
+    /**
+     * 文件被删除时移除它的全部事件
+     */
+    public synchronized void remove(Path file) {
+        Map<String, Entry> old = files.remove(file);
+        if (old == null) return;
+        for (Entry entry : old.values()) removeOccurrences(entry);
+    }
+
+    /**
+     * 推进展开窗口：窗口剩余不到一半时展开到 now + HORIZON_MILLIS，并删除已结束超过KEEP_MILLIS的发生
+     * @return 是否推进了窗口
+     */
+    public synchronized boolean advance(long nowMillis) {
+        if (nowMillis + HORIZON_MILLIS / 2 < horizonEnd) return false;
+        long oldEnd = horizonEnd;
+        long newEnd = nowMillis + HORIZON_MILLIS;
+        long cutoff = nowMillis - KEEP_MILLIS;
+        for (Map<String, Entry> entries : files.values()) {
+            for (Entry entry : entries.values()) {
+                // 只加入开始时间在新窗口段内的发生，跨过旧窗口末尾的发生已经在索引中
+                entry.event.occurrences(oldEnd, newEnd, start -> {
+                    if (start >= oldEnd) insert(entry, start);
+                });
+                long duration = entry.event.getDurationMillis();
+                while (entry.head < entry.tail && entry.starts[entry.head] + duration <= cutoff) {
+                    tree.remove(entry.starts[entry.head], entry.ids[entry.head]);
+                    entry.head++;
+                }
+            }
+        }
+        horizonStart = cutoff;
+        horizonEnd = newEnd;
+        return true;
+    }
+
+    /**
+     * 下一次需要调用advance的时间
+     */
+    public synchronized long nextAdvanceMillis() {
+        return horizonEnd - HORIZON_MILLIS / 2;
+    }
+
+    public synchronized int size() {
+        return tree.size();
+    }
+
+    private void insert(Entry entry, long start) {
+        long id = nextId++;
+        tree.insert(start, start + entry.event.getDurationMillis(), id);
+        entry.add(start, id);
+    }
+
+    private void removeOccurrences(Entry entry) {
+        for (int i = entry.head; i < entry.tail; i++) tree.remove(entry.starts[i], entry.ids[i]);
+        entry.head = entry.tail = 0;
+    }
+
+    // 按UID（被单独修改的发生再加上RECURRENCE-ID）建立事件表，并把单独修改过的发生从原重复事件中排除
+    private static Map<String, IcsEvent> keyed(List<IcsEvent> events) {
+        Map<String, long[]> overrides = new HashMap<>();
+        for (IcsEvent event : events) {
+            if (!event.isOverride()) continue;
+            long[] ids = overrides.getOrDefault(event.getUid(), new long[0]);
+            ids = Arrays.copyOf(ids, ids.length + 1);
+            ids[ids.length - 1] = event.getRecurrenceId();
+            overrides.put(event.getUid(), ids);
+        }
+        Map<String, IcsEvent> keyed = new HashMap<>(events.size() * 2);
+        for (IcsEvent event : events) {
+            String key = event.isOverride() ? event.getUid() + "#" + event.getRecurrenceId() : event.getUid();
+            if (event.isRecurring() && !event.isOverride()) {
+                event = event.withExcluded(overrides.getOrDefault(event.getUid(), new long[0]));
+            }
+            // UID重复时保留全部事件
+            String unique = key;
+            for (int i = 1; keyed.containsKey(unique); i++) unique = key + "#" + i;
+            keyed.put(unique, event);
+        }
+        return keyed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        int events = 0;
+        for (Map<String, Entry> entries : files.values()) events += entries.size();
+        return "日历: 文件=" + files.size() + ", 事件=" + events + ", 索引中的时段=" + tree.size();
+    }
+}
@@ -0,0 +1,179 @@
+package calendar;
+
+import log.Log;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 监视日历目录（默认 ~/.studyassist/calendar，可用 -Dstudyassist.calendar.dir 指定）中的.ics文件：
+ * 启动时读取全部文件，之后文件新增、修改或删除时，等连续的事件停止DEBOUNCE_MILLIS后只重新读取变化的文件，
+ * 并定期推进索引的展开窗口。读取和展开都在监视线程上进行，不占用计时线程。
+ */
+public class CalendarWatcher implements AutoCloseable {
+    private static final LatencyHistogram REINDEX = Metrics.histogram("calendar.reindex");
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    private final Path directory;
+    private final CalendarIndex index;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private WatchService watcher;
+    private volatile Runnable changeListener; // 文件变化后在监视线程上调用，可为空
+
+    public CalendarWatcher(Path directory, CalendarIndex index) {
+        this.directory = directory;
+        this.index = index;
+    }
+
+    /**
+     * 默认日历目录存在时读取并开始监视
+     * @return 监视器；目录不存在时返回null，不启用日历
+     */
+    public static CalendarWatcher startDefault() throws IOException {
+        String configured = System.getProperty("studyassist.calendar.dir");
+        Path directory = configured != null ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".studyassist", "calendar");
+        if (!Files.isDirectory(directory)) return null;
+        CalendarWatcher watcher = new CalendarWatcher(directory, new CalendarIndex(System.currentTimeMillis()));
+        watcher.start();
+        return watcher;
+    }
+
+    public CalendarIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * 设置文件变化并重新索引后的回调（不持有索引的锁），用于让计时服务重新计算下一个截止时间
+     */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * 在调用线程上读取目录中的全部.ics文件，再在后台线程上监视变化
+     */
+    public synchronized void start() throws IOException {
+        if (watcher != null) throw new IllegalStateException("已经在监视");
+        watcher = directory.getFileSystem().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.ics")) {
+            for (Path file : files) reload(file);
+        }
+        Log.info("{}", index);
+        WatchService service = watcher;
+        Thread thread = new Thread(() -> watchLoop(service), "calendar-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watchLoop(WatchService service) {
+        Set<Path> changed = new HashSet<>();
+        long reloadAt = -1; // 计划重新读取的时间，-1表示没有待处理的修改
+        try {
+            while (true) {
+                // 有待读取的文件时等到防抖结束，否则等到下一次推进展开窗口
+                long wakeAt = reloadAt >= 0 ? reloadAt
+                        : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, index.nextAdvanceMillis() - System.currentTimeMillis()));
+                long waitNanos = wakeAt - System.nanoTime();
+                WatchKey key = waitNanos > 0 ? service.poll(waitNanos, TimeUnit.NANOSECONDS) : null;
+                if (key == null) {
+                    if (reloadAt >= 0) {
+                        reloadAt = -1;
+                        for (Path file : changed) reload(file);
+                        changed.clear();
+                        Runnable listener = changeListener;
+                        if (listener != null) listener.run();
+                    }
+                    advance();
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        rescan(changed);
+                    } else {
+                        Path file = directory.resolve((Path) event.context());
+                        if (!file.getFileName().toString().endsWith(".ics")) continue;
+                        changed.add(file);
+                    }
+                    reloadAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MILLIS);
+                }
+                if (!key.reset()) {
+                    Log.warn("日历目录已不可用，停止监视: {}", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 已关闭
+        } catch (IOException e) {
+            Log.error("无法读取日历目录，停止监视: {}", e.getMessage());
+        }
+    }
+
+    // 事件丢失时重新检查目录中的全部文件（内容没变的事件不会重新展开）
+    private void rescan(Set<Path> changed) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.ics")) {
+            for (Path file : files) changed.add(file);
+        }
+    }
+
+    private void advance() {
+        long startNanos = System.nanoTime();
+        if (index.advance(System.currentTimeMillis())) {
+            REINDEX.record(System.nanoTime() - startNanos);
+            Log.info("日历展开窗口已推进，{}", index);
+        }
+    }
+
+    // 读取一个文件并更新索引；文件已删除时移除它的事件，读取失败时保留原来的事件
+    private void reload(Path file) {
+        long startNanos = System.nanoTime();
+        if (!Files.exists(file)) {
+            index.remove(file);
+            Log.info("日历文件已删除: {}", file.getFileName());
+            return;
+        }
+        IcsParser parser = new IcsParser(zone);
+        List<IcsEvent> events = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            parser.parse(reader, events::add);
+        } catch (IOException e) {
+            Log.warn("无法读取日历文件 {}: {}", file.getFileName(), e.getMessage());
+            return;
+        }
+        String summary = index.update(file, events);
+        long nanos = System.nanoTime() - startNanos;
+        REINDEX.record(nanos);
+        if (parser.getSkipped() > 0) {
+            Log.warn("日历文件 {} 中有 {} 个事件格式不正确或使用了不支持的重复规则，已跳过", file.getFileName(), parser.getSkipped());
+        }
+        Log.info("日历已更新（{} 毫秒）: {}", TimeUnit.NANOSECONDS.toMillis(nanos), summary);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+}
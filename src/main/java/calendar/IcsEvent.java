@@ -0,0 +1,88 @@
+package calendar;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+/**
+ * 从.ics文件中解析出的一个忙碌事件（VEVENT），对象不可变。
+ * 开始时间保存为本地时间加时区，重复事件按本地时间展开；不重复的事件只有一次发生。
+ */
+public final class IcsEvent {
+    private final String uid;
+    private final String summary;
+    private final LocalDateTime start;
+    private final ZoneId zone;
+    private final long durationMillis;
+    private final RecurrenceRule rule;    // 不重复时为null
+    private final long[] excludedStarts;  // EXDATE，已排序
+    private final long recurrenceId;      // 修改重复事件中某一次的事件（RECURRENCE-ID），否则为Long.MIN_VALUE
+
+    public IcsEvent(String uid, String summary, LocalDateTime start, ZoneId zone, long durationMillis,
+                    RecurrenceRule rule, long[] excludedStarts, long recurrenceId) {
+        if (durationMillis <= 0) throw new IllegalArgumentException("事件时长必须大于0: " + uid);
+        this.uid = uid;
+        this.summary = summary;
+        this.start = start;
+        this.zone = zone;
+        this.durationMillis = durationMillis;
+        this.rule = rule;
+        this.excludedStarts = excludedStarts.clone();
+        Arrays.sort(this.excludedStarts);
+        this.recurrenceId = recurrenceId;
+    }
+
+    public String getUid() { return uid; }
+    public String getSummary() { return summary; }
+    public long getDurationMillis() { return durationMillis; }
+    public boolean isRecurring() { return rule != null; }
+    public boolean isOverride() { return recurrenceId != Long.MIN_VALUE; }
+    public long getRecurrenceId() { return recurrenceId; }
+
+    /**
+     * 在原事件的基础上再排除一些发生（被单独修改过的那几次）
+     */
+    IcsEvent withExcluded(long[] more) {
+        if (more.length == 0) return this;
+        long[] merged = Arrays.copyOf(excludedStarts, excludedStarts.length + more.length);
+        System.arraycopy(more, 0, merged, excludedStarts.length, more.length);
+        return new IcsEvent(uid, summary, start, zone, durationMillis, rule, merged, recurrenceId);
+    }
+
+    /**
+     * 对每个与[fromMillis, toMillis)重叠的发生调用consumer，参数为开始时间毫秒
+     */
+    public void occurrences(long fromMillis, long toMillis, LongConsumer consumer) {
+        if (rule == null) {
+            long startMillis = start.atZone(zone).toInstant().toEpochMilli();
+            if (startMillis < toMillis && startMillis + durationMillis > fromMillis) consumer.accept(startMillis);
+            return;
+        }
+        rule.expand(start, zone, durationMillis, fromMillis, toMillis, occurrence -> {
+            if (Arrays.binarySearch(excludedStarts, occurrence) < 0) consumer.accept(occurrence);
+        });
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IcsEvent)) return false;
+        IcsEvent other = (IcsEvent) o;
+        return durationMillis == other.durationMillis && recurrenceId == other.recurrenceId
+                && uid.equals(other.uid) && Objects.equals(summary, other.summary)
+                && start.equals(other.start) && zone.equals(other.zone)
+                && Objects.equals(rule, other.rule) && Arrays.equals(excludedStarts, other.excludedStarts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(uid, start, durationMillis, recurrenceId);
+    }
+
+    @Override
+    public String toString() {
+        return (summary != null ? summary : uid) + " " + start + " " + zone;
+    }
+}
@@ -0,0 +1,242 @@
+package calendar;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 流式读取iCalendar（.ics）文件：逐行读取并展开折行，每读完一个VEVENT就交给consumer，
+ * 整个文件不会一次读入内存，几万个事件的导出文件也只占用一个事件的解析状态。
+ *
+ * 只读取判断忙碌时段需要的属性：UID、SUMMARY、DTSTART、DTEND/DURATION、RRULE、EXDATE、RECURRENCE-ID，
+ * 透明（TRANSP:TRANSPARENT）和已取消（STATUS:CANCELLED）的事件不算忙碌，直接跳过。
+ * 时区取TZID参数（Java不认识的时区名按系统时区处理），带Z后缀为UTC，其余为系统时区的本地时间。
+ */
+public final class IcsParser {
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private final ZoneId defaultZone;
+    private int skipped;
+
+    public IcsParser(ZoneId defaultZone) {
+        this.defaultZone = defaultZone;
+    }
+
+    /**
+     * 解析结果中被跳过的事件数（格式不正确或使用了不支持的重复规则）
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * 读取全部事件，每个忙碌事件调用一次consumer
+     * @return 交给consumer的事件数
+     */
+    public int parse(Reader reader, Consumer<IcsEvent> consumer) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        EventBuilder event = null;
+        int nested = 0; // VEVENT中嵌套的VALARM等组件
+        int count = 0;
+        StringBuilder line = new StringBuilder();
+        String next = in.readLine();
+        while (next != null) {
+            // 以空格或制表符开头的行是上一行的延续
+            line.setLength(0);
+            line.append(next);
+            while ((next = in.readLine()) != null && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+                line.append(next, 1, next.length());
+            }
+            ContentLine content = ContentLine.parse(line);
+            if (content == null) continue;
+
+            if (content.name.equals("BEGIN")) {
+                if (event != null) {
+                    nested++;
+                } else if (content.value.equalsIgnoreCase("VEVENT")) {
+                    event = new EventBuilder();
+                }
+            } else if (content.name.equals("END")) {
+                if (event != null && nested > 0) {
+                    nested--;
+                } else if (event != null && content.value.equalsIgnoreCase("VEVENT")) {
+                    IcsEvent built = build(event);
+                    event = null;
+                    if (built != null) {
+                        consumer.accept(built);
+                        count++;
+                    }
+                }
+            } else if (event != null && nested == 0) {
+                event.properties.add(content);
+            }
+        }
+        return count;
+    }
+
+    // 事件不算忙碌时返回null，格式不正确时计入skipped并返回null
+    private IcsEvent build(EventBuilder builder) {
+        try {
+            String uid = null;
+            String summary = null;
+            ContentLine start = null;
+            ContentLine end = null;
+            String duration = null;
+            String rule = null;
+            ContentLine recurrenceId = null;
+            List<ContentLine> excluded = new ArrayList<>();
+            for (ContentLine p : builder.properties) {
+                switch (p.name) {
+                    case "UID": uid = p.value; break;
+                    case "SUMMARY": summary = p.value; break;
+                    case "DTSTART": start = p; break;
+                    case "DTEND": end = p; break;
+                    case "DURATION": duration = p.value; break;
+                    case "RRULE": rule = p.value; break;
+                    case "EXDATE": excluded.add(p); break;
+                    case "RECURRENCE-ID": recurrenceId = p; break;
+                    case "TRANSP":
+                        if (p.value.equalsIgnoreCase("TRANSPARENT")) return null;
+                        break;
+                    case "STATUS":
+                        if (p.value.equalsIgnoreCase("CANCELLED")) return null;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (start == null) throw new IllegalArgumentException("缺少DTSTART");
+            ZoneId zone = zoneOf(start);
+            boolean allDay = start.isDate();
+            LocalDateTime startLocal = parseLocal(start.value, allDay);
+            long startMillis = startLocal.atZone(zone).toInstant().toEpochMilli();
+
+            long durationMillis;
+            if (end != null) {
+                durationMillis = parseDateTime(end.value, zoneOf(end), end.isDate()) - startMillis;
+            } else if (duration != null) {
+                durationMillis = parseDuration(duration);
+            } else {
+                // 没有结束时间：全天事件持续一天，其他事件没有时长，不算忙碌
+                if (!allDay) return null;
+                durationMillis = startLocal.plusDays(1).atZone(zone).toInstant().toEpochMilli() - startMillis;
+            }
+            if (durationMillis <= 0) return null;
+
+            List<Long> excludedStarts = new ArrayList<>();
+            for (ContentLine p : excluded) {
+                ZoneId exZone = zoneOf(p);
+                for (String v : p.value.split(",")) {
+                    // 全天事件的EXDATE只有日期，按事件的开始时刻排除
+                    excludedStarts.add(p.isDate() || v.length() == 8
+                            ? LocalDate.parse(v, DATE).atTime(startLocal.toLocalTime()).atZone(zone).toInstant().toEpochMilli()
+                            : parseDateTime(v, exZone, false));
+                }
+            }
+            return new IcsEvent(uid != null ? uid : "event@" + startMillis, summary, startLocal, zone, durationMillis,
+                    rule != null ? RecurrenceRule.parse(rule, zone) : null,
+                    excludedStarts.stream().mapToLong(Long::longValue).toArray(),
+                    recurrenceId != null ? parseDateTime(recurrenceId.value, zoneOf(recurrenceId), recurrenceId.isDate()) : Long.MIN_VALUE);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            skipped++;
+            return null;
+        }
+    }
+
+    private ZoneId zoneOf(ContentLine p) {
+        if (p.value.endsWith("Z")) return ZoneOffset.UTC;
+        String tzid = p.param("TZID");
+        if (tzid == null) return defaultZone;
+        try {
+            return ZoneId.of(tzid);
+        } catch (DateTimeException e) {
+            return defaultZone;
+        }
+    }
+
+    private static LocalDateTime parseLocal(String value, boolean date) {
+        if (date || value.length() == 8) return LocalDate.parse(value, DATE).atStartOfDay();
+        return LocalDateTime.parse(value.endsWith("Z") ? value.substring(0, value.length() - 1) : value, DATE_TIME);
+    }
+
+    /**
+     * 解析日期或日期时间为毫秒，带Z后缀的按UTC，否则按zone
+     */
+    static long parseDateTime(String value, ZoneId zone, boolean date) {
+        ZoneId effective = value.endsWith("Z") ? ZoneOffset.UTC : zone;
+        return parseLocal(value, date).atZone(effective).toInstant().toEpochMilli();
+    }
+
+    // 例如 PT1H30M、P1D、P2W
+    private static long parseDuration(String value) {
+        String v = value.startsWith("+") ? value.substring(1) : value;
+        int w = v.indexOf('W');
+        if (w > 0) return Duration.ofDays(7L * Integer.parseInt(v.substring(1, w))).toMillis();
+        return Duration.parse(v).toMillis();
+    }
+
+    private static final class EventBuilder {
+        final List<ContentLine> properties = new ArrayList<>();
+    }
+
+    /**
+     * 一行内容：名称、参数和值，例如 DTSTART;TZID=Asia/Shanghai:20260901T080000
+     */
+    private static final class ContentLine {
+        final String name;
+        final String params; // 分号分隔的参数，可为空字符串
+        final String value;
+
+        ContentLine(String name, String params, String value) {
+            this.name = name;
+            this.params = params;
+            this.value = value;
+        }
+
+        static ContentLine parse(CharSequence line) {
+            // 值之前的冒号可能出现在带引号的参数中
+            boolean quoted = false;
+            int nameEnd = -1;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (!quoted && c == ';' && nameEnd < 0) {
+                    nameEnd = i;
+                } else if (!quoted && c == ':') {
+                    if (nameEnd < 0) nameEnd = i;
+                    String text = line.toString();
+                    return new ContentLine(text.substring(0, nameEnd).trim().toUpperCase(),
+                            nameEnd < i ? text.substring(nameEnd + 1, i) : "", text.substring(i + 1).trim());
+                }
+            }
+            return null;
+        }
+
+        String param(String key) {
+            for (String param : params.split(";")) {
+                int eq = param.indexOf('=');
+                if (eq > 0 && param.substring(0, eq).equalsIgnoreCase(key)) {
+                    String v = param.substring(eq + 1);
+                    return v.startsWith("\"") && v.endsWith("\"") && v.length() >= 2 ? v.substring(1, v.length() - 1) : v;
+                }
+            }
+            return null;
+        }
+
+        boolean isDate() {
+            return "DATE".equalsIgnoreCase(param("VALUE"));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package calendar;
+
+import java.util.SplittableRandom;
+
+/**
+ * 区间树：半开区间[start, end)（毫秒）按开始时间排序存放在一棵treap中，每个节点记录子树中最大的结束时间，
+ * 插入、删除和重叠查询的期望复杂度都是O(log n)。
+ *
+ * 开始时间相同的区间用id区分，删除时需要提供插入时的开始时间和id。非线程安全，由CalendarIndex加锁访问。
+ */
+public class IntervalTree {
+    private static final class Node {
+        final long start;
+        final long end;
+        final long id;
+        final int priority;
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(long start, long end, long id, int priority) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+    private Node root;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 插入区间，end必须大于start
+     */
+    public void insert(long start, long end, long id) {
+        if (end <= start) throw new IllegalArgumentException("区间为空: [" + start + ", " + end + ")");
+        root = insert(root, new Node(start, end, id, random.nextInt()));
+        size++;
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) return added;
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * 删除区间
+     * @return 是否找到并删除
+     */
+    public boolean remove(long start, long id) {
+        int before = size;
+        root = remove(root, start, id);
+        return size < before;
+    }
+
+    private Node remove(Node node, long start, long id) {
+        if (node == null) return null;
+        int c = compare(start, id, node);
+        if (c < 0) {
+            node.left = remove(node.left, start, id);
+        } else if (c > 0) {
+            node.right = remove(node.right, start, id);
+        } else {
+            size--;
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    // 合并两棵子树（left中的键都小于right），优先级高的作为根
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    /**
+     * 与[from, to)重叠的区间中开始时间最早的一个的开始时间，没有时返回Long.MIN_VALUE
+     */
+    public long firstOverlapStart(long from, long to) {
+        Node node = firstOverlap(from, to);
+        return node == null ? Long.MIN_VALUE : node.start;
+    }
+
+    /**
+     * 与[from, to)重叠的区间中开始时间最早的一个的结束时间，没有时返回Long.MIN_VALUE
+     */
+    public long firstOverlapEnd(long from, long to) {
+        Node node = firstOverlap(from, to);
+        return node == null ? Long.MIN_VALUE : node.end;
+    }
+
+    // 左子树中有结束时间晚于from的区间时，若当前节点开始于to之前，左子树中一定有重叠的区间，答案在左边；
+    // 否则检查当前节点，再去右子树。每层只走一个分支
+    private Node firstOverlap(long from, long to) {
+        Node node = root;
+        while (node != null) {
+            if (node.left != null && node.left.maxEnd > from) {
+                node = node.left;
+            } else if (node.start >= to) {
+                return null;
+            } else if (node.end > from) {
+                return node;
+            } else {
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    private static int compare(long start, long id, Node node) {
+        int c = Long.compare(start, node.start);
+        return c != 0 ? c : Long.compare(id, node.id);
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        long max = node.end;
+        if (node.left != null && node.left.maxEnd > max) max = node.left.maxEnd;
+        if (node.right != null && node.right.maxEnd > max) max = node.right.maxEnd;
+        node.maxEnd = max;
+    }
+}
@@ -0,0 +1,246 @@
+package calendar;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+/**
+ * iCalendar的重复规则（RRULE），支持 FREQ=DAILY/WEEKLY/MONTHLY/YEARLY、INTERVAL、COUNT、UNTIL，
+ * 以及 BYDAY（WEEKLY和DAILY为星期几，MONTHLY可以带序号，例如 2MO、-1FR）和 BYMONTHDAY（MONTHLY）。
+ * 其他规则部分不支持，解析时抛出IllegalArgumentException。
+ *
+ * 展开是惰性的：只生成落在查询窗口内的发生时间。没有COUNT时直接跳到窗口所在的周期，
+ * 多年前开始的每日/每周重复事件不需要从头逐个展开。
+ */
+public final class RecurrenceRule {
+    public enum Frequency { DAILY, WEEKLY, MONTHLY, YEARLY }
+
+    // 防止错误的规则无限展开
+    private static final int MAX_EMPTY_PERIODS = 1000;
+
+    private final Frequency frequency;
+    private final int interval;
+    private final int count;          // 0表示不限
+    private final long untilMillis;   // Long.MAX_VALUE表示不限
+    private final DayOfWeek[] byDay;  // 可为空数组
+    private final int[] byDayOrdinal; // 与byDay对应，0表示不带序号
+    private final int[] byMonthDay;
+
+    private RecurrenceRule(Frequency frequency, int interval, int count, long untilMillis,
+                           DayOfWeek[] byDay, int[] byDayOrdinal, int[] byMonthDay) {
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.untilMillis = untilMillis;
+        this.byDay = byDay;
+        this.byDayOrdinal = byDayOrdinal;
+        this.byMonthDay = byMonthDay;
+    }
+
+    /**
+     * 解析RRULE的值，例如 FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;UNTIL=20261231T235959Z
+     * @param zone 没有Z后缀的UNTIL所在的时区
+     * @throws IllegalArgumentException 格式不正确或包含不支持的部分
+     */
+    public static RecurrenceRule parse(String value, ZoneId zone) {
+        Frequency frequency = null;
+        int interval = 1;
+        int count = 0;
+        long until = Long.MAX_VALUE;
+        List<DayOfWeek> days = new ArrayList<>();
+        List<Integer> ordinals = new ArrayList<>();
+        int[] monthDays = new int[0];
+        for (String part : value.split(";")) {
+            if (part.isEmpty()) continue;
+            int eq = part.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("重复规则格式不正确: " + value);
+            String key = part.substring(0, eq).toUpperCase();
+            String v = part.substring(eq + 1);
+            switch (key) {
+                case "FREQ":
+                    frequency = Frequency.valueOf(v.toUpperCase());
+                    break;
+                case "INTERVAL":
+                    interval = Integer.parseInt(v);
+                    if (interval <= 0) throw new IllegalArgumentException("INTERVAL必须大于0");
+                    break;
+                case "COUNT":
+                    count = Integer.parseInt(v);
+                    if (count <= 0) throw new IllegalArgumentException("COUNT必须大于0");
+                    break;
+                case "UNTIL":
+                    until = IcsParser.parseDateTime(v, zone, false);
+                    break;
+                case "BYDAY":
+                    for (String day : v.split(",")) {
+                        int split = day.length() - 2;
+                        if (split < 0) throw new IllegalArgumentException("BYDAY不正确: " + v);
+                        ordinals.add(split == 0 ? 0 : Integer.parseInt(day.substring(0, split).replace("+", "")));
+                        days.add(weekday(day.substring(split)));
+                    }
+                    break;
+                case "BYMONTHDAY":
+                    monthDays = Arrays.stream(v.split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "WKST":
+                    break; // 只影响INTERVAL>1且BYDAY跨周起始日的少见情况，按周一开始计算
+                default:
+                    throw new IllegalArgumentException("不支持的重复规则: " + key);
+            }
+        }
+        if (frequency == null) throw new IllegalArgumentException("重复规则缺少FREQ");
+        if (frequency == Frequency.YEARLY && (!days.isEmpty() || monthDays.length > 0)) {
+            throw new IllegalArgumentException("不支持YEARLY的BYDAY/BYMONTHDAY");
+        }
+        if (frequency != Frequency.MONTHLY && (monthDays.length > 0 || ordinals.stream().anyMatch(o -> o != 0))) {
+            throw new IllegalArgumentException("只有MONTHLY支持BYMONTHDAY和带序号的BYDAY");
+        }
+        return new RecurrenceRule(frequency, interval, count, until, days.toArray(new DayOfWeek[0]),
+                ordinals.stream().mapToInt(Integer::intValue).toArray(), monthDays);
+    }
+
+    private static DayOfWeek weekday(String code) {
+        switch (code.toUpperCase()) {
+            case "MO": return DayOfWeek.MONDAY;
+            case "TU": return DayOfWeek.TUESDAY;
+            case "WE": return DayOfWeek.WEDNESDAY;
+            case "TH": return DayOfWeek.THURSDAY;
+            case "FR": return DayOfWeek.FRIDAY;
+            case "SA": return DayOfWeek.SATURDAY;
+            case "SU": return DayOfWeek.SUNDAY;
+            default: throw new IllegalArgumentException("未知的星期: " + code);
+        }
+    }
+
+    /**
+     * 把开始时间为start（zone中的本地时间）的事件展开，对每个与[fromMillis, toMillis)重叠的发生调用consumer（参数为开始时间毫秒）。
+     * 发生时间按本地时间计算，夏令时切换前后的每周会议保持同一个钟点
+     */
+    public void expand(LocalDateTime start, ZoneId zone, long durationMillis, long fromMillis, long toMillis,
+                       LongConsumer consumer) {
+        LocalDate firstDate = start.toLocalDate();
+        long produced = 0;
+        long period = 0;
+        // 没有COUNT时跳到查询窗口之前的周期（多退一个周期，覆盖跨周期的长事件）
+        if (count == 0) {
+            LocalDate fromDate = LocalDateTime.ofEpochSecond(Math.floorDiv(fromMillis - durationMillis, 1000), 0, ZoneOffset.UTC)
+                    .toLocalDate().minusDays(1);
+            long periods = unit().between(periodStart(firstDate), periodStart(fromDate));
+            if (periods > interval) period = (periods / interval - 1) * interval;
+        }
+        int empty = 0;
+        List<LocalDate> dates = new ArrayList<>();
+        while (true) {
+            LocalDate base = periodStart(firstDate).plus(period, unit());
+            dates.clear();
+            candidates(base, firstDate, dates);
+            boolean any = false;
+            for (LocalDate date : dates) {
+                if (date.isBefore(firstDate)) continue;
+                long occurrence = start.with(date).atZone(zone).toInstant().toEpochMilli();
+                if (occurrence > untilMillis) return;
+                if (count > 0 && produced >= count) return;
+                produced++;
+                any = true;
+                if (occurrence >= toMillis) return;
+                if (occurrence + durationMillis > fromMillis) consumer.accept(occurrence);
+            }
+            // 例如每月31日的规则会有没有发生的月份，连续太多空周期说明规则不会再发生
+            empty = any ? 0 : empty + 1;
+            if (empty > MAX_EMPTY_PERIODS) return;
+            period += interval;
+        }
+    }
+
+    private ChronoUnit unit() {
+        switch (frequency) {
+            case DAILY: return ChronoUnit.DAYS;
+            case WEEKLY: return ChronoUnit.WEEKS;
+            case MONTHLY: return ChronoUnit.MONTHS;
+            default: return ChronoUnit.YEARS;
+        }
+    }
+
+    // 日期所在周期的第一天（周从周一开始）
+    private LocalDate periodStart(LocalDate date) {
+        switch (frequency) {
+            case DAILY: return date;
+            case WEEKLY: return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY: return date.withDayOfMonth(1);
+            default: return date.withDayOfYear(1);
+        }
+    }
+
+    // 一个周期内按日期顺序排列的候选日期
+    private void candidates(LocalDate base, LocalDate first, List<LocalDate> out) {
+        switch (frequency) {
+            case DAILY:
+                if (byDay.length == 0 || Arrays.asList(byDay).contains(base.getDayOfWeek())) out.add(base);
+                return;
+            case WEEKLY:
+                if (byDay.length == 0) {
+                    out.add(base.with(TemporalAdjusters.nextOrSame(first.getDayOfWeek())));
+                } else {
+                    for (DayOfWeek day : DayOfWeek.values()) {
+                        if (Arrays.asList(byDay).contains(day)) out.add(base.with(TemporalAdjusters.nextOrSame(day)));
+                    }
+                }
+                return;
+            case MONTHLY:
+                if (byMonthDay.length > 0) {
+                    for (int day : byMonthDay) {
+                        int resolved = day > 0 ? day : base.lengthOfMonth() + day + 1;
+                        if (resolved >= 1 && resolved <= base.lengthOfMonth()) out.add(base.withDayOfMonth(resolved));
+                    }
+                } else if (byDay.length > 0) {
+                    for (int i = 0; i < byDay.length; i++) monthlyByDay(base, byDay[i], byDayOrdinal[i], out);
+                } else if (first.getDayOfMonth() <= base.lengthOfMonth()) {
+                    out.add(base.withDayOfMonth(first.getDayOfMonth()));
+                }
+                out.sort(null);
+                return;
+            default:
+                // 2月29日开始的每年事件只在闰年发生
+                if (first.getDayOfMonth() <= base.withMonth(first.getMonthValue()).lengthOfMonth()) {
+                    out.add(base.withMonth(first.getMonthValue()).withDayOfMonth(first.getDayOfMonth()));
+                }
+        }
+    }
+
+    private static void monthlyByDay(LocalDate month, DayOfWeek day, int ordinal, List<LocalDate> out) {
+        if (ordinal == 0) {
+            for (LocalDate d = month.with(TemporalAdjusters.firstInMonth(day)); d.getMonth() == month.getMonth(); d = d.plusWeeks(1)) {
+                out.add(d);
+            }
+        } else {
+            LocalDate d = ordinal > 0
+                    ? month.with(TemporalAdjusters.dayOfWeekInMonth(ordinal, day))
+                    : month.with(TemporalAdjusters.lastInMonth(day)).plusWeeks(ordinal + 1);
+            if (d.getMonth() == month.getMonth()) out.add(d);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RecurrenceRule)) return false;
+        RecurrenceRule other = (RecurrenceRule) o;
+        return frequency == other.frequency && interval == other.interval && count == other.count
+                && untilMillis == other.untilMillis && Arrays.equals(byDay, other.byDay)
+                && Arrays.equals(byDayOrdinal, other.byDayOrdinal) && Arrays.equals(byMonthDay, other.byMonthDay);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(frequency, interval, count, untilMillis, Arrays.hashCode(byDay), Arrays.hashCode(byMonthDay));
+    }
+}
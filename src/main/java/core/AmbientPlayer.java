@@ -0,0 +1,362 @@
+package core;
+
+import log.Log;
+import metrics.Metrics;
+
+import javax.sound.sampled.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 长休息背景音（雨声、白噪音等）：以流式方式播放本地音频文件，文件可以有几百MB。
+ *
+ * 解码线程把文件解码为16位PCM，写入固定大小的环形缓冲区；输出线程从环形缓冲区取数据，
+ * 在样本上乘以音量（音量变化和开始/停止都按样本平滑过渡，不会有爆音），再写入SourceDataLine。
+ * 内存占用只有环形缓冲区、线路缓冲区和交叉淡化缓冲区，与文件长度无关；稳定播放时不分配对象。
+ *
+ * 循环播放时，文件结尾一段与下一遍的开头一段做等功率交叉淡化，听不出接缝（文件长度未知时直接首尾相接）。
+ * 线路缓冲区由声卡驱动在本地线程中消费，Java线程因GC等原因短暂停顿时声音不会中断；
+ * 环形缓冲区再吸收磁盘读取和解码的抖动。
+ */
+public class AmbientPlayer {
+    // 环形缓冲区时长（毫秒）：吸收磁盘读取和解码的停顿
+    private static final int RING_MILLIS = 2000;
+    // 线路缓冲区时长（毫秒）：需要大于最长的GC停顿
+    private static final int LINE_BUFFER_MILLIS = 500;
+    // 每次读写的块大小（毫秒）
+    private static final int CHUNK_MILLIS = 20;
+    // 循环接缝处的交叉淡化时长（毫秒）
+    private static final int CROSSFADE_MILLIS = 1500;
+    // 开始、停止和音量变化的过渡时长（毫秒）
+    private static final int FADE_MILLIS = 300;
+    private static final LongAdder UNDERRUNS = Metrics.counter("ambient.underruns");
+
+    private volatile float volume = 1.0f;
+    private Playback current; // 由this保护
+
+    // 统计计数（所有播放累计）
+    private final AtomicLong loopCount = new AtomicLong();
+    private final AtomicLong underrunCount = new AtomicLong();
+
+    /**
+     * 检查文件能否作为背景音播放
+     * @return 文件的音频格式
+     * @throws IOException 文件无法读取或格式不支持
+     */
+    public static AudioFormat probe(Path file) throws IOException {
+        try {
+            AudioFormat format = AudioSystem.getAudioFileFormat(file.toFile()).getFormat();
+            if (!AudioSystem.isConversionSupported(pcmFormat(format), format) && !isPcm16(format)) {
+                throw new IOException("无法把 " + format.getEncoding() + " 转换为PCM");
+            }
+            return format;
+        } catch (UnsupportedAudioFileException e) {
+            throw new IOException("不支持的音频格式: " + file.getFileName(), e);
+        }
+    }
+
+    /**
+     * 开始循环播放，已有背景音时先淡出旧的。立即返回，文件和音频线路在解码线程中打开
+     */
+    public synchronized void start(Path file) {
+        if (current != null) current.stop();
+        current = new Playback(file);
+        current.decoder.start();
+        Log.info("背景音开始播放: {}", file.getFileName());
+    }
+
+    /**
+     * 淡出并停止播放，立即返回
+     */
+    public synchronized void stop() {
+        if (current == null) return;
+        current.stop();
+        current = null;
+        Log.info("{}", toString());
+    }
+
+    public synchronized boolean isPlaying() {
+        return current != null;
+    }
+
+    /**
+     * 设置音量（0.0到1.0），正在播放时平滑过渡到新音量
+     */
+    public void setVolume(float newVolume) {
+        volume = Math.max(0.0f, Math.min(1.0f, newVolume));
+    }
+
+    public float getVolume() {
+        return volume;
+    }
+
+    // 统计信息
+    public long getLoopCount() { return loopCount.get(); }
+    public long getUnderrunCount() { return underrunCount.get(); }
+
+    /**
+     * 环形缓冲区中已解码、尚未写入线路的数据时长（毫秒）
+     */
+    public synchronized long getBufferedMillis() {
+        return current == null ? 0 : current.bufferedMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "背景音统计: 循环=" + getLoopCount() + ", 断音=" + getUnderrunCount()
+                + ", 缓冲=" + getBufferedMillis() + "ms";
+    }
+
+    // 样本处理使用的格式：16位有符号小端PCM，采样率和声道数与源文件相同
+    private static AudioFormat pcmFormat(AudioFormat source) {
+        return new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+                source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+    }
+
+    private static boolean isPcm16(AudioFormat format) {
+        return format.getEncoding() == AudioFormat.Encoding.PCM_SIGNED
+                && format.getSampleSizeInBits() == 16 && !format.isBigEndian();
+    }
+
+    /**
+     * 一次播放：一个解码线程、一个输出线程和它们之间的环形缓冲区
+     */
+    private final class Playback {
+        final Path file;
+        final Thread decoder;
+        volatile boolean stopping = false;
+        volatile ByteRing ring;
+        volatile AudioFormat format;
+
+        Playback(Path file) {
+            this.file = file;
+            this.decoder = new Thread(this::decode, "ambient-decoder");
+            decoder.setDaemon(true);
+        }
+
+        void stop() {
+            stopping = true;
+            ByteRing ring = this.ring;
+            // 输出线程尚未启动时直接结束解码线程，否则由输出线程淡出后关闭
+            if (ring == null) decoder.interrupt();
+        }
+
+        long bufferedMillis() {
+            ByteRing ring = this.ring;
+            AudioFormat format = this.format;
+            if (ring == null || format == null) return 0;
+            return (long) (ring.size() / (format.getFrameSize() * format.getFrameRate() / 1000));
+        }
+
+        private AudioInputStream open() throws IOException, UnsupportedAudioFileException {
+            AudioInputStream source = AudioSystem.getAudioInputStream(file.toFile());
+            return isPcm16(source.getFormat()) ? source
+                    : AudioSystem.getAudioInputStream(pcmFormat(source.getFormat()), source);
+        }
+
+        // 解码线程：打开线路后循环读取文件，写入环形缓冲区
+        private void decode() {
+            SourceDataLine line = null;
+            try (AudioInputStream first = open()) {
+                AudioFormat format = first.getFormat();
+                int frameSize = format.getFrameSize();
+                int bytesPerMilli = (int) Math.ceil(format.getFrameRate() * frameSize / 1000);
+                line = AudioSystem.getSourceDataLine(format);
+                line.open(format, align(LINE_BUFFER_MILLIS * bytesPerMilli, frameSize));
+                this.format = format;
+                this.ring = new ByteRing(align(RING_MILLIS * bytesPerMilli, frameSize));
+                if (stopping) return;
+
+                SourceDataLine output = line;
+                Thread writer = new Thread(() -> play(output, format), "ambient-output");
+                writer.setDaemon(true);
+                writer.setPriority(Thread.MAX_PRIORITY);
+                writer.start();
+                line = null; // 由输出线程关闭
+
+                loop(first, format, bytesPerMilli);
+            } catch (IOException | UnsupportedAudioFileException | LineUnavailableException | IllegalArgumentException e) {
+                Log.warn("背景音无法播放: {}（{}）", file, e.getMessage());
+            } catch (InterruptedException e) {
+                // 停止播放
+            } finally {
+                if (line != null) line.close();
+                // 停止时由输出线程淡出后关闭缓冲区，否则（出错或空文件）让输出线程播完剩余数据后结束
+                ByteRing ring = this.ring;
+                if (ring != null && !stopping) ring.close();
+            }
+        }
+
+        // 循环读取文件：每一遍的结尾留出一段，与下一遍的开头交叉淡化后再写入
+        private void loop(AudioInputStream first, AudioFormat format, int bytesPerMilli)
+                throws IOException, UnsupportedAudioFileException, InterruptedException {
+            int frameSize = format.getFrameSize();
+            byte[] chunk = new byte[align(CHUNK_MILLIS * bytesPerMilli, frameSize)];
+            byte[] tail = new byte[align(CROSSFADE_MILLIS * bytesPerMilli, frameSize)];
+            byte[] head = new byte[tail.length];
+            int tailLength = 0;
+
+            AudioInputStream in = first;
+            while (!stopping) {
+                long total = in.getFrameLength() == AudioSystem.NOT_SPECIFIED ? -1 : in.getFrameLength() * frameSize;
+                // 交叉淡化最多占文件的一半
+                int fade = total < 0 ? 0 : Math.min(tail.length, align(total / 2, frameSize));
+                long position = 0;
+
+                // 上一遍留下的结尾与这一遍的开头混合
+                if (tailLength > 0) {
+                    int headLength = readFully(in, head, Math.min(tailLength, fade));
+                    crossfade(tail, head, headLength, tailLength);
+                    ring.write(tail, 0, tailLength);
+                    position = headLength;
+                    loopCount.incrementAndGet();
+                }
+
+                long bodyEnd = total < 0 ? Long.MAX_VALUE : total - fade;
+                while (!stopping && position < bodyEnd) {
+                    int n = readFully(in, chunk, (int) Math.min(chunk.length, bodyEnd - position));
+                    if (n <= 0) break;
+                    ring.write(chunk, 0, n);
+                    position += n;
+                }
+                tailLength = readFully(in, tail, fade);
+                if (total < 0 && position > 0) loopCount.incrementAndGet();
+                if (in != first) in.close();
+                // 空文件不再循环
+                if (position == 0 && tailLength == 0) break;
+                if (!stopping) in = open();
+            }
+            if (in != first) in.close();
+        }
+
+        // 输出线程：从环形缓冲区取数据，乘以音量后写入线路，停止时淡出
+        private void play(SourceDataLine line, AudioFormat format) {
+            int frameSize = format.getFrameSize();
+            int channels = format.getChannels();
+            byte[] chunk = new byte[align((long) (CHUNK_MILLIS * format.getFrameRate() / 1000) * frameSize, frameSize)];
+            // 每帧增益最多变化的量，使完整的过渡用时FADE_MILLIS
+            float step = 1000f / (FADE_MILLIS * format.getFrameRate());
+            float gain = 0f;
+            boolean started = false;
+            ByteRing ring = this.ring;
+            try {
+                line.start();
+                while (true) {
+                    int n = ring.read(chunk);
+                    if (n < 0) break;
+                    if (started && line.available() >= line.getBufferSize()) {
+                        // 线路缓冲区已经放空，说明解码跟不上
+                        underrunCount.incrementAndGet();
+                        UNDERRUNS.increment();
+                    }
+                    float target = stopping ? 0f : volume;
+                    for (int i = 0; i + frameSize <= n; i += frameSize) {
+                        if (gain < target) gain = Math.min(target, gain + step);
+                        else if (gain > target) gain = Math.max(target, gain - step);
+                        for (int c = 0; c < channels; c++) {
+                            int at = i + c * 2;
+                            int sample = (short) ((chunk[at] & 0xff) | (chunk[at + 1] << 8));
+                            sample = (int) (sample * gain);
+                            chunk[at] = (byte) sample;
+                            chunk[at + 1] = (byte) (sample >> 8);
+                        }
+                    }
+                    line.write(chunk, 0, n);
+                    started = true;
+                    if (stopping && gain == 0f) break;
+                }
+                line.drain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                ring.close();
+                line.close();
+            }
+        }
+    }
+
+    // 等功率交叉淡化：tail淡出、head淡入，结果写回tail；head比tail短时tail剩余部分继续淡出到静音
+    private static void crossfade(byte[] tail, byte[] head, int headLength, int tailLength) {
+        for (int i = 0; i + 1 < tailLength; i += 2) {
+            double t = (double) i / tailLength;
+            double out = Math.cos(t * Math.PI / 2);
+            double in = Math.sin(t * Math.PI / 2);
+            int a = (short) ((tail[i] & 0xff) | (tail[i + 1] << 8));
+            int b = i + 1 < headLength ? (short) ((head[i] & 0xff) | (head[i + 1] << 8)) : 0;
+            int mixed = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, a * out + b * in));
+            tail[i] = (byte) mixed;
+            tail[i + 1] = (byte) (mixed >> 8);
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int n = in.read(buffer, total, length - total);
+            if (n < 0) break;
+            total += n;
+        }
+        return total;
+    }
+
+    private static int align(long bytes, int frameSize) {
+        return (int) Math.max(frameSize, bytes / frameSize * frameSize);
+    }
+
+    /**
+     * 单生产者单消费者的字节环形缓冲区，写满时生产者等待，为空时消费者等待
+     */
+    private static final class ByteRing {
+        private final byte[] data;
+        private int readPos = 0;
+        private int count = 0;
+        private boolean closed = false;
+
+        ByteRing(int capacity) {
+            data = new byte[capacity];
+        }
+
+        synchronized void write(byte[] src, int off, int len) throws InterruptedException {
+            while (len > 0) {
+                while (count == data.length && !closed) wait();
+                if (closed) throw new InterruptedException("环形缓冲区已关闭");
+                int writePos = (readPos + count) % data.length;
+                int n = Math.min(len, Math.min(data.length - count, data.length - writePos));
+                System.arraycopy(src, off, data, writePos, n);
+                count += n;
+                off += n;
+                len -= n;
+                notifyAll();
+            }
+        }
+
+        /**
+         * 读取最多dst.length字节，没有数据时等待
+         * @return 读取的字节数，缓冲区已关闭且为空时返回-1
+         */
+        synchronized int read(byte[] dst) throws InterruptedException {
+            while (count == 0 && !closed) wait();
+            if (count == 0) return -1;
+            int n = Math.min(dst.length, count);
+            int first = Math.min(n, data.length - readPos);
+            System.arraycopy(data, readPos, dst, 0, first);
+            System.arraycopy(data, 0, dst, first, n - first);
+            readPos = (readPos + n) % data.length;
+            count -= n;
+            notifyAll();
+            return n;
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package core;
+
+import log.Log;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.StudyEvents;
+
+import javax.sound.sampled.*;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 音频缓存：每个音频只解码一次（启动预加载或首次使用时），
+ * 解码后的PCM数据在所有播放之间共享，并为每个音频保留少量预先打开的Clip，
+ * 这样提醒触发时可以直接播放，不需要再读文件和打开音频线路。
+ *
+ * 音频按ID查找：先在自带的音效包（SoundPack）中查找，没有时再读取类路径sounds目录下的同名文件。
+ */
+public class AudioCache {
+    // 每个音频保留的预打开Clip数量
+    private static final int POOL_SIZE = 2;
+    private static final LatencyHistogram OPEN_LATENCY = Metrics.histogram("sound.open");
+    private static final LatencyHistogram START_LATENCY = Metrics.histogram("sound.start");
+
+    private final Map<String, CachedSound> sounds = new ConcurrentHashMap<>();
+
+    // 统计计数
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong clipOpenCount = new AtomicLong();
+    private final AtomicLong playCount = new AtomicLong();
+    private final AtomicLong totalStartNanos = new AtomicLong();
+    private volatile long lastStartNanos = 0;
+
+    /**
+     * 已解码的音频：共享的PCM数据和空闲Clip池
+     */
+    private static class CachedSound {
+        final String name;
+        final AudioFormat format;
+        final byte[] pcm;
+        final BlockingQueue<Clip> idleClips = new ArrayBlockingQueue<>(POOL_SIZE);
+
+        CachedSound(String name, AudioFormat format, byte[] pcm) {
+            this.name = name;
+            this.format = format;
+            this.pcm = pcm;
+        }
+    }
+
+    /**
+     * 预加载音频：解码并预先打开Clip，适合在启动时于后台线程调用
+     * @return 是否加载成功
+     */
+    public boolean preload(String soundFileName) {
+        CachedSound sound = get(soundFileName);
+        if (sound == null) return false;
+        while (sound.idleClips.size() < POOL_SIZE) {
+            Clip clip = openClip(sound);
+            if (clip == null || !sound.idleClips.offer(clip)) {
+                if (clip != null) clip.close();
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 取出一个可以直接播放的Clip，播放结束（STOP事件）后会自动归还到池中
+     * @return Clip，音频不存在或无法打开时返回null
+     */
+    public Clip acquire(String soundFileName) {
+        CachedSound sound = get(soundFileName);
+        if (sound == null) return null;
+
+        Clip clip = sound.idleClips.poll();
+        if (clip == null || !clip.isOpen()) {
+            clip = openClip(sound);
+        }
+        return clip;
+    }
+
+    /**
+     * 记录一次从请求播放到Clip开始播放的耗时
+     */
+    public void recordStartLatency(String soundFileName, long nanos) {
+        playCount.incrementAndGet();
+        totalStartNanos.addAndGet(nanos);
+        lastStartNanos = nanos;
+        START_LATENCY.record(nanos);
+        StudyEvents.SoundStart event = new StudyEvents.SoundStart();
+        if (event.isEnabled()) {
+            event.sound = soundFileName;
+            event.latencyNanos = nanos;
+            event.commit();
+        }
+    }
+
+    private CachedSound get(String soundFileName) {
+        CachedSound sound = sounds.get(soundFileName);
+        if (sound != null) {
+            hitCount.incrementAndGet();
+            return sound;
+        }
+        // computeIfAbsent保证并发情况下同一个音频只解码一次
+        sound = sounds.computeIfAbsent(soundFileName, this::decode);
+        return sound;
+    }
+
+    private CachedSound decode(String soundFileName) {
+        // 优先从音效包解码：数据已映射在内存中，不需要打开文件和解析格式
+        SoundPack pack = SoundPack.bundled();
+        SoundPack.Entry entry = pack != null ? pack.entry(soundFileName) : null;
+        if (entry != null) {
+            byte[] pcm = pack.decode(soundFileName);
+            loadCount.incrementAndGet();
+            Log.info("音频已从音效包解码: {}（{} KB -> {} KB）", soundFileName, entry.getLength() / 1024, pcm.length / 1024);
+            return new CachedSound(soundFileName, entry.getFormat(), pcm);
+        }
+
+        URL soundURL = AudioCache.class.getClassLoader().getResource("sounds/" + soundFileName);
+        if (soundURL == null) {
+            Log.warn("音频文件未找到: {}", soundFileName);
+            return null;
+        }
+
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(soundURL)) {
+            AudioFormat format = source.getFormat();
+            AudioInputStream pcmStream = source;
+            // 非PCM格式统一转换为16位有符号PCM，便于复用
+            if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
+                    && format.getEncoding() != AudioFormat.Encoding.PCM_UNSIGNED) {
+                format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+                        format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+                pcmStream = AudioSystem.getAudioInputStream(format, source);
+            }
+            byte[] pcm = pcmStream.readAllBytes();
+            loadCount.incrementAndGet();
+            Log.info("音频已缓存: {}（{} KB）", soundFileName, pcm.length / 1024);
+            return new CachedSound(soundFileName, format, pcm);
+        } catch (UnsupportedAudioFileException | IOException e) {
+            Log.error("无法解码音频 {}: {}", soundFileName, e.getMessage());
+            return null;
+        }
+    }
+
+    private Clip openClip(CachedSound sound) {
+        long startNanos = System.nanoTime();
+        StudyEvents.ClipOpen openEvent = new StudyEvents.ClipOpen();
+        openEvent.begin();
+        try {
+            Clip clip = AudioSystem.getClip();
+            clip.open(sound.format, sound.pcm, 0, sound.pcm.length);
+            OPEN_LATENCY.record(System.nanoTime() - startNanos);
+            if (openEvent.shouldCommit()) {
+                openEvent.sound = sound.name;
+                openEvent.commit();
+            }
+            clip.addLineListener(event -> {
+                if (event.getType() == LineEvent.Type.STOP) {
+                    release(sound, clip);
+                }
+            });
+            clipOpenCount.incrementAndGet();
+            return clip;
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            // 没有音频设备或设备不支持这种格式，提示音不播放，计时不受影响
+            Log.warn("无法打开音频 {}: {}", sound.name, e.getMessage());
+            return null;
+        }
+    }
+
+    private void release(CachedSound sound, Clip clip) {
+        if (!clip.isOpen()) return;
+        clip.setFramePosition(0);
+        // 池已满或已在池中时直接关闭多余的Clip
+        if (sound.idleClips.contains(clip)) return;
+        if (!sound.idleClips.offer(clip)) {
+            clip.close();
+        }
+    }
+
+    /**
+     * 关闭所有已打开的Clip并清空缓存
+     */
+    public void clear() {
+        for (CachedSound sound : sounds.values()) {
+            Clip clip;
+            while ((clip = sound.idleClips.poll()) != null) {
+                clip.close();
+            }
+        }
+        sounds.clear();
+    }
+
+    // 统计信息
+    public long getLoadCount() { return loadCount.get(); }
+    public long getHitCount() { return hitCount.get(); }
+    public long getClipOpenCount() { return clipOpenCount.get(); }
+    public long getPlayCount() { return playCount.get(); }
+    public long getLastStartLatencyMicros() { return lastStartNanos / 1000; }
+
+    public long getAverageStartLatencyMicros() {
+        long plays = playCount.get();
+        return plays == 0 ? 0 : totalStartNanos.get() / plays / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return "音频缓存统计: 加载=" + getLoadCount() + ", 命中=" + getHitCount()
+                + ", 打开Clip=" + getClipOpenCount() + ", 播放=" + getPlayCount()
+                + ", 平均启动延迟=" + getAverageStartLatencyMicros() + "us"
+                + ", 最近启动延迟=" + getLastStartLatencyMicros() + "us";
+    }
+}
@@ -0,0 +1,18 @@
+package core;
+
+/**
+ * 忙碌时段（课程、会议等）的查询，时间为墙上时间毫秒。TimerService在每个截止时间上调用，
+ * 实现需要线程安全，查询应为O(log n)。
+ */
+public interface BusyCalendar {
+
+    /**
+     * 与[fromMillis, toMillis)重叠的忙碌时段中最早的开始时间（可能早于fromMillis），没有时返回-1
+     */
+    long firstBusyStart(long fromMillis, long toMillis);
+
+    /**
+     * 包含timeMillis的忙碌时段的结束时间，首尾相连或重叠的时段合并计算；timeMillis不在忙碌时段内时返回-1
+     */
+    long busyUntil(long timeMillis);
+}
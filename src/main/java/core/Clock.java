@@ -0,0 +1,39 @@
+package core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计时时钟：提供单调时间和延迟任务调度。
+ * TimerService只通过它读取时间和安排截止任务，默认使用共享的TimingWheel。
+ */
+public interface Clock {
+
+    /**
+     * 单调时间（纳秒），只用于计算时间差
+     */
+    long nanoTime();
+
+    /**
+     * 墙上时间（毫秒），只用于和日历等外部时间比较
+     */
+    default long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * 延迟执行一次任务
+     */
+    Task schedule(Runnable task, long delay, TimeUnit unit);
+
+    /**
+     * 按固定频率重复执行任务，直到被取消
+     */
+    Task scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit);
+
+    /**
+     * 已调度任务的句柄
+     */
+    interface Task {
+        boolean cancel();
+    }
+}
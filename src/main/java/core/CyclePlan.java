@@ -0,0 +1,137 @@
+package core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 学习计划：一个学习周期分成若干等长的小段，每段内在[最早, 最晚]偏移之间随机提醒一次并短休息，
+ * 周期结束时长休息。所有时间单位为秒，对象不可变。
+ *
+ * 运行前用compile编译为CycleSchedule，随机偏移在编译时一次性确定。
+ */
+public final class CyclePlan {
+    public static final CyclePlan CLASSIC = new CyclePlan("classic", "90分钟（默认）",
+            90 * 60, 5 * 60, 3 * 60, 5 * 60, 20, 20 * 60, false);
+    public static final CyclePlan POMODORO = new CyclePlan("pomodoro", "番茄钟 25/5",
+            100 * 60, 25 * 60, 25 * 60, 25 * 60, 5 * 60, 15 * 60, false);
+    public static final CyclePlan FIFTY_TWO_SEVENTEEN = new CyclePlan("52-17", "52/17",
+            52 * 60, 0, 0, 0, 0, 17 * 60, false);
+    // 测试模式：60秒一个小段，30-45秒提醒，3段后长休息
+    public static final CyclePlan TEST = new CyclePlan("test", "测试模式",
+            3 * 60, 60, 30, 45, 10, 30, true);
+
+    private static final List<CyclePlan> PRESETS = Arrays.asList(CLASSIC, POMODORO, FIFTY_TWO_SEVENTEEN, TEST);
+
+    private final String id;
+    private final String name;
+    private final int cycleSeconds;
+    private final int blockSeconds;      // 0表示周期内没有提醒
+    private final int reminderMinOffset; // 提醒在小段内的最早偏移
+    private final int reminderMaxOffset; // 提醒在小段内的最晚偏移
+    private final int shortBreakSeconds;
+    private final int longBreakSeconds;
+    private final boolean test;
+
+    public CyclePlan(String id, String name, int cycleSeconds, int blockSeconds, int reminderMinOffset,
+                     int reminderMaxOffset, int shortBreakSeconds, int longBreakSeconds, boolean test) {
+        if (cycleSeconds <= 0) throw new IllegalArgumentException("学习周期必须大于0");
+        if (blockSeconds < 0 || blockSeconds > cycleSeconds) throw new IllegalArgumentException("小段时长必须在0到周期时长之间");
+        if (blockSeconds > 0 && (reminderMinOffset < 0 || reminderMinOffset > reminderMaxOffset || reminderMaxOffset > blockSeconds)) {
+            throw new IllegalArgumentException("提醒偏移必须满足 0 <= 最早 <= 最晚 <= 小段时长");
+        }
+        if (shortBreakSeconds < 0 || (blockSeconds > 0 && shortBreakSeconds == 0) || longBreakSeconds <= 0) throw new IllegalArgumentException("休息时长不正确");
+        this.id = id;
+        this.name = name;
+        this.cycleSeconds = cycleSeconds;
+        this.blockSeconds = blockSeconds;
+        this.reminderMinOffset = reminderMinOffset;
+        this.reminderMaxOffset = reminderMaxOffset;
+        this.shortBreakSeconds = shortBreakSeconds;
+        this.longBreakSeconds = longBreakSeconds;
+        this.test = test;
+    }
+
+    /**
+     * 内置计划
+     */
+    public static List<CyclePlan> presets() {
+        return PRESETS;
+    }
+
+    /**
+     * 按id查找内置计划
+     * @throws IllegalArgumentException 没有这个计划
+     */
+    public static CyclePlan byId(String id) {
+        for (CyclePlan plan : PRESETS) {
+            if (plan.id.equals(id)) return plan;
+        }
+        throw new IllegalArgumentException("未知的学习计划: " + id);
+    }
+
+    /**
+     * 从properties文件加载自定义计划（UTF-8，时间单位为秒），例如：
+     * <pre>
+     * name=我的计划
+     * cycle=3600
+     * block=900
+     * reminderMin=600
+     * reminderMax=900
+     * shortBreak=60
+     * longBreak=900
+     * </pre>
+     * 省略block表示周期内不提醒。
+     */
+    public static CyclePlan load(Path path) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        try {
+            int block = intProperty(props, "block", 0);
+            return new CyclePlan("custom", props.getProperty("name", path.getFileName().toString()),
+                    intProperty(props, "cycle", -1), block,
+                    intProperty(props, "reminderMin", block), intProperty(props, "reminderMax", block),
+                    intProperty(props, "shortBreak", 0), intProperty(props, "longBreak", -1), false);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("学习计划文件不正确: " + path + "（" + e.getMessage() + "）", e);
+        }
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            if (defaultValue < 0) throw new IllegalArgumentException("缺少 " + key);
+            return defaultValue;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * 编译为提醒时间表，随机偏移由种子决定
+     */
+    public CycleSchedule compile(long seed) {
+        return new CycleSchedule(this, seed);
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public int getCycleSeconds() { return cycleSeconds; }
+    public int getBlockSeconds() { return blockSeconds; }
+    public int getReminderMinOffset() { return reminderMinOffset; }
+    public int getReminderMaxOffset() { return reminderMaxOffset; }
+    public int getShortBreakSeconds() { return shortBreakSeconds; }
+    public int getLongBreakSeconds() { return longBreakSeconds; }
+    public boolean isTest() { return test; }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,58 @@
+package core;
+
+import java.util.SplittableRandom;
+
+/**
+ * 编译后的学习计划：预先生成若干个周期的全部提醒时间，存放在一个int数组中，
+ * 第v个版本的第i个小段的提醒时间在 reminders[v * blocks + i]，周期之间轮流使用不同版本。
+ * 运行时只需按下标取下一个提醒时间（指针递增），不再在每次截止时做取模和随机数计算。
+ */
+public final class CycleSchedule {
+    // 预先生成的周期版本数，之后循环使用
+    private static final int VARIANTS = 32;
+
+    private final CyclePlan plan;
+    private final int blocks;
+    private final int[] reminders;
+
+    CycleSchedule(CyclePlan plan, long seed) {
+        this.plan = plan;
+        int block = plan.getBlockSeconds();
+        this.blocks = block == 0 ? 0 : (plan.getCycleSeconds() + block - 1) / block;
+        this.reminders = new int[VARIANTS * blocks];
+        SplittableRandom random = new SplittableRandom(seed);
+        int jitter = plan.getReminderMaxOffset() - plan.getReminderMinOffset() + 1;
+        for (int v = 0; v < VARIANTS; v++) {
+            for (int i = 0; i < blocks; i++) {
+                reminders[v * blocks + i] = i * block + plan.getReminderMinOffset() + random.nextInt(jitter);
+            }
+        }
+    }
+
+    public CyclePlan getPlan() {
+        return plan;
+    }
+
+    public int getCycleSeconds() {
+        return plan.getCycleSeconds();
+    }
+
+    /**
+     * 第cycle个周期中第index个小段的提醒时间（秒，从周期开始计算）；
+     * 没有这个小段，或提醒落在周期结束时（由长休息代替）返回-1
+     */
+    public int reminderAt(int cycle, int index) {
+        if (index < 0 || index >= blocks) return -1;
+        int seconds = reminders[(cycle % VARIANTS) * blocks + index];
+        return seconds < plan.getCycleSeconds() ? seconds : -1;
+    }
+
+    /**
+     * 从已学习时间定位下一个提醒的下标（恢复会话或切换计划时使用）
+     * @param lastTriggeredIndex 本周期已触发的最后一个提醒下标，没有时为-1
+     */
+    public int indexFor(int elapsedSeconds, int lastTriggeredIndex) {
+        if (blocks == 0) return 0;
+        return Math.max(lastTriggeredIndex + 1, elapsedSeconds / plan.getBlockSeconds());
+    }
+}
@@ -0,0 +1,172 @@
+package core;
+
+import log.Log;
+import metrics.Metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无操作检测：学习时定期采样用户活动（鼠标位置、键盘和窗口焦点），超过阈值没有活动时自动暂停，
+ * 并把无操作的这段时间从学习时间中扣除；自动暂停后检测到活动时自动继续学习。
+ *
+ * 采样间隔自适应：刚有过活动时离阈值还远，按剩余时间的一半等待（不超过最长间隔），
+ * 越接近阈值间隔越短（不短于最短间隔）；自动暂停后每5秒采样一次（限制在最短和最长间隔之间），用户回来后几秒内继续。
+ * 只有学习中或自动暂停时才采样，空闲、休息和手动暂停时不安排任何任务。
+ */
+public class IdleMonitor implements StateListener {
+    private static final LongAdder SAMPLES = Metrics.counter("idle.samples");
+    private static final LongAdder AUTO_PAUSES = Metrics.counter("idle.autoPauses");
+    // 自动暂停后等待用户回来的采样间隔
+    private static final long RESUME_POLL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * 活动来源：返回当前活动状态的指纹，两次采样之间用户有操作时指纹会变化
+     */
+    public interface ActivitySource {
+        long sample();
+    }
+
+    private final TimerService timerService;
+    private final StateManager stateManager;
+    private final Clock clock;
+    private final ActivitySource source;
+    private final long minPollNanos;
+    private final long maxPollNanos;
+
+    // 以下字段由this保护；调用TimerService时不持有this，避免与状态监听形成锁顺序问题
+    private long idleThresholdNanos;
+    private Clock.Task task;
+    private long lastFingerprint;
+    private long lastActivityNanos;
+    private boolean autoPaused = false;
+    private long sampleCount = 0;
+
+    /**
+     * @param idleThresholdSeconds 无操作多久后自动暂停，0表示不检测
+     */
+    public IdleMonitor(TimerService timerService, StateManager stateManager, Clock clock, ActivitySource source,
+                       int idleThresholdSeconds, long minPollMillis, long maxPollMillis) {
+        if (minPollMillis <= 0 || maxPollMillis < minPollMillis) throw new IllegalArgumentException("采样间隔不正确");
+        this.timerService = timerService;
+        this.stateManager = stateManager;
+        this.clock = clock;
+        this.source = source;
+        this.idleThresholdNanos = TimeUnit.SECONDS.toNanos(idleThresholdSeconds);
+        this.minPollNanos = TimeUnit.MILLISECONDS.toNanos(minPollMillis);
+        this.maxPollNanos = TimeUnit.MILLISECONDS.toNanos(maxPollMillis);
+    }
+
+    /**
+     * 注册为状态监听器，开始跟随学习状态采样；构造完成后调用一次
+     */
+    public void start() {
+        stateManager.addListener(this);
+    }
+
+    /**
+     * 设置无操作阈值，0表示不检测（已自动暂停的会话保持暂停，由用户手动继续）
+     */
+    public synchronized void setIdleThresholdSeconds(int seconds) {
+        long threshold = TimeUnit.SECONDS.toNanos(Math.max(0, seconds));
+        if (threshold == idleThresholdNanos) return;
+        idleThresholdNanos = threshold;
+        autoPaused = false;
+        reschedule(clock.nanoTime(), stateManager.isStudying());
+    }
+
+    public synchronized int getIdleThresholdSeconds() {
+        return (int) TimeUnit.NANOSECONDS.toSeconds(idleThresholdNanos);
+    }
+
+    @Override
+    public void onStateChanged(LearningState oldState, LearningState newState) {
+        synchronized (this) {
+            long now = clock.nanoTime();
+            if (newState == LearningState.STUDYING) {
+                autoPaused = false;
+                // 手动开始或继续学习说明用户就在电脑前；休息结束是自动恢复的，无操作时间继续累计
+                if (oldState != LearningState.BREAK) {
+                    lastActivityNanos = now;
+                    lastFingerprint = source.sample();
+                }
+            } else if (newState != LearningState.PAUSED) {
+                // 自动暂停后被停止或进入其他状态，不再自动继续
+                autoPaused = false;
+            }
+            reschedule(now, newState == LearningState.STUDYING);
+        }
+    }
+
+    private void poll() {
+        boolean pause = false;
+        boolean resume = false;
+        long idleNanos;
+        synchronized (this) {
+            task = null;
+            sampleCount++;
+            SAMPLES.increment();
+            long now = clock.nanoTime();
+            long fingerprint = source.sample();
+            if (fingerprint != lastFingerprint) {
+                lastFingerprint = fingerprint;
+                lastActivityNanos = now;
+                resume = autoPaused && stateManager.isPaused();
+            }
+            idleNanos = now - lastActivityNanos;
+            if (!autoPaused && idleThresholdNanos > 0 && idleNanos >= idleThresholdNanos && stateManager.isStudying()) {
+                autoPaused = pause = true;
+            }
+        }
+
+        if (pause) {
+            if (timerService.pauseIdle(idleNanos)) {
+                AUTO_PAUSES.increment();
+                Log.info("已 {} 秒无操作，自动暂停学习", TimeUnit.NANOSECONDS.toSeconds(idleNanos));
+            } else {
+                synchronized (this) {
+                    autoPaused = false;
+                }
+            }
+        } else if (resume) {
+            Log.info("检测到操作，自动继续学习");
+            timerService.start();
+        }
+
+        synchronized (this) {
+            if (task == null) reschedule(clock.nanoTime(), stateManager.isStudying());
+        }
+    }
+
+    // 安排下一次采样，不需要检测时取消
+    private void reschedule(long now, boolean studying) {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (idleThresholdNanos <= 0 || !(studying || autoPaused)) return;
+
+        long delay;
+        if (autoPaused) {
+            delay = Math.max(minPollNanos, Math.min(maxPollNanos, RESUME_POLL_NANOS));
+        } else {
+            long remaining = idleThresholdNanos - (now - lastActivityNanos);
+            delay = Math.max(minPollNanos, Math.min(maxPollNanos, remaining / 2));
+        }
+        task = clock.schedule(this::poll, delay, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized long getSampleCount() {
+        return sampleCount;
+    }
+
+    public synchronized boolean isAutoPaused() {
+        return autoPaused;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "无操作检测: 阈值=" + getIdleThresholdSeconds() + "秒, 采样=" + sampleCount
+                + ", 自动暂停=" + (autoPaused ? "是" : "否");
+    }
+}
@@ -0,0 +1,128 @@
+package core;
+
+/**
+ * IMA-ADPCM编解码：每个16位样本压缩为4位。
+ *
+ * 数据按块存放，每块包含samplesPerBlock帧（必须是奇数），块内按声道依次存放：
+ * 4字节块头（第一个样本int16、步长下标uint8、保留uint8），然后是其余samplesPerBlock-1个样本，每字节两个（低4位在前）。
+ * 每块从块头重新开始，误差不会跨块累积，也可以从任意块开始解码。
+ */
+final class ImaAdpcm {
+    private static final int[] INDEX_TABLE = {-1, -1, -1, -1, 2, 4, 6, 8, -1, -1, -1, -1, 2, 4, 6, 8};
+    private static final int[] STEP_TABLE = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+            50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+            337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+            2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+            15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767};
+
+    private ImaAdpcm() {
+    }
+
+    /**
+     * 一块压缩数据的字节数
+     */
+    static int blockBytes(int channels, int samplesPerBlock) {
+        return channels * (4 + (samplesPerBlock - 1) / 2);
+    }
+
+    /**
+     * 压缩后的总字节数
+     */
+    static int encodedBytes(int frames, int channels, int samplesPerBlock) {
+        int blocks = (frames + samplesPerBlock - 1) / samplesPerBlock;
+        return blocks * blockBytes(channels, samplesPerBlock);
+    }
+
+    /**
+     * 压缩交错存放的16位样本，最后一块不足时补0
+     */
+    static byte[] encode(short[] samples, int channels, int samplesPerBlock) {
+        if (samplesPerBlock % 2 == 0) throw new IllegalArgumentException("每块帧数必须是奇数");
+        int frames = samples.length / channels;
+        byte[] out = new byte[encodedBytes(frames, channels, samplesPerBlock)];
+        int[] index = new int[channels]; // 步长下标在块之间延续，块头处直接采用
+        int pos = 0;
+        for (int start = 0; start < frames; start += samplesPerBlock) {
+            for (int c = 0; c < channels; c++) {
+                int predictor = sample(samples, start, c, channels, frames);
+                out[pos] = (byte) predictor;
+                out[pos + 1] = (byte) (predictor >> 8);
+                out[pos + 2] = (byte) index[c];
+                pos += 4;
+                for (int i = 1; i < samplesPerBlock; i += 2) {
+                    int packed = 0;
+                    for (int half = 0; half < 2; half++) {
+                        int diff = sample(samples, start + i + half, c, channels, frames) - predictor;
+                        int step = STEP_TABLE[index[c]];
+                        int nibble = 0;
+                        if (diff < 0) {
+                            nibble = 8;
+                            diff = -diff;
+                        }
+                        if (diff >= step) { nibble |= 4; diff -= step; }
+                        if (diff >= step >> 1) { nibble |= 2; diff -= step >> 1; }
+                        if (diff >= step >> 2) { nibble |= 1; }
+                        predictor = next(predictor, nibble, step);
+                        index[c] = nextIndex(index[c], nibble);
+                        packed |= nibble << (half * 4);
+                    }
+                    out[pos++] = (byte) packed;
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 解码为16位小端交错PCM
+     * @param src    压缩数据，从offset开始
+     * @param frames 要输出的帧数
+     * @param dst    输出，至少frames * channels * 2字节
+     */
+    static void decode(byte[] src, int offset, int channels, int samplesPerBlock, int frames, byte[] dst) {
+        int blockBytes = blockBytes(channels, samplesPerBlock);
+        int base = offset;
+        int frameBytes = channels * 2;
+        for (int block = 0, start = 0; start < frames; block++, start += samplesPerBlock) {
+            int count = Math.min(samplesPerBlock, frames - start);
+            int pos = base + block * blockBytes;
+            for (int c = 0; c < channels; c++) {
+                int predictor = (short) ((src[pos] & 0xff) | (src[pos + 1] << 8));
+                int index = Math.min(STEP_TABLE.length - 1, src[pos + 2] & 0xff);
+                pos += 4;
+                int out = start * frameBytes + c * 2;
+                dst[out] = (byte) predictor;
+                dst[out + 1] = (byte) (predictor >> 8);
+                for (int i = 1; i < count; i++) {
+                    int packed = src[pos + (i - 1) / 2] & 0xff;
+                    int nibble = (i & 1) == 1 ? packed & 0x0f : packed >> 4;
+                    predictor = next(predictor, nibble, STEP_TABLE[index]);
+                    index = nextIndex(index, nibble);
+                    out += frameBytes;
+                    dst[out] = (byte) predictor;
+                    dst[out + 1] = (byte) (predictor >> 8);
+                }
+                pos += (samplesPerBlock - 1) / 2;
+            }
+        }
+    }
+
+    private static int sample(short[] samples, int frame, int channel, int channels, int frames) {
+        return frame < frames ? samples[frame * channels + channel] : 0;
+    }
+
+    // 根据4位编码更新预测值，编码和解码使用完全相同的计算
+    private static int next(int predictor, int nibble, int step) {
+        int delta = step >> 3;
+        if ((nibble & 4) != 0) delta += step;
+        if ((nibble & 2) != 0) delta += step >> 1;
+        if ((nibble & 1) != 0) delta += step >> 2;
+        predictor += (nibble & 8) != 0 ? -delta : delta;
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, predictor));
+    }
+
+    private static int nextIndex(int index, int nibble) {
+        return Math.max(0, Math.min(STEP_TABLE.length - 1, index + INDEX_TABLE[nibble]));
+    }
+}
@@ -0,0 +1,407 @@
+package core;
+
+import log.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * 会话日志：把每次状态切换和提示音以固定长度的二进制记录追加到内存映射文件中，
+ * 程序重启后可以从最后一条有效记录恢复被中断的学习会话。
+ *
+ * 文件格式：16字节文件头（魔数、版本），之后是32字节的记录：
+ * 类型(1) 状态(1) 保留(2) 已学习秒数(4) 已提醒周期(4) 附加值(4) 时间戳毫秒(8) 序号(4) CRC32(4)
+ * 附加值：切换到BREAK时为计划的休息秒数，因无操作切换到PAUSED时为扣除的无操作秒数，其余为0。
+ *
+ * 追加只是把记录放入有界队列，由后台线程写入映射区并定期刷盘，计时线程不会被阻塞。
+ * 崩溃时写了一半的记录校验失败，恢复时会在那里截止。
+ * 恢复和压缩用普通读写完成，不映射文件：Windows上被映射的文件不能改名或替换。
+ */
+public class SessionJournal implements AutoCloseable {
+    public static final byte TYPE_STATE = 1;
+    public static final byte TYPE_REMINDER = 2;
+    public static final byte TYPE_CHECKPOINT = 3;
+
+    private static final int MAGIC = 0x53414A31; // "SAJ1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 32;
+    private static final int CHECKSUM_OFFSET = 28;
+    // 每次映射的区域大小（约3.2万条记录）
+    private static final long REGION_SIZE = RECORD_SIZE * 32 * 1024L;
+    // 超过这个记录数时，启动时压缩：丢弃统计已经不再保留的旧记录
+    private static final long COMPACT_THRESHOLD = 1_000_000;
+    // 压缩时保留的时间范围，比统计的天级汇总多留一天，避免时区差异切掉边界上的一天
+    private static final long RETENTION_MILLIS = (StudyAnalytics.HISTORY_DAYS + 1) * 24 * 3600_000L;
+    // 距上次刷盘超过这个时间就刷盘，持续有新记录时也一样
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    // 恢复和压缩时每次读取的字节数（3.2万条记录）
+    private static final int READ_BUFFER_SIZE = RECORD_SIZE * 32 * 1024;
+    private static final int QUEUE_CAPACITY = 1024;
+
+    // 通知写线程结束的标记记录
+    private static final Record CLOSE_MARKER = new Record((byte) 0, LearningState.IDLE, 0, 0, 0, 0);
+
+    private final Path path;
+    private final LongSupplier currentTimeMillis;
+    private final FileChannel channel;
+    private final BlockingQueue<Record> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private final Record lastRecovered;
+    private final long recoveredEnd;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile boolean closed = false;
+
+    // 以下字段只在写线程上访问
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long writePosition;
+    private int sequence;
+    private final CRC32 crc = new CRC32();
+    private final byte[] recordBytes = new byte[RECORD_SIZE];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * 一条日志记录
+     */
+    public static final class Record {
+        public final byte type;
+        public final LearningState state;
+        public final int elapsedSeconds;
+        public final int lastTriggeredCycle;
+        public final int extra;
+        public final long timestampMillis;
+
+        public Record(byte type, LearningState state, int elapsedSeconds, int lastTriggeredCycle, int extra, long timestampMillis) {
+            this.type = type;
+            this.state = state;
+            this.elapsedSeconds = elapsedSeconds;
+            this.lastTriggeredCycle = lastTriggeredCycle;
+            this.extra = extra;
+            this.timestampMillis = timestampMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Record{type=" + type + ", state=" + state + ", elapsed=" + elapsedSeconds
+                    + ", cycle=" + lastTriggeredCycle + ", extra=" + extra + ", time=" + timestampMillis + "}";
+        }
+    }
+
+    /**
+     * 打开用户目录下的默认日志文件（~/.studyassist/session.journal）
+     */
+    public static SessionJournal openDefault() throws IOException {
+        return new SessionJournal(Paths.get(System.getProperty("user.home"), ".studyassist", "session.journal"));
+    }
+
+    public SessionJournal(Path path) throws IOException {
+        this(path, COMPACT_THRESHOLD, System::currentTimeMillis);
+    }
+
+    /**
+     * @param compactThreshold  打开时记录数超过这个值就压缩
+     * @param currentTimeMillis 记录的时间戳和压缩时的当前时间（UTC毫秒）
+     */
+    SessionJournal(Path path, long compactThreshold, LongSupplier currentTimeMillis) throws IOException {
+        this.path = path;
+        this.currentTimeMillis = currentTimeMillis;
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+
+        RecoveryResult recovery = recover(path);
+        long cutoffMillis = currentTimeMillis.getAsLong() - RETENTION_MILLIS;
+        // 记录按时间顺序追加，第一条都没有过期就没有可以丢弃的
+        if (recovery.recordCount > compactThreshold && recovery.firstTimestampMillis < cutoffMillis) {
+            compact(path, recovery, cutoffMillis);
+            recovery = recover(path);
+        }
+        this.lastRecovered = recovery.last;
+        this.recoveredEnd = recovery.endPosition;
+        this.sequence = recovery.recordCount;
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.writePosition = recovery.endPosition;
+        mapRegion(writePosition);
+        if (writePosition == 0) {
+            writeHeader();
+        }
+
+        this.writer = new Thread(this::runWriter, "session-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        Log.info("会话日志已打开: {}（{} 条记录）", path, recovery.recordCount);
+    }
+
+    /**
+     * 启动时恢复到的最后一条记录，没有记录时返回null
+     */
+    public Record getLastRecord() {
+        return lastRecovered;
+    }
+
+    /**
+     * 按顺序读取打开时已有的全部记录（不包括之后追加的记录），用于启动时重建统计数据
+     */
+    public void forEachRecoveredRecord(Consumer<Record> visitor) throws IOException {
+        if (recoveredEnd <= HEADER_SIZE) return;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 这些记录在恢复时已经校验过，这里直接解码
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, recoveredEnd);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            LearningState[] states = LearningState.values();
+            for (int pos = HEADER_SIZE; pos + RECORD_SIZE <= recoveredEnd; pos += RECORD_SIZE) {
+                visitor.accept(decode(buf, pos, states));
+            }
+        }
+    }
+
+    /**
+     * 追加一条记录，不会阻塞；队列满时丢弃并计数
+     */
+    public void append(byte type, LearningState state, int elapsedSeconds, int lastTriggeredCycle, int extra) {
+        if (closed) return;
+        Record record = new Record(type, state, elapsedSeconds, lastTriggeredCycle, extra, currentTimeMillis.getAsLong());
+        if (!queue.offer(record)) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 写入队列中剩余的记录、刷盘并关闭文件
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            if (queue.offer(CLOSE_MARKER, 1, TimeUnit.SECONDS)) {
+                writer.join(2000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS);
+        long lastForceNanos = System.nanoTime();
+        boolean dirty = false;
+        try {
+            while (true) {
+                // 有未刷盘的记录时最多等到下次该刷盘的时间
+                Record record = dirty
+                        ? queue.poll(lastForceNanos + flushIntervalNanos - System.nanoTime(), TimeUnit.NANOSECONDS)
+                        : queue.take();
+                if (record == CLOSE_MARKER) break;
+                if (record != null) {
+                    write(record);
+                    dirty = true;
+                }
+                // 按上次刷盘的时间判断，持续不断的记录也会定期刷盘
+                long now = System.nanoTime();
+                if (dirty && now - lastForceNanos >= flushIntervalNanos) {
+                    region.force();
+                    lastForceNanos = now;
+                    dirty = false;
+                }
+            }
+            region.force();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Log.error("写入会话日志失败: {}", e.getMessage());
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.error("关闭会话日志失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void write(Record record) throws IOException {
+        if (writePosition + RECORD_SIZE > regionStart + REGION_SIZE) {
+            region.force();
+            mapRegion(writePosition);
+        }
+        encode(record, sequence++);
+        region.put((int) (writePosition - regionStart), recordBytes);
+        writePosition += RECORD_SIZE;
+    }
+
+    private void encode(Record record, int seq) {
+        recordBuffer.clear();
+        recordBuffer.put(record.type);
+        recordBuffer.put((byte) record.state.ordinal());
+        recordBuffer.putShort((short) 0);
+        recordBuffer.putInt(record.elapsedSeconds);
+        recordBuffer.putInt(record.lastTriggeredCycle);
+        recordBuffer.putInt(record.extra);
+        recordBuffer.putLong(record.timestampMillis);
+        recordBuffer.putInt(seq);
+        crc.reset();
+        crc.update(recordBytes, 0, CHECKSUM_OFFSET);
+        recordBuffer.putInt((int) crc.getValue());
+    }
+
+    private void mapRegion(long position) throws IOException {
+        regionStart = position;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+        region.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void writeHeader() {
+        region.putInt(0, MAGIC);
+        region.putInt(4, VERSION);
+        region.force();
+        writePosition = HEADER_SIZE;
+    }
+
+    private static final class RecoveryResult {
+        Record last;
+        int recordCount;
+        long endPosition;
+        long firstTimestampMillis;
+    }
+
+    // 顺序扫描有效记录，遇到全零或校验失败的记录即视为末尾
+    private static RecoveryResult recover(Path path) throws IOException {
+        RecoveryResult result = new RecoveryResult();
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) return result;
+
+        boolean validHeader;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            read(ch, header, 0);
+            validHeader = header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+            if (validHeader) scan(ch, result);
+        }
+        if (!validHeader) {
+            Log.warn("会话日志格式不正确，将重新创建: {}", path);
+            Files.move(path, path.resolveSibling(path.getFileName() + ".bad"), StandardCopyOption.REPLACE_EXISTING);
+            return result;
+        }
+
+        // 清除崩溃时残留的半条记录，保证后续追加从干净的位置开始
+        if (result.endPosition < Files.size(path)) {
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                ch.write(ByteBuffer.allocate(RECORD_SIZE), result.endPosition);
+            }
+        }
+        return result;
+    }
+
+    // 分块读取文件头之后的记录，直接在读缓冲区上校验，不为每条记录复制数据
+    private static void scan(FileChannel ch, RecoveryResult result) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocateDirect(READ_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer view = buf.duplicate();
+        CRC32 crc = new CRC32();
+        LearningState[] states = LearningState.values();
+        long pos = HEADER_SIZE;
+        boolean end = false;
+        while (!end) {
+            int length = read(ch, buf, pos);
+            int offset = 0;
+            int lastValid = -1;
+            while (offset + RECORD_SIZE <= length) {
+                byte type = buf.get(offset);
+                int stateOrdinal = buf.get(offset + 1);
+                if (type == 0 || stateOrdinal < 0 || stateOrdinal >= states.length) break;
+                crc.reset();
+                view.limit(offset + CHECKSUM_OFFSET).position(offset);
+                crc.update(view);
+                if ((int) crc.getValue() != buf.getInt(offset + CHECKSUM_OFFSET)) break;
+                if (result.recordCount == 0) result.firstTimestampMillis = buf.getLong(offset + 16);
+                result.recordCount++;
+                lastValid = offset;
+                offset += RECORD_SIZE;
+            }
+            if (lastValid >= 0) result.last = decode(buf, lastValid, states);
+            pos += offset;
+            // 遇到无效记录或读到了文件末尾
+            end = offset < buf.capacity();
+        }
+        result.endPosition = pos;
+    }
+
+    // 压缩：丢弃早于cutoffMillis的记录（最后一条总是保留，用于恢复会话），重新编号后先写临时文件再原子替换
+    private static void compact(Path path, RecoveryResult recovery, long cutoffMillis) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer out = ByteBuffer.allocate(READ_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] bytes = new byte[RECORD_SIZE];
+        ByteBuffer rec = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        long lastPosition = recovery.endPosition - RECORD_SIZE;
+        int kept = 0;
+
+        try (FileChannel src = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel dst = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.putInt(MAGIC).putInt(VERSION).putLong(0);
+            long pos = HEADER_SIZE;
+            while (pos < recovery.endPosition) {
+                int length = (int) Math.min(read(src, in, pos), recovery.endPosition - pos);
+                for (int offset = 0; offset + RECORD_SIZE <= length; offset += RECORD_SIZE) {
+                    if (in.getLong(offset + 16) < cutoffMillis && pos + offset != lastPosition) continue;
+                    in.get(offset, bytes);
+                    rec.putInt(CHECKSUM_OFFSET - 4, kept++);
+                    crc.reset();
+                    crc.update(bytes, 0, CHECKSUM_OFFSET);
+                    rec.putInt(CHECKSUM_OFFSET, (int) crc.getValue());
+                    if (out.remaining() < RECORD_SIZE) writeOut(dst, out);
+                    out.put(bytes);
+                }
+                pos += length;
+            }
+            writeOut(dst, out);
+            dst.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Log.info("会话日志已压缩: {}（保留 {} 条记录）", path, kept);
+    }
+
+    // 从position开始读满buf或读到文件末尾，返回读到的字节数
+    private static int read(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        buf.clear();
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) break;
+        }
+        return buf.position();
+    }
+
+    // 写出buf中已填入的数据并清空
+    private static void writeOut(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+    }
+
+    private static Record decode(ByteBuffer buf, int pos, LearningState[] states) {
+        return new Record(buf.get(pos), states[buf.get(pos + 1)], buf.getInt(pos + 4),
+                buf.getInt(pos + 8), buf.getInt(pos + 12), buf.getLong(pos + 16));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+}
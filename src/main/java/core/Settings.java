@@ -0,0 +1,89 @@
+package core;
+
+import java.util.Objects;
+
+/**
+ * 用户设置的一个不可变快照：短休息、长休息时长（秒）、音量和测试模式。
+ * 修改时用with方法得到新的快照，整体替换，不会出现只改了一半的设置。
+ */
+public final class Settings {
+    // 从计划接受的休息时长上限（秒）
+    public static final int MAX_BREAK_SECONDS = 24 * 60 * 60;
+    // 用户可设置的休息时长范围（秒），设置界面和设置文件使用同一范围
+    public static final int MIN_SHORT_BREAK_SECONDS = 10;
+    public static final int MAX_SHORT_BREAK_SECONDS = 30 * 60;
+    public static final int MIN_LONG_BREAK_SECONDS = 60;
+    public static final int MAX_LONG_BREAK_SECONDS = 60 * 60;
+
+    public static final Settings DEFAULTS = new Settings(CyclePlan.CLASSIC.getShortBreakSeconds(),
+            CyclePlan.CLASSIC.getLongBreakSeconds(), 1.0f, false);
+
+    private final int shortBreakSeconds;
+    private final int longBreakSeconds;
+    private final float volume;
+    private final boolean testMode;
+
+    /**
+     * @throws IllegalArgumentException 休息时长或音量超出范围
+     */
+    public Settings(int shortBreakSeconds, int longBreakSeconds, float volume, boolean testMode) {
+        if (shortBreakSeconds < 0 || shortBreakSeconds > MAX_BREAK_SECONDS) throw new IllegalArgumentException("短休息时长不正确: " + shortBreakSeconds);
+        if (longBreakSeconds <= 0 || longBreakSeconds > MAX_BREAK_SECONDS) throw new IllegalArgumentException("长休息时长不正确: " + longBreakSeconds);
+        if (!(volume >= 0.0f && volume <= 1.0f)) throw new IllegalArgumentException("音量必须在0到1之间: " + volume);
+        this.shortBreakSeconds = shortBreakSeconds;
+        this.longBreakSeconds = longBreakSeconds;
+        this.volume = volume;
+        this.testMode = testMode;
+    }
+
+    public Settings withBreakTimes(int shortBreakSeconds, int longBreakSeconds) {
+        return new Settings(shortBreakSeconds, longBreakSeconds, volume, testMode);
+    }
+
+    public Settings withVolume(float volume) {
+        return new Settings(shortBreakSeconds, longBreakSeconds, volume, testMode);
+    }
+
+    public Settings withTestMode(boolean testMode) {
+        return new Settings(shortBreakSeconds, longBreakSeconds, volume, testMode);
+    }
+
+    /**
+     * 短休息时长是否在用户可设置的范围内
+     */
+    public static boolean isValidShortBreak(int seconds) {
+        return seconds >= MIN_SHORT_BREAK_SECONDS && seconds <= MAX_SHORT_BREAK_SECONDS;
+    }
+
+    /**
+     * 长休息时长是否在用户可设置的范围内
+     */
+    public static boolean isValidLongBreak(int seconds) {
+        return seconds >= MIN_LONG_BREAK_SECONDS && seconds <= MAX_LONG_BREAK_SECONDS;
+    }
+
+    public int getShortBreakSeconds() { return shortBreakSeconds; }
+    public int getLongBreakSeconds() { return longBreakSeconds; }
+    public float getVolume() { return volume; }
+    public boolean isTestMode() { return testMode; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Settings)) return false;
+        Settings other = (Settings) o;
+        return shortBreakSeconds == other.shortBreakSeconds && longBreakSeconds == other.longBreakSeconds
+                && Float.compare(volume, other.volume) == 0 && testMode == other.testMode;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(shortBreakSeconds, longBreakSeconds, volume, testMode);
+    }
+
+    @Override
+    public String toString() {
+        return "短休息=" + shortBreakSeconds + "秒, 长休息=" + longBreakSeconds + "秒, 音量="
+                + Math.round(volume * 100) + "%, 测试模式=" + (testMode ? "是" : "否");
+    }
+}
@@ -0,0 +1,239 @@
+package core;
+
+import log.Log;
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 设置文件（默认 ~/.studyassist/settings.properties）：启动时同步读取，修改后整体写入临时文件再原子替换，
+ * 不会留下写了一半的文件。
+ *
+ * 调用watch后用WatchService监视所在目录，文件被其他程序（例如管理脚本）修改时，
+ * 等连续的修改事件停止DEBOUNCE_MILLIS后重新读取一次，校验通过且与当前设置不同时才通知监听器；
+ * 校验失败时保留当前设置并记录警告。自己写入引起的事件读到的内容与当前设置相同，不会再通知。
+ *
+ * 文件格式（UTF-8，时间单位为秒，音量为百分比），省略的项保持当前值：
+ * <pre>
+ * shortBreak=20
+ * longBreak=1200
+ * volume=80
+ * testMode=false
+ * </pre>
+ */
+public class SettingsStore implements AutoCloseable {
+    private static final LongAdder RELOADS = Metrics.counter("settings.reloads");
+    private static final LongAdder REJECTED = Metrics.counter("settings.rejected");
+    private static final long DEBOUNCE_MILLIS = 300;
+
+    private final Path path;
+    private final AtomicReference<Settings> current;
+    private WatchService watcher;
+    private Thread thread;
+
+    /**
+     * 打开用户目录下的默认设置文件
+     */
+    public static SettingsStore openDefault() {
+        return new SettingsStore(Paths.get(System.getProperty("user.home"), ".studyassist", "settings.properties"));
+    }
+
+    /**
+     * 读取设置文件，文件不存在或不正确时使用默认设置
+     */
+    public SettingsStore(Path path) {
+        this.path = path;
+        Settings loaded = Settings.DEFAULTS;
+        try {
+            loaded = read(path, Settings.DEFAULTS);
+        } catch (NoSuchFileException e) {
+            // 第一次运行，保存时再创建
+        } catch (IOException e) {
+            REJECTED.increment();
+            Log.warn("无法读取设置文件，使用默认设置: {}", e.getMessage());
+        }
+        this.current = new AtomicReference<>(loaded);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 当前设置
+     */
+    public Settings get() {
+        return current.get();
+    }
+
+    /**
+     * 替换当前设置并写入文件，与当前设置相同时不写；写入失败只记录错误，内存中的设置照常生效
+     */
+    public synchronized void save(Settings settings) {
+        if (settings.equals(current.getAndSet(settings)) && Files.exists(path)) return;
+        try {
+            write(path, settings);
+        } catch (IOException e) {
+            Log.error("无法保存设置: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 开始监视设置文件，文件被修改并通过校验后在监视线程上调用listener
+     */
+    public synchronized void watch(Consumer<Settings> listener) throws IOException {
+        if (watcher != null) throw new IllegalStateException("已经在监视");
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        watcher = directory.getFileSystem().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        WatchService service = watcher;
+        thread = new Thread(() -> watchLoop(service, listener), "settings-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watchLoop(WatchService service, Consumer<Settings> listener) {
+        Path fileName = path.getFileName();
+        long reloadAt = -1; // 计划重新读取的时间，-1表示没有待处理的修改
+        try {
+            while (true) {
+                WatchKey key;
+                if (reloadAt < 0) {
+                    key = service.take();
+                } else {
+                    long waitNanos = reloadAt - System.nanoTime();
+                    key = waitNanos > 0 ? service.poll(waitNanos, TimeUnit.NANOSECONDS) : null;
+                }
+                if (key == null) {
+                    reloadAt = -1;
+                    reload(listener);
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // 每个事件都把重新读取推迟，编辑器或脚本连续写入时只读取一次
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                        reloadAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MILLIS);
+                    }
+                }
+                if (!key.reset()) {
+                    Log.warn("设置文件所在目录已不可用，停止监视: {}", path);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 已关闭
+        }
+    }
+
+    private void reload(Consumer<Settings> listener) {
+        Settings before = current.get();
+        Settings loaded;
+        try {
+            loaded = read(path, before);
+        } catch (NoSuchFileException e) {
+            return; // 文件被删除时保持当前设置，下次保存时重新创建
+        } catch (IOException e) {
+            REJECTED.increment();
+            Log.warn("设置文件不正确，保持当前设置: {}", e.getMessage());
+            return;
+        }
+        if (loaded.equals(before) || !current.compareAndSet(before, loaded)) return;
+        RELOADS.increment();
+        Log.info("设置文件已修改，应用新设置：{}", loaded);
+        try {
+            listener.accept(loaded);
+        } catch (RuntimeException e) {
+            Log.error("应用设置失败: {}", e.toString());
+        }
+    }
+
+    // 读取并校验设置文件，省略的项取base中的值
+    private static Settings read(Path path, Settings base) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        try {
+            int volumePercent = intProperty(props, "volume", Math.round(base.getVolume() * 100));
+            if (volumePercent < 0 || volumePercent > 100) throw new IllegalArgumentException("音量必须在0到100之间");
+            // 与设置界面相同的范围，超出时整个文件不生效
+            int shortBreak = intProperty(props, "shortBreak", base.getShortBreakSeconds());
+            if (!Settings.isValidShortBreak(shortBreak)) {
+                throw new IllegalArgumentException("shortBreak必须在" + Settings.MIN_SHORT_BREAK_SECONDS + "到"
+                        + Settings.MAX_SHORT_BREAK_SECONDS + "秒之间");
+            }
+            int longBreak = intProperty(props, "longBreak", base.getLongBreakSeconds());
+            if (!Settings.isValidLongBreak(longBreak)) {
+                throw new IllegalArgumentException("longBreak必须在" + Settings.MIN_LONG_BREAK_SECONDS + "到"
+                        + Settings.MAX_LONG_BREAK_SECONDS + "秒之间");
+            }
+            return new Settings(shortBreak, longBreak, volumePercent / 100.0f, booleanProperty(props, "testMode", base.isTestMode()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("设置文件不正确: " + path + "（" + e.getMessage() + "）", e);
+        }
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static boolean booleanProperty(Properties props, String key, boolean defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null) return defaultValue;
+        value = value.trim();
+        if (value.equalsIgnoreCase("true")) return true;
+        if (value.equalsIgnoreCase("false")) return false;
+        throw new IllegalArgumentException(key + " 必须是true或false");
+    }
+
+    // 写入临时文件并刷盘，再原子替换，读取方不会看到写了一半的内容
+    private static void write(Path path, Settings settings) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        String text = "# 学习辅助工具设置，时间单位为秒，音量为百分比；修改后自动生效\n"
+                + "shortBreak=" + settings.getShortBreakSeconds() + "\n"
+                + "longBreak=" + settings.getLongBreakSeconds() + "\n"
+                + "volume=" + Math.round(settings.getVolume() * 100) + "\n"
+                + "testMode=" + settings.isTestMode() + "\n";
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 停止监视
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+}
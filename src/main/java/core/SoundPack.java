@@ -0,0 +1,271 @@
+package core;
+
+import log.Log;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 音效包：一个文件中存放多个提示音，用IMA-ADPCM压缩（约为PCM的1/4），按ID查找。
+ *
+ * 文件格式（小端）：
+ * <pre>
+ * 文件头  "SPAK"(4) 版本 uint16 音频数 uint16
+ * 索引    每项：ID长度 uint8、ID(UTF-8)、采样率 int32、声道数 uint8、保留 uint8、每块帧数 uint16、
+ *         帧数 int32、数据偏移 int32、数据长度 int32
+ * 数据    各音频的ADPCM块
+ * </pre>
+ * 运行时把整个文件映射到内存（只读），打开时只解析索引，某个音频第一次播放时才解码它的数据。
+ * 音效包在jar中时先解压到用户目录下的缓存文件（按jar条目的CRC命名）再映射。
+ */
+public final class SoundPack {
+    private static final int MAGIC = 0x4B415053; // "SPAK"
+    private static final int VERSION = 1;
+    // 每块帧数：块头之外正好是整字节，立体声时每块1KB
+    public static final int DEFAULT_SAMPLES_PER_BLOCK = 1017;
+    // 程序自带的音效包
+    private static final String BUNDLED_RESOURCE = "sounds/sounds.pack";
+
+    private final ByteBuffer data;
+    private final Map<String, Entry> index;
+
+    /**
+     * 音效包中的一个音频
+     */
+    public static final class Entry {
+        private final String id;
+        private final AudioFormat format;
+        private final int frames;
+        private final int samplesPerBlock;
+        private final int offset;
+        private final int length;
+
+        Entry(String id, int sampleRate, int channels, int samplesPerBlock, int frames, int offset, int length) {
+            this.id = id;
+            this.format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sampleRate, 16, channels, channels * 2, sampleRate, false);
+            this.samplesPerBlock = samplesPerBlock;
+            this.frames = frames;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public String getId() { return id; }
+        /** 解码后的PCM格式 */
+        public AudioFormat getFormat() { return format; }
+        public int getFrames() { return frames; }
+        /** 压缩后的字节数 */
+        public int getLength() { return length; }
+        /** 解码后的字节数 */
+        public int getPcmLength() { return frames * format.getFrameSize(); }
+    }
+
+    private SoundPack(ByteBuffer data) throws IOException {
+        this.data = data.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            ByteBuffer header = this.data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) throw new IOException("不是音效包文件");
+            int version = header.getShort() & 0xffff;
+            if (version != VERSION) throw new IOException("不支持的音效包版本: " + version);
+            int count = header.getShort() & 0xffff;
+            Map<String, Entry> entries = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] id = new byte[header.get() & 0xff];
+                header.get(id);
+                int sampleRate = header.getInt();
+                int channels = header.get() & 0xff;
+                header.get();
+                int samplesPerBlock = header.getShort() & 0xffff;
+                int frames = header.getInt();
+                int offset = header.getInt();
+                int length = header.getInt();
+                if (channels == 0 || samplesPerBlock % 2 == 0 || offset < 0 || length < 0 || offset + length > this.data.limit()
+                        || length < ImaAdpcm.encodedBytes(frames, channels, samplesPerBlock)) {
+                    throw new IOException("音效包索引损坏");
+                }
+                Entry entry = new Entry(new String(id, StandardCharsets.UTF_8), sampleRate, channels, samplesPerBlock, frames, offset, length);
+                entries.put(entry.id, entry);
+            }
+            this.index = Collections.unmodifiableMap(entries);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("音效包文件不完整", e);
+        }
+    }
+
+    /**
+     * 以只读方式映射音效包文件
+     */
+    public static SoundPack open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new SoundPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 程序自带的音效包，第一次调用时打开；不存在或无法打开时返回null
+     */
+    public static SoundPack bundled() {
+        return Bundled.PACK;
+    }
+
+    // 延迟初始化：只有第一次用到音效包时才映射
+    private static final class Bundled {
+        static final SoundPack PACK = load();
+
+        private static SoundPack load() {
+            URL url = SoundPack.class.getClassLoader().getResource(BUNDLED_RESOURCE);
+            if (url == null) return null;
+            try {
+                return openResource(url);
+            } catch (IOException e) {
+                Log.warn("无法打开音效包: {}", e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    // 打开类路径中的音效包：普通文件直接映射，jar中的条目解压到缓存文件后映射
+    static SoundPack openResource(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return open(Paths.get(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection) {
+            long crc = ((JarURLConnection) connection).getJarEntry().getCrc();
+            long size = ((JarURLConnection) connection).getJarEntry().getSize();
+            Path cached = Paths.get(System.getProperty("user.home"), ".studyassist", "cache",
+                    "sounds-" + Long.toHexString(crc) + ".pack");
+            if (!Files.isRegularFile(cached) || Files.size(cached) != size) {
+                Files.createDirectories(cached.getParent());
+                Path temp = Files.createTempFile(cached.getParent(), "sounds", ".tmp");
+                try (InputStream in = connection.getInputStream()) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            return open(cached);
+        }
+        // 其他来源：读入堆外缓冲区
+        try (InputStream in = connection.getInputStream()) {
+            byte[] bytes = in.readAllBytes();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            return new SoundPack(buffer);
+        }
+    }
+
+    public boolean contains(String id) {
+        return index.containsKey(id);
+    }
+
+    /**
+     * 音效包中的音频，不存在时返回null
+     */
+    public Entry entry(String id) {
+        return index.get(id);
+    }
+
+    public Set<String> ids() {
+        return index.keySet();
+    }
+
+    /**
+     * 音效包文件的大小（字节）
+     */
+    public int size() {
+        return data.limit();
+    }
+
+    /**
+     * 解码一个音频为16位PCM（格式见Entry.getFormat）
+     * @throws IllegalArgumentException 没有这个音频
+     */
+    public byte[] decode(String id) {
+        Entry entry = index.get(id);
+        if (entry == null) throw new IllegalArgumentException("音效包中没有音频: " + id);
+        // 压缩数据一次性从映射区复制出来（约为PCM的1/4），再按数组解码
+        byte[] encoded = new byte[entry.length];
+        data.get(entry.offset, encoded);
+        byte[] pcm = new byte[entry.getPcmLength()];
+        ImaAdpcm.decode(encoded, 0, entry.format.getChannels(), entry.samplesPerBlock, entry.frames, pcm);
+        return pcm;
+    }
+
+    /**
+     * 把多个音频文件压缩为一个音效包
+     * @param sounds ID到音频文件的映射，按顺序写入
+     */
+    public static void write(Path output, Map<String, Path> sounds, int samplesPerBlock)
+            throws IOException, UnsupportedAudioFileException {
+        if (sounds.size() > 0xffff) throw new IllegalArgumentException("音频数量过多");
+        Map<String, byte[]> encoded = new LinkedHashMap<>();
+        Map<String, AudioFormat> formats = new LinkedHashMap<>();
+        Map<String, Integer> frameCounts = new LinkedHashMap<>();
+        int indexBytes = 0;
+        for (Map.Entry<String, Path> sound : sounds.entrySet()) {
+            byte[] id = sound.getKey().getBytes(StandardCharsets.UTF_8);
+            if (id.length == 0 || id.length > 0xff) throw new IllegalArgumentException("ID长度必须在1到255字节之间: " + sound.getKey());
+            try (AudioInputStream source = AudioSystem.getAudioInputStream(sound.getValue().toFile())) {
+                AudioFormat format = source.getFormat();
+                AudioFormat pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+                        format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+                byte[] pcm;
+                try (AudioInputStream pcmStream = AudioSystem.getAudioInputStream(pcmFormat, source)) {
+                    pcm = pcmStream.readAllBytes();
+                }
+                short[] samples = new short[pcm.length / 2];
+                ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+                encoded.put(sound.getKey(), ImaAdpcm.encode(samples, pcmFormat.getChannels(), samplesPerBlock));
+                formats.put(sound.getKey(), pcmFormat);
+                frameCounts.put(sound.getKey(), samples.length / pcmFormat.getChannels());
+            }
+            indexBytes += 1 + id.length + 4 + 1 + 1 + 2 + 4 + 4 + 4;
+        }
+
+        int offset = 8 + indexBytes;
+        int total = offset;
+        for (byte[] bytes : encoded.values()) total += bytes.length;
+        ByteBuffer out = ByteBuffer.allocate(total).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putShort((short) VERSION).putShort((short) sounds.size());
+        for (Map.Entry<String, byte[]> sound : encoded.entrySet()) {
+            byte[] id = sound.getKey().getBytes(StandardCharsets.UTF_8);
+            AudioFormat format = formats.get(sound.getKey());
+            out.put((byte) id.length).put(id)
+                    .putInt((int) format.getSampleRate())
+                    .put((byte) format.getChannels()).put((byte) 0)
+                    .putShort((short) samplesPerBlock)
+                    .putInt(frameCounts.get(sound.getKey()))
+                    .putInt(offset)
+                    .putInt(sound.getValue().length);
+            offset += sound.getValue().length;
+        }
+        for (byte[] bytes : encoded.values()) out.put(bytes);
+
+        // 先写临时文件再替换，避免留下不完整的音效包
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        Files.write(temp, out.array());
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -1,23 +1,23 @@
 package core;
 
 import javax.sound.sampled.*;
-import java.io.IOException;
-import java.net.URL;
 
 public class SoundPlayer {
     private static float volume = 1.0f; // 音量范围：0.0f 到 1.0f
-    private static Clip currentClip; // 保存当前播放的音频剪辑
+    private static volatile Clip currentClip; // 保存当前播放的音频剪辑
+    private static final AudioCache cache = new AudioCache(); // 解码后的音频缓存与Clip池
+    private static final AmbientPlayer ambient = new AmbientPlayer(); // 长休息背景音（流式播放）
 
     public static void setVolume(float newVolume) {
         if (newVolume < 0.0f) newVolume = 0.0f;
         if (newVolume > 1.0f) newVolume = 1.0f;
         volume = newVolume;
+        ambient.setVolume(newVolume);
         
         // 如果当前有正在播放的音频，立即应用新的音量设置
-        if (currentClip != null && currentClip.isOpen()) {
-            FloatControl gainControl = (FloatControl) currentClip.getControl(FloatControl.Type.MASTER_GAIN);
-            float dB = (float) (Math.log(volume) / Math.log(10.0) * 20.0);
-            gainControl.setValue(dB);
+        Clip clip = currentClip;
+        if (clip != null && clip.isOpen()) {
+            applyVolume(clip);
         }
     }
 
@@ -25,44 +25,57 @@ public class SoundPlayer {
         return volume;
     }
 
+    /**
+     * 预加载音频文件，避免第一次提醒时才解码
+     */
+    public static void preload(String soundFileName) {
+        cache.preload(soundFileName);
+    }
+
+    public static AudioCache getCache() {
+        return cache;
+    }
+
+    public static AmbientPlayer getAmbientPlayer() {
+        return ambient;
+    }
+
     /**
      * 播放音频文件
      * @param soundFileName 音频文件名
      * @param wait 是否等待播放完成
      */
     public static void playSound(String soundFileName, boolean wait) {
+        long startNanos = System.nanoTime();
         try {
-            if (currentClip != null && currentClip.isRunning()) {
-                currentClip.stop();
-                currentClip.close();
+            Clip previous = currentClip;
+            if (previous != null && previous.isRunning()) {
+                // 停止后Clip会通过STOP事件自动归还到缓存池
+                previous.stop();
             }
 
-            URL soundURL = SoundPlayer.class.getClassLoader().getResource("sounds/" + soundFileName);
-            if (soundURL == null) {
-                System.err.println("音频文件未找到: " + soundFileName);
+            Clip clip = cache.acquire(soundFileName);
+            if (clip == null) {
                 return;
             }
+            currentClip = clip;
 
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(soundURL);
-            currentClip = AudioSystem.getClip();
-            currentClip.open(audioIn);
-            
             // 设置音量
-            FloatControl gainControl = (FloatControl) currentClip.getControl(FloatControl.Type.MASTER_GAIN);
-            float dB = (float) (Math.log(volume) / Math.log(10.0) * 20.0);
-            gainControl.setValue(dB);
-            
-            currentClip.start();
+            applyVolume(clip);
+
+            clip.setFramePosition(0);
+            clip.start();
+            cache.recordStartLatency(soundFileName, System.nanoTime() - startNanos);
 
             // 如果需要等待，则阻塞当前线程直到播放完毕
             if (wait) {
-                Thread.sleep(currentClip.getMicrosecondLength() / 1000);
-                currentClip.close();
+                Thread.sleep(clip.getMicrosecondLength() / 1000);
+                clip.stop();
                 currentClip = null;
             }
 
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException | InterruptedException e) {
-            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
     
@@ -72,4 +85,12 @@ public class SoundPlayer {
     public static void playSound(String soundFileName) {
         playSound(soundFileName, false);
     }
+
+    private static void applyVolume(Clip clip) {
+        if (!clip.isControlSupported(FloatControl.Type.MASTER_GAIN)) return;
+        FloatControl gainControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
+        float dB = (float) (Math.log(volume) / Math.log(10.0) * 20.0);
+        // 音量为0时dB为负无穷，需要限制在控件允许的范围内
+        gainControl.setValue(Math.max(gainControl.getMinimum(), Math.min(gainControl.getMaximum(), dB)));
+    }
 }
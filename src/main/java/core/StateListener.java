@@ -0,0 +1,9 @@
+package core;
+
+/**
+ * 状态切换监听器，在完成切换的线程上调用，实现中不要执行耗时操作
+ */
+@FunctionalInterface
+public interface StateListener {
+    void onStateChanged(LearningState oldState, LearningState newState);
+}
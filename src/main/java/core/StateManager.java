@@ -1,34 +1,155 @@
 package core;
 
+import log.Log;
+import metrics.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 状态管理：状态保存在一个原子状态字中（低8位为状态，其余为版本号），
+ * 通过CAS切换并拒绝非法的切换（例如 PAUSED -> BREAK），任何线程都能读到最新状态。
+ * 监听器列表是一个用CAS替换的数组，注册和通知都不加锁。
+ */
 public class StateManager {
-    private LearningState currentState;
+    private static final LearningState[] STATES = LearningState.values();
+    private static final long STATE_MASK = 0xFF;
+    private static final LongAdder TRANSITIONS = Metrics.counter("state.transitions");
+    private static final LongAdder REJECTED = Metrics.counter("state.rejected");
+
+    private final AtomicLong stateWord;
+    private final AtomicReference<StateListener[]> listeners = new AtomicReference<>(new StateListener[0]);
 
     public StateManager() {
-        this.currentState = LearningState.IDLE;
+        this.stateWord = new AtomicLong(LearningState.IDLE.ordinal());
     }
 
     public LearningState getState() {
-        return currentState;
+        return STATES[(int) (stateWord.get() & STATE_MASK)];
+    }
+
+    /**
+     * 状态版本号，每次成功切换加一
+     */
+    public long getVersion() {
+        return stateWord.get() >>> 8;
+    }
+
+    /**
+     * 切换到新状态，非法切换会被拒绝
+     * @return 是否切换成功
+     */
+    public boolean setState(LearningState newState) {
+        while (true) {
+            long word = stateWord.get();
+            LearningState current = STATES[(int) (word & STATE_MASK)];
+            if (!isAllowed(current, newState)) {
+                if (current != newState) {
+                    REJECTED.increment();
+                    Log.warn("拒绝非法状态切换: {} -> {}", current, newState);
+                }
+                return false;
+            }
+            if (stateWord.compareAndSet(word, nextWord(word, newState))) {
+                Log.info("状态切换: {} -> {}", current, newState);
+                TRANSITIONS.increment();
+                fireStateChanged(current, newState);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 仅当当前状态等于expected时切换，用于避免与其他线程的切换竞争
+     * @return 是否切换成功
+     */
+    public boolean compareAndSet(LearningState expected, LearningState newState) {
+        if (!isAllowed(expected, newState)) return false;
+        while (true) {
+            long word = stateWord.get();
+            if ((word & STATE_MASK) != expected.ordinal()) return false;
+            if (stateWord.compareAndSet(word, nextWord(word, newState))) {
+                Log.info("状态切换: {} -> {}", expected, newState);
+                TRANSITIONS.increment();
+                fireStateChanged(expected, newState);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 状态机允许的切换
+     */
+    public static boolean isAllowed(LearningState from, LearningState to) {
+        switch (from) {
+            case IDLE:
+                return to == LearningState.STUDYING || to == LearningState.PAUSED;
+            case STUDYING:
+                return to == LearningState.PAUSED || to == LearningState.BREAK || to == LearningState.IDLE;
+            case PAUSED:
+                return to == LearningState.STUDYING || to == LearningState.IDLE;
+            case BREAK:
+                return to == LearningState.STUDYING || to == LearningState.IDLE;
+            default:
+                return false;
+        }
+    }
+
+    private static long nextWord(long word, LearningState newState) {
+        return (((word >>> 8) + 1) << 8) | newState.ordinal();
+    }
+
+    public void addListener(StateListener listener) {
+        while (true) {
+            StateListener[] current = listeners.get();
+            StateListener[] updated = java.util.Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = listener;
+            if (listeners.compareAndSet(current, updated)) return;
+        }
+    }
+
+    public void removeListener(StateListener listener) {
+        while (true) {
+            StateListener[] current = listeners.get();
+            int index = -1;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == listener) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) return;
+            StateListener[] updated = new StateListener[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            if (listeners.compareAndSet(current, updated)) return;
+        }
     }
 
-    public void setState(LearningState newState) {
-        System.out.println("状态切换: " + currentState + " -> " + newState);
-        this.currentState = newState;
+    private void fireStateChanged(LearningState oldState, LearningState newState) {
+        for (StateListener listener : listeners.get()) {
+            try {
+                listener.onStateChanged(oldState, newState);
+            } catch (RuntimeException e) {
+                Log.error("状态监听器出错: {}", e.getMessage());
+            }
+        }
     }
 
     public boolean isStudying() {
-        return currentState == LearningState.STUDYING;
+        return getState() == LearningState.STUDYING;
     }
 
     public boolean isPaused() {
-        return currentState == LearningState.PAUSED;
+        return getState() == LearningState.PAUSED;
     }
 
     public boolean isBreaking() {
-        return currentState == LearningState.BREAK;
+        return getState() == LearningState.BREAK;
     }
 
     public boolean isIdle() {
-        return currentState == LearningState.IDLE;
+        return getState() == LearningState.IDLE;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,298 @@
+package core;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * 学习统计：订阅状态切换，把学习时长、休息次数、跳过的休息和暂停次数累加到按分钟、小时、天划分的汇总中。
+ *
+ * 每一级汇总是几列基本类型数组组成的环形缓冲区（列式存储），槽位由时间编号取模得到，
+ * 旧数据被新的时间编号覆盖：分钟保留7天，小时保留400天，天保留10年。
+ * 每个事件只更新各级中对应的一个槽（学习时长按跨越的槽拆分，一个学习段最长一个周期，因此有上界）；
+ * 查询把区间拆成"中间整天 + 两端整小时 + 两端零散分钟"，几个月的查询也只需要累加几百个槽。
+ *
+ * 时间按本地时区划分，启动时可以从会话日志重放历史记录。
+ */
+public class StudyAnalytics implements StateListener {
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    // 跳过休息的判定：实际休息比计划短1秒以上
+    private static final long SKIP_TOLERANCE_MILLIS = 1000;
+    // 重放日志时单个学习段的上限（程序崩溃时没有结束记录，避免把离线时间算作学习）
+    private static final long MAX_REPLAY_SEGMENT_MILLIS = 2 * HOUR_MILLIS;
+    // 天级汇总保留的天数，也是统计能回看的最长时间；会话日志压缩时不会丢弃这段时间内的记录
+    static final int HISTORY_DAYS = 3660;
+
+    private final Rollup minutes = new Rollup(MINUTE_MILLIS, 7 * 24 * 60);
+    private final Rollup hours = new Rollup(HOUR_MILLIS, 400 * 24);
+    private final Rollup days = new Rollup(DAY_MILLIS, HISTORY_DAYS);
+
+    private final ZoneRules zoneRules;
+    private final IntSupplier plannedBreakSeconds;
+    private final LongSupplier idleDeductedMillis;
+
+    // 以下字段由this保护
+    private LearningState lastState = LearningState.IDLE;
+    private long studyStartMillis = -1;  // 当前学习段开始的本地时间，-1表示未在学习
+    private long breakStartMillis = -1;  // 当前休息开始的本地时间
+    private long breakPlannedMillis = 0;
+
+    /**
+     * 一段时间内的统计结果
+     */
+    public static final class Totals {
+        public final long studyMillis;
+        public final int breaks;
+        public final int skippedBreaks;
+        public final int pauses;
+
+        Totals(long studyMillis, int breaks, int skippedBreaks, int pauses) {
+            this.studyMillis = studyMillis;
+            this.breaks = breaks;
+            this.skippedBreaks = skippedBreaks;
+            this.pauses = pauses;
+        }
+
+        public int getStudyMinutes() {
+            return (int) (studyMillis / MINUTE_MILLIS);
+        }
+
+        @Override
+        public String toString() {
+            return "学习 " + getStudyMinutes() + " 分钟, 休息 " + breaks + " 次, 跳过休息 " + skippedBreaks
+                    + " 次, 暂停 " + pauses + " 次";
+        }
+    }
+
+    /**
+     * @param plannedBreakSeconds 进入休息时查询计划的休息时长，用于判断休息是否被跳过
+     * @param idleDeductedMillis  进入暂停时查询因无操作扣除的时长，学习段在无操作开始时结束
+     */
+    public StudyAnalytics(IntSupplier plannedBreakSeconds, LongSupplier idleDeductedMillis) {
+        this(plannedBreakSeconds, idleDeductedMillis, ZoneId.systemDefault());
+    }
+
+    public StudyAnalytics(IntSupplier plannedBreakSeconds, LongSupplier idleDeductedMillis, ZoneId zone) {
+        this.plannedBreakSeconds = plannedBreakSeconds;
+        this.idleDeductedMillis = idleDeductedMillis;
+        this.zoneRules = zone.getRules();
+    }
+
+    @Override
+    public void onStateChanged(LearningState oldState, LearningState newState) {
+        // 在加锁之前查询计划时长，避免和计时服务的锁形成嵌套
+        int breakSeconds = newState == LearningState.BREAK ? plannedBreakSeconds.getAsInt() : 0;
+        long idleMillis = newState == LearningState.PAUSED ? idleDeductedMillis.getAsLong() : 0;
+        synchronized (this) {
+            apply(newState, toLocal(System.currentTimeMillis()), breakSeconds, idleMillis);
+        }
+    }
+
+    /**
+     * 从会话日志重放打开时已有的记录，重建历史统计，应在注册为状态监听器之前调用
+     */
+    public synchronized void replay(SessionJournal journal) throws IOException {
+        long[] lastMillis = {-1};
+        journal.forEachRecoveredRecord(record -> {
+            long local = toLocal(record.timestampMillis);
+            // 上一段没有正常结束（崩溃），按上限截断
+            if (studyStartMillis >= 0 && local - studyStartMillis > MAX_REPLAY_SEGMENT_MILLIS) {
+                addStudy(studyStartMillis, studyStartMillis + MAX_REPLAY_SEGMENT_MILLIS);
+                studyStartMillis = -1;
+            }
+            if (record.type == SessionJournal.TYPE_STATE) {
+                // 附加值：进入休息时为计划的休息秒数，进入暂停时为扣除的无操作秒数
+                boolean paused = record.state == LearningState.PAUSED;
+                apply(record.state, local, paused ? 0 : record.extra, paused ? record.extra * 1000L : 0);
+            } else if (record.type == SessionJournal.TYPE_CHECKPOINT) {
+                // 程序正常退出：结束当前学习段
+                endSession(local);
+            }
+            lastMillis[0] = local;
+        });
+        if (lastMillis[0] >= 0) endSession(lastMillis[0]);
+    }
+
+    // 处理一次状态切换，时间为本地时间毫秒；idleMillis为因无操作自动暂停扣除的时长
+    private void apply(LearningState newState, long now, int breakSeconds, long idleMillis) {
+        LearningState oldState = lastState;
+        lastState = newState;
+        if (oldState == newState) return;
+
+        if (oldState == LearningState.STUDYING && studyStartMillis >= 0) {
+            // 无操作的时间不算学习，与计时服务扣除的时间一致
+            addStudy(studyStartMillis, Math.max(studyStartMillis, now - Math.max(0, idleMillis)));
+            studyStartMillis = -1;
+        }
+        if (oldState == LearningState.BREAK && breakStartMillis >= 0) {
+            if (now - breakStartMillis < breakPlannedMillis - SKIP_TOLERANCE_MILLIS) {
+                addEvent(now, Rollup.SKIPPED);
+            }
+            breakStartMillis = -1;
+        }
+
+        switch (newState) {
+            case STUDYING:
+                studyStartMillis = now;
+                break;
+            case BREAK:
+                addEvent(now, Rollup.BREAKS);
+                breakStartMillis = now;
+                breakPlannedMillis = breakSeconds * 1000L;
+                break;
+            case PAUSED:
+                // 从空闲直接恢复为暂停（重启后恢复会话）不算暂停
+                if (oldState == LearningState.STUDYING) addEvent(now, Rollup.PAUSES);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void endSession(long now) {
+        if (studyStartMillis >= 0) addStudy(studyStartMillis, now);
+        studyStartMillis = -1;
+        breakStartMillis = -1;
+        lastState = LearningState.IDLE;
+    }
+
+    private void addStudy(long from, long to) {
+        if (to <= from) return;
+        minutes.addDuration(from, to);
+        hours.addDuration(from, to);
+        days.addDuration(from, to);
+    }
+
+    private void addEvent(long now, int column) {
+        minutes.addCount(now, column);
+        hours.addCount(now, column);
+        days.addCount(now, column);
+    }
+
+    /**
+     * 查询时间区间[fromMillis, toMillis)内的统计（UTC毫秒），包括正在进行的学习段
+     */
+    public synchronized Totals query(long fromMillis, long toMillis) {
+        long from = toLocal(fromMillis);
+        long to = toLocal(toMillis);
+        long[] sums = new long[Rollup.COLUMNS];
+        if (to > from) {
+            long fromMinute = Math.floorDiv(from, MINUTE_MILLIS);
+            long toMinute = Math.floorDiv(to + MINUTE_MILLIS - 1, MINUTE_MILLIS);
+            long fromDay = Math.floorDiv(fromMinute + 24 * 60 - 1, 24 * 60);
+            long toDay = Math.floorDiv(toMinute, 24 * 60);
+            if (fromDay < toDay) {
+                days.sum(fromDay, toDay, sums);
+                sumHoursAndMinutes(fromMinute, fromDay * 24 * 60, sums);
+                sumHoursAndMinutes(toDay * 24 * 60, toMinute, sums);
+            } else {
+                sumHoursAndMinutes(fromMinute, toMinute, sums);
+            }
+
+            // 正在进行的学习段还没有计入汇总
+            if (studyStartMillis >= 0) {
+                long now = toLocal(System.currentTimeMillis());
+                long overlap = Math.min(now, to) - Math.max(studyStartMillis, from);
+                if (overlap > 0) sums[Rollup.STUDY] += overlap;
+            }
+        }
+        return new Totals(sums[Rollup.STUDY], (int) sums[Rollup.BREAKS], (int) sums[Rollup.SKIPPED], (int) sums[Rollup.PAUSES]);
+    }
+
+    // 分钟编号区间[fromMinute, toMinute)：中间整小时用小时汇总，两端用分钟汇总
+    private void sumHoursAndMinutes(long fromMinute, long toMinute, long[] sums) {
+        if (toMinute <= fromMinute) return;
+        long fromHour = Math.floorDiv(fromMinute + 59, 60);
+        long toHour = Math.floorDiv(toMinute, 60);
+        if (fromHour < toHour) {
+            hours.sum(fromHour, toHour, sums);
+            minutes.sum(fromMinute, fromHour * 60, sums);
+            minutes.sum(toHour * 60, toMinute, sums);
+        } else {
+            minutes.sum(fromMinute, toMinute, sums);
+        }
+    }
+
+    // UTC毫秒转换为本地时间毫秒，使小时和天的边界与本地时间一致
+    private long toLocal(long epochMillis) {
+        return epochMillis + zoneRules.getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds() * 1000L;
+    }
+
+    /**
+     * 一级汇总：按时间编号取模的环形缓冲区，每列一个基本类型数组
+     */
+    private static final class Rollup {
+        static final int STUDY = 0;
+        static final int BREAKS = 1;
+        static final int SKIPPED = 2;
+        static final int PAUSES = 3;
+        static final int COLUMNS = 4;
+
+        final long unitMillis;
+        final int capacity;
+        final long[] keys;          // 槽中数据所属的时间编号
+        final int[] studyMillis;
+        final int[][] counts;       // 休息、跳过、暂停次数
+        long newestKey = Long.MIN_VALUE;
+
+        Rollup(long unitMillis, int capacity) {
+            this.unitMillis = unitMillis;
+            this.capacity = capacity;
+            this.keys = new long[capacity];
+            this.studyMillis = new int[capacity];
+            this.counts = new int[COLUMNS][];
+            for (int column = BREAKS; column < COLUMNS; column++) {
+                counts[column] = new int[capacity];
+            }
+            Arrays.fill(keys, Long.MIN_VALUE);
+        }
+
+        // 取得时间编号对应的槽，槽中是更早的数据时先清零；超出保留范围的旧数据返回-1
+        private int slot(long key) {
+            if (newestKey != Long.MIN_VALUE && key <= newestKey - capacity) return -1;
+            int slot = (int) Math.floorMod(key, (long) capacity);
+            if (keys[slot] != key) {
+                keys[slot] = key;
+                studyMillis[slot] = 0;
+                for (int column = BREAKS; column < COLUMNS; column++) counts[column][slot] = 0;
+            }
+            if (key > newestKey) newestKey = key;
+            return slot;
+        }
+
+        void addDuration(long from, long to) {
+            long key = Math.floorDiv(from, unitMillis);
+            long lastKey = Math.floorDiv(to - 1, unitMillis);
+            for (; key <= lastKey; key++) {
+                long start = Math.max(from, key * unitMillis);
+                long end = Math.min(to, (key + 1) * unitMillis);
+                int slot = slot(key);
+                if (slot >= 0) studyMillis[slot] += (int) (end - start);
+            }
+        }
+
+        void addCount(long time, int column) {
+            int slot = slot(Math.floorDiv(time, unitMillis));
+            if (slot >= 0) counts[column][slot]++;
+        }
+
+        // 累加时间编号区间[fromKey, toKey)，只统计仍保留在缓冲区中的槽
+        void sum(long fromKey, long toKey, long[] sums) {
+            fromKey = Math.max(fromKey, toKey - capacity);
+            for (long key = fromKey; key < toKey; key++) {
+                int slot = (int) Math.floorMod(key, (long) capacity);
+                if (keys[slot] != key) continue;
+                sums[STUDY] += studyMillis[slot];
+                sums[BREAKS] += counts[BREAKS][slot];
+                sums[SKIPPED] += counts[SKIPPED][slot];
+                sums[PAUSES] += counts[PAUSES][slot];
+            }
+        }
+    }
+}
@@ -1,304 +1,791 @@
 package core;
 
-import ui.MainWindow;
+import log.Log;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.StudyEvents;
 
-import javax.swing.*;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
 import java.util.Random;
-import java.awt.Color;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 学习计时引擎：只负责计时和学习/休息周期逻辑，
+ * 显示和提醒通过TimerSink输出，时间和调度来自Clock，因此可以在无界面环境中运行。
+ */
 public class TimerService {
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    // 所有会话共用的指标
+    private static final LatencyHistogram DISPATCH_LATENESS = Metrics.histogram("timer.dispatch.lateness");
+    private static final LatencyHistogram TICK_DURATION = Metrics.histogram("timer.tick.duration");
+    private static final LatencyHistogram RESUME_LATENESS = Metrics.histogram("timer.resume.lateness");
+    private static final LongAdder REMINDERS = Metrics.counter("timer.reminders");
+    private static final LongAdder LONG_BREAKS = Metrics.counter("timer.longBreaks");
+    private static final LongAdder RESUMES = Metrics.counter("timer.resumes");
+    private static final LongAdder CALENDAR_PAUSES = Metrics.counter("calendar.pauses");
+    private static final LongAdder CALENDAR_SKIPPED_BREAKS = Metrics.counter("calendar.skippedBreaks");
+
+    // 默认所有计时任务共用一个时间轮线程
+    private final Clock clock;
     private final StateManager stateManager;
-    private final MainWindow mainWindow;
-    private ScheduledFuture<?> scheduledTask;
-    private int elapsedSeconds = 0;
-    private final Random random = new Random();
-    private int nextReminderTime = -1;
-    private int lastTriggeredCycle = -1; // 记录上次触发提示音的周期
-    
-    // 休息时间配置（秒）
-    private int shortBreakSeconds = 20;
-    private int longBreakSeconds = 20 * 60;
-    // 学习周期（秒）
-    private final int CYCLE_SECONDS = 90 * 60;
-    // 提示音周期（秒）
-    private final int REMINDER_CYCLE = 300; // 5分钟
-
-    // 测试模式 - 更人性化的参数设置
-    private boolean testMode = false;
-    private final int TEST_CYCLE_SECONDS = 60; // 测试模式下60秒一个小周期（相当于正常模式的5分钟）
-    private final int TEST_SHORT_BREAK = 10; // 测试模式下短休息10秒
-    private final int TEST_LONG_BREAK = 30; // 测试模式下长休息30秒
-    private final int TEST_TOTAL_CYCLES = 3; // 测试模式下3个小周期后进入长休息（相当于正常模式的18个周期）
-
-    public TimerService(StateManager stateManager, MainWindow mainWindow) {
+    private final TimerSink sink;
+    private Clock.Task scheduledTask;  // 下一个学习截止时间（提示音或周期结束）
+    private Clock.Task refreshTask;    // 界面刷新，仅在窗口可见时运行
+    private Clock.Task resumeTask;     // 休息结束恢复学习
+    // 学习时间由时钟的单调时间计算，不再依靠每秒计数
+    private long accumulatedNanos = 0;     // 之前各段累计的学习时间
+    private long segmentStartNanos = -1;   // 当前学习段的开始时间，-1表示未在计时
+    private long breakEndNanos = -1;       // 当前休息的结束时间
+    private int breakTotalSeconds = 0;     // 当前休息的总时长
+    private boolean longBreakActive = false; // 当前（或最近一次）休息是否为长休息
+    private long deadlineClockNanos = -1;  // 下一个截止任务预定执行的时钟时间
+    private long idleDeductedNanos = 0;    // 正在进行的无操作自动暂停扣除的时间，只在切换到PAUSED期间非0
+    private volatile long lastDispatchLatenessNanos = 0; // 最近一次截止任务相对预定时间的延迟
+    private volatile long lastResumeLatenessNanos = 0;   // 最近一次休息结束到恢复学习的延迟
+    private long resumeCount = 0;
+    private long totalResumeLatenessNanos = 0;
+    private volatile boolean displayVisible = true; // 窗口是否可见
+    private SessionJournal journal; // 会话日志，可为空
+    private final Random random; // 编译计划时的随机种子来源，可指定种子以便重现
+
+    // 日历中的忙碌时段（课程、会议），可为空；时间为时钟的墙上时间
+    private BusyCalendar calendar;
+    private boolean calendarPaused = false; // 当前的暂停是否由忙碌时段引起，时段结束后自动继续
+    private long ignoreBusyUntil = -1;      // 用户在忙碌时段中手动开始学习时，这个时间之前的时段不再暂停
+
+    // 学习计划编译后的提醒时间表，运行时只移动下标
+    private CycleSchedule schedule;
+    private int cycleNumber = 0;          // 第几个学习周期，决定使用时间表的哪个版本
+    private int nextReminderIndex = -1;   // 下一个提醒在本周期中的下标，-1表示需要重新定位
+    private int lastTriggeredCycle = -1; // 记录上次触发提示音的小段下标
+
+    // 休息时间、音量和测试模式的快照，整体替换；休息时间在切换计划时取计划的默认值
+    private Settings settings = Settings.DEFAULTS;
+    // 界面刷新间隔（毫秒）
+    private static final long REFRESH_INTERVAL_MILLIS = 1000;
+
+    // 进入测试模式前的计划和休息时间，关闭测试模式时恢复
+    private CycleSchedule scheduleBeforeTest;
+    private Settings settingsBeforeTest;
+
+    public TimerService(StateManager stateManager, TimerSink sink) {
+        this(stateManager, sink, TimingWheel.shared());
+    }
+
+    public TimerService(StateManager stateManager, TimerSink sink, Clock clock) {
+        this(stateManager, sink, clock, new Random());
+    }
+
+    public TimerService(StateManager stateManager, TimerSink sink, Clock clock, Random random) {
         this.stateManager = stateManager;
-        this.mainWindow = mainWindow;
+        this.sink = sink;
+        this.clock = clock;
+        this.random = random;
+        applySchedule(CyclePlan.CLASSIC.compile(random.nextLong()));
+    }
+
+    public synchronized void setBreakTimes(int shortBreakSeconds, int longBreakSeconds) {
+        settings = withValidBreakTimes(settings, shortBreakSeconds, longBreakSeconds);
+    }
+
+    // 超出用户可设置范围的休息时长保留base中的值
+    private static Settings withValidBreakTimes(Settings base, int shortBreakSeconds, int longBreakSeconds) {
+        if (!Settings.isValidShortBreak(shortBreakSeconds)) shortBreakSeconds = base.getShortBreakSeconds();
+        if (!Settings.isValidLongBreak(longBreakSeconds)) longBreakSeconds = base.getLongBreakSeconds();
+        return base.withBreakTimes(shortBreakSeconds, longBreakSeconds);
+    }
+
+    public synchronized int[] getBreakTimes() {
+        return new int[]{settings.getShortBreakSeconds(), settings.getLongBreakSeconds()};
     }
 
-    public void setBreakTimes(int shortBreakSeconds, int longBreakSeconds) {
-        if (shortBreakSeconds >= 10 && shortBreakSeconds <= 60) {
-            this.shortBreakSeconds = shortBreakSeconds;
+    /**
+     * 应用一份完整的设置（例如设置文件被修改后）：测试模式不同时先切换模式，休息时间与setBreakTimes一样校验范围，
+     * 正在进行的休息不受影响，下一次休息使用新的时长。
+     * 测试模式下继续使用测试计划的休息时间，文件中的休息时间在关闭测试模式时生效
+     */
+    public synchronized void applySettings(Settings next) {
+        if (next.isTestMode() != isTestMode()) setTestMode(next.isTestMode());
+        if (isTestMode()) {
+            if (settingsBeforeTest != null) {
+                settingsBeforeTest = withValidBreakTimes(settingsBeforeTest, next.getShortBreakSeconds(), next.getLongBreakSeconds());
+            }
+            settings = settings.withVolume(next.getVolume());
+        } else {
+            settings = withValidBreakTimes(settings.withVolume(next.getVolume()), next.getShortBreakSeconds(), next.getLongBreakSeconds());
         }
-        if (longBreakSeconds >= 15 * 60 && longBreakSeconds <= 30 * 60) {
-            this.longBreakSeconds = longBreakSeconds;
+    }
+
+    /**
+     * 用户的设置快照，用于保存：测试模式下休息时间为进入测试模式之前的值，而不是测试计划的休息时间
+     */
+    public synchronized Settings getSettings() {
+        if (!isTestMode()) return settings;
+        Settings user = settingsBeforeTest != null ? settingsBeforeTest : Settings.DEFAULTS;
+        return user.withVolume(settings.getVolume()).withTestMode(true);
+    }
+
+    /**
+     * 切换学习计划，可以在学习过程中切换：已学习时间保留，从新计划中对应的位置继续。
+     * 计划在加锁之前编译，切换本身只是替换时间表并重新定位下一个截止时间。
+     */
+    public void setPlan(CyclePlan plan) {
+        CycleSchedule compiled = plan.compile(nextSeed());
+        synchronized (this) {
+            applySchedule(compiled);
+            scheduleBeforeTest = null;
+            settingsBeforeTest = null;
+            // 从新计划中当前所在的小段继续，这一段的提醒已经过去时从下一段开始
+            int elapsed = getElapsedSeconds();
+            int index = schedule.indexFor(elapsed, -1);
+            int reminder = schedule.reminderAt(cycleNumber, index);
+            if (reminder >= 0 && reminder < elapsed) index++;
+            nextReminderIndex = index;
+            lastTriggeredCycle = index - 1;
+            if (stateManager.getState() == LearningState.STUDYING) {
+                scheduleNextDeadline();
+            }
+            updateProgressBar();
+            Log.info("学习计划已切换为：{}", plan.getName());
         }
     }
 
-    public int[] getBreakTimes() {
-        return new int[]{shortBreakSeconds, longBreakSeconds};
+    public synchronized CyclePlan getPlan() {
+        return schedule.getPlan();
     }
 
-    public void start() {
-        stateManager.setState(LearningState.STUDYING);
-        scheduledTask = scheduler.scheduleAtFixedRate(this::tick, 0, 1, TimeUnit.SECONDS);
-        System.out.println("学习计时器启动");
+    private synchronized long nextSeed() {
+        return random.nextLong();
     }
 
-    public void pause() {
-        if (scheduledTask != null) scheduledTask.cancel(false);
-        stateManager.setState(LearningState.PAUSED);
-        System.out.println("学习已暂停");
+    private void applySchedule(CycleSchedule compiled) {
+        schedule = compiled;
+        CyclePlan plan = compiled.getPlan();
+        settings = settings.withBreakTimes(plan.getShortBreakSeconds(), plan.getLongBreakSeconds()).withTestMode(plan.isTest());
     }
 
-    public void stop() {
-        if (scheduledTask != null) scheduledTask.cancel(true);
-        scheduler.shutdownNow();
-        System.out.println("学习任务已停止");
+    public synchronized void start() {
+        if (!changeState(LearningState.STUDYING)) return;
+        cancelTasks();
+        calendarPaused = false;
+        // 在忙碌时段中手动开始表示这次安排不需要暂停；时段结束后自动恢复时这里为-1
+        ignoreBusyUntil = calendar != null ? calendar.busyUntil(clock.currentTimeMillis()) : -1;
+        breakEndNanos = -1;
+        segmentStartNanos = clock.nanoTime();
+        scheduleNextDeadline();
+        updateRefreshTask();
+        updateProgressBar();
+        Log.info("学习计时器启动");
     }
 
-    private void tick() {
-        if (stateManager.getState() != LearningState.STUDYING) return;
+    public synchronized void pause() {
+        stopSegment();
+        if (!changeState(LearningState.PAUSED)) return;
+        cancelTasks();
+        calendarPaused = false;
+        updateRefreshTask();
+        Log.info("学习已暂停");
+    }
 
-        elapsedSeconds++;
+    /**
+     * 因长时间无操作自动暂停：无操作的这段时间不计入学习时间（最多扣除到本段学习开始时）
+     * @param idleNanos 已经无操作的时长
+     * @return 是否已暂停（不在学习状态时返回false）
+     */
+    public synchronized boolean pauseIdle(long idleNanos) {
+        if (!stateManager.isStudying()) return false;
+        long deducted = 0;
+        if (segmentStartNanos >= 0) {
+            long now = clock.nanoTime();
+            long end = Math.max(segmentStartNanos, now - Math.max(0, idleNanos));
+            accumulatedNanos += end - segmentStartNanos;
+            deducted = now - end;
+            segmentStartNanos = -1;
+        }
+        // 状态监听器（学习统计）和会话日志在切换期间通过getIdleDeductedMillis得到扣除的时间
+        idleDeductedNanos = deducted;
+        boolean paused;
+        try {
+            paused = changeState(LearningState.PAUSED);
+        } finally {
+            idleDeductedNanos = 0;
+        }
+        if (!paused) return false;
+        nextReminderIndex = -1;
+        cancelTasks();
+        updateRefreshTask();
         updateProgressBar();
+        Log.info("学习已自动暂停，扣除无操作时间 {} 秒", TimeUnit.NANOSECONDS.toSeconds(idleNanos));
+        return true;
+    }
 
-        // 检查是否完成学习周期
-        if (testMode) {
-            // 测试模式：3个小周期后进入长休息
-            if (elapsedSeconds >= TEST_CYCLE_SECONDS * TEST_TOTAL_CYCLES) {
-                invokeLongBreak();
-                nextReminderTime = -1; // 重置提示音时间
-                lastTriggeredCycle = -1; // 重置触发周期记录
-                return;
-            }
-        } else {
-            // 正常模式：90分钟后进入长休息
-            if (elapsedSeconds >= CYCLE_SECONDS) {
-                invokeLongBreak();
-                nextReminderTime = -1; // 重置提示音时间
-                lastTriggeredCycle = -1; // 重置触发周期记录
-                return;
-            }
+    public synchronized void stop() {
+        cancelTasks();
+        stopSegment();
+        // 退出前记录当前进度，下次启动时恢复
+        if (journal != null) {
+            journal.append(SessionJournal.TYPE_CHECKPOINT, stateManager.getState(), getElapsedSeconds(), lastTriggeredCycle, 0);
+            journal.close();
         }
-        
-        handleReminders();
-    }
-    
-    private void handleReminders() {
-        if (testMode) {
-            // 测试模式下的逻辑：每60秒周期中，在30-45秒之间随机触发提示音
-            int currentCycle = elapsedSeconds / TEST_CYCLE_SECONDS;
-            int secondsInCurrentCycle = elapsedSeconds % TEST_CYCLE_SECONDS;
-
-            // 只在新周期开始时且该周期未触发过提示音时才设置新的提示音时间
-            if ((secondsInCurrentCycle == 0 || nextReminderTime == -1) && currentCycle != lastTriggeredCycle) {
-                // 在每个60秒周期的30-45秒之间随机触发（相当于正常模式的3-5分钟比例）
-                nextReminderTime = currentCycle * TEST_CYCLE_SECONDS + 30 + random.nextInt(16);
-                System.out.println("测试模式：下一次提示音将在 " + nextReminderTime + " 秒触发（测试周期" + (currentCycle + 1) + "）");
-            }
+        Log.info("学习任务已停止");
+    }
+
+    /**
+     * 设置会话日志，并从日志的最后一条记录恢复上次被中断的会话（恢复为暂停状态）
+     */
+    public synchronized void setJournal(SessionJournal journal) {
+        this.journal = journal;
+        SessionJournal.Record last = journal.getLastRecord();
+        if (last == null || last.state == LearningState.IDLE || !stateManager.isIdle()) return;
+
+        if (last.elapsedSeconds < getCycleSeconds()) {
+            accumulatedNanos = TimeUnit.SECONDS.toNanos(last.elapsedSeconds);
+            lastTriggeredCycle = last.lastTriggeredCycle;
+        }
+        nextReminderIndex = -1;
+        changeState(LearningState.PAUSED);
+        updateProgressBar();
+        Log.info("已恢复上次中断的学习会话：已学习 {} 秒，点击开始继续", getElapsedSeconds());
+    }
+
+    /**
+     * 设置日历：学习中遇到忙碌时段时自动暂停，时段结束后自动继续；短休息会和下一个时段重叠时跳过这次休息
+     */
+    public synchronized void setBusyCalendar(BusyCalendar calendar) {
+        this.calendar = calendar;
+        ignoreBusyUntil = -1;
+        calendarChanged();
+    }
+
+    /**
+     * 日历内容变化后调用：学习中重新计算下一个截止时间，因日历暂停时重新检查时段的结束时间
+     */
+    public synchronized void calendarChanged() {
+        LearningState state = stateManager.getState();
+        if (state == LearningState.STUDYING) {
+            scheduleNextDeadline();
+        } else if (state == LearningState.PAUSED && calendarPaused) {
+            if (resumeTask != null) resumeTask.cancel();
+            resumeTask = null;
+            finishBusy();
+        }
+    }
+
+    /**
+     * 计时状态的快照，用于在多台设备之间同步
+     */
+    public static final class Snapshot {
+        public final LearningState state;
+        public final long elapsedMillis;          // 当前周期内已学习的时间
+        public final int lastTriggeredCycle;      // 最近一次触发提醒的小段下标
+        public final long breakRemainingMillis;   // 休息剩余时间，不在休息时为0
+        public final int breakTotalSeconds;
+        public final boolean longBreak;
+
+        public Snapshot(LearningState state, long elapsedMillis, int lastTriggeredCycle,
+                        long breakRemainingMillis, int breakTotalSeconds, boolean longBreak) {
+            this.state = state;
+            this.elapsedMillis = elapsedMillis;
+            this.lastTriggeredCycle = lastTriggeredCycle;
+            this.breakRemainingMillis = breakRemainingMillis;
+            this.breakTotalSeconds = breakTotalSeconds;
+            this.longBreak = longBreak;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{state=" + state + ", elapsed=" + elapsedMillis + "ms, cycle=" + lastTriggeredCycle
+                    + ", breakRemaining=" + breakRemainingMillis + "ms, breakTotal=" + breakTotalSeconds
+                    + "s, longBreak=" + longBreak + "}";
+        }
+    }
 
-            // 到达提示时间，播放提示音并进入短休息状态
-            if (elapsedSeconds == nextReminderTime && currentCycle != lastTriggeredCycle) {
-                System.out.println("测试模式：提示音触发于 " + elapsedSeconds + " 秒");
-                lastTriggeredCycle = currentCycle; // 记录已触发的周期
-                invokeShortBreak(true); // 使用测试模式短休息
-                nextReminderTime = -1; // 重置提示时间
+    public synchronized Snapshot snapshot() {
+        long nanos = accumulatedNanos;
+        if (segmentStartNanos >= 0) nanos += clock.nanoTime() - segmentStartNanos;
+        long breakRemaining = breakEndNanos >= 0 ? Math.max(0, breakEndNanos - clock.nanoTime()) : 0;
+        return new Snapshot(stateManager.getState(), TimeUnit.NANOSECONDS.toMillis(nanos), lastTriggeredCycle,
+                TimeUnit.NANOSECONDS.toMillis(breakRemaining), breakTotalSeconds, longBreakActive);
+    }
+
+    /**
+     * 采用另一台设备的计时状态：切换到快照的状态，已学习时间和休息剩余时间以快照为准，
+     * 从快照中最近触发的提醒之后继续。状态机不允许直接切换时（例如 BREAK -> PAUSED）经过STUDYING
+     */
+    public synchronized void applySnapshot(Snapshot remote) {
+        LearningState current = stateManager.getState();
+        cancelTasks();
+        stopSegment();
+        calendarPaused = false;
+        accumulatedNanos = TimeUnit.MILLISECONDS.toNanos(remote.elapsedMillis);
+        lastTriggeredCycle = remote.lastTriggeredCycle;
+        nextReminderIndex = -1;
+        breakEndNanos = -1;
+        if (remote.state == LearningState.BREAK) {
+            if (current != LearningState.BREAK && remote.longBreak) cycleNumber++;
+            breakTotalSeconds = remote.breakTotalSeconds;
+            longBreakActive = remote.longBreak;
+        }
+        if (current != remote.state) {
+            if (!StateManager.isAllowed(current, remote.state)) changeState(LearningState.STUDYING);
+            changeState(remote.state);
+        }
+
+        if (remote.state == LearningState.STUDYING) {
+            // 另一台设备在忙碌时段中开始学习，与在本机手动开始相同
+            if (current != LearningState.STUDYING && calendar != null) {
+                ignoreBusyUntil = calendar.busyUntil(clock.currentTimeMillis());
             }
-        } else {
-            // 正常模式下的逻辑
-            // 每五分钟的学习周期
-            int currentCycle = elapsedSeconds / REMINDER_CYCLE;
-            int secondsInCurrentCycle = elapsedSeconds % REMINDER_CYCLE;
-
-            // 只在新周期开始时且该周期未触发过提示音时才设置新的提示音时间
-            if ((secondsInCurrentCycle == 0 || nextReminderTime == -1) && currentCycle != lastTriggeredCycle) {
-                // 第三分钟到第五分钟之间随机（180-300秒）
-                nextReminderTime = currentCycle * REMINDER_CYCLE + 180 + random.nextInt(121);
-                System.out.println("下一次提示音将在 " + nextReminderTime + " 秒触发（周期" + (currentCycle + 1) + "）");
+            segmentStartNanos = clock.nanoTime();
+            scheduleNextDeadline();
+        } else if (remote.state == LearningState.BREAK) {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(remote.breakRemainingMillis);
+            breakEndNanos = clock.nanoTime() + remainingNanos;
+            resumeTask = clock.schedule(this::finishBreak, remainingNanos, TimeUnit.NANOSECONDS);
+        }
+        updateRefreshTask();
+        refreshDisplay();
+
+        if (current != LearningState.BREAK && remote.state == LearningState.BREAK) {
+            sink.breakStarted(remote.longBreak, remote.breakTotalSeconds);
+        } else if (current == LearningState.BREAK && remote.state == LearningState.STUDYING) {
+            sink.breakFinished();
+        }
+    }
+
+    // 切换状态并写入会话日志，非法切换返回false
+    private boolean changeState(LearningState newState) {
+        if (!stateManager.setState(newState)) return false;
+        if (journal != null) {
+            int extra = 0;
+            if (newState == LearningState.BREAK) {
+                extra = breakTotalSeconds;
+            } else if (newState == LearningState.PAUSED) {
+                extra = (int) TimeUnit.NANOSECONDS.toSeconds(idleDeductedNanos);
             }
+            journal.append(SessionJournal.TYPE_STATE, newState, getElapsedSeconds(), lastTriggeredCycle, extra);
+        }
+        return true;
+    }
+
+    /**
+     * 在切换到PAUSED的状态监听器中调用：因无操作自动暂停时返回从学习时间中扣除的毫秒数，其他切换返回0
+     */
+    public synchronized long getIdleDeductedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(idleDeductedNanos);
+    }
+
+    /**
+     * 窗口显示或隐藏时调用：隐藏时停止界面刷新，只在真正的截止时间醒来
+     */
+    public synchronized void setDisplayVisible(boolean visible) {
+        this.displayVisible = visible;
+        updateRefreshTask();
+        if (visible) refreshDisplay();
+    }
+
+    /**
+     * 当前学习周期内已学习的秒数
+     */
+    public synchronized int getElapsedSeconds() {
+        long nanos = accumulatedNanos;
+        if (segmentStartNanos >= 0) nanos += clock.nanoTime() - segmentStartNanos;
+        return (int) TimeUnit.NANOSECONDS.toSeconds(nanos);
+    }
+
+    /**
+     * 当前（或最近一次）休息的计划时长（秒）
+     */
+    public synchronized int getBreakTotalSeconds() {
+        return breakTotalSeconds;
+    }
+
+    /**
+     * 当前休息剩余的秒数（向上取整），不在休息时为0
+     */
+    public synchronized int getBreakRemainingSeconds() {
+        if (breakEndNanos < 0) return 0;
+        long remainingNanos = Math.max(0, breakEndNanos - clock.nanoTime());
+        return (int) Math.min(breakTotalSeconds, TimeUnit.NANOSECONDS.toSeconds(remainingNanos + 999_999_999L));
+    }
+
+    /**
+     * 最近一次提醒/周期截止任务实际执行时间与预定时间之差（纳秒）
+     */
+    public long getLastDispatchLatenessNanos() {
+        return lastDispatchLatenessNanos;
+    }
+
+    /**
+     * 最近一次休息结束时间到实际恢复为学习状态之间的延迟（纳秒）
+     */
+    public long getLastResumeLatenessNanos() {
+        return lastResumeLatenessNanos;
+    }
+
+    /**
+     * 休息结束到恢复学习的平均延迟（纳秒）
+     */
+    public synchronized long getAverageResumeLatenessNanos() {
+        return resumeCount == 0 ? 0 : totalResumeLatenessNanos / resumeCount;
+    }
+
+    // 取消学习截止、界面刷新和恢复任务，避免中断休息后残留任务
+    private void cancelTasks() {
+        if (scheduledTask != null) {
+            scheduledTask.cancel();
+            scheduledTask = null;
+        }
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+        if (resumeTask != null) {
+            resumeTask.cancel();
+            resumeTask = null;
+        }
+    }
+
+    // 结束当前学习段，把时间累计起来
+    private void stopSegment() {
+        if (segmentStartNanos >= 0) {
+            accumulatedNanos += clock.nanoTime() - segmentStartNanos;
+            segmentStartNanos = -1;
+        }
+    }
 
-            // 到达提示时间，播放提示音并进入短休息状态
-            if (elapsedSeconds == nextReminderTime && currentCycle != lastTriggeredCycle) {
-                System.out.println("提示音触发于 " + elapsedSeconds + " 秒");
-                lastTriggeredCycle = currentCycle; // 记录已触发的周期
-                invokeShortBreak(false); // 正常模式短休息
-                nextReminderTime = -1; // 重置提示时间，等待下一个周期
+    /**
+     * 当前计划的学习周期时长（秒）
+     */
+    public synchronized int getCycleSeconds() {
+        return schedule.getCycleSeconds();
+    }
+
+    // 计算下一个真正的截止时间（提示音或周期结束），只在那时唤醒
+    private void scheduleNextDeadline() {
+        if (scheduledTask != null) scheduledTask.cancel();
+        int reminder = nextReminderTime(getElapsedSeconds());
+        int deadline = getCycleSeconds();
+        if (reminder >= 0 && reminder < deadline) {
+            deadline = reminder;
+        }
+        long studiedNanos = accumulatedNanos + (segmentStartNanos >= 0 ? clock.nanoTime() - segmentStartNanos : 0);
+        long delayNanos = Math.max(0, TimeUnit.SECONDS.toNanos(deadline) - studiedNanos);
+        if (calendar != null) {
+            // 截止时间之前开始的忙碌时段提前唤醒，由tick暂停
+            long nowMillis = clock.currentTimeMillis();
+            long from = Math.max(nowMillis, ignoreBusyUntil);
+            long busyStart = calendar.firstBusyStart(from, nowMillis + TimeUnit.NANOSECONDS.toMillis(delayNanos));
+            if (busyStart >= 0) {
+                delayNanos = Math.min(delayNanos, TimeUnit.MILLISECONDS.toNanos(Math.max(busyStart, from) - nowMillis));
             }
         }
+        deadlineClockNanos = clock.nanoTime() + delayNanos;
+        scheduledTask = clock.schedule(this::tick, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // 到达截止时间时执行
+    private synchronized void tick() {
+        if (stateManager.getState() != LearningState.STUDYING) return;
+        scheduledTask = null;
+        long tickStartNanos = System.nanoTime();
+        StudyEvents.TimerTick event = new StudyEvents.TimerTick();
+        event.begin();
+        long lateness = clock.nanoTime() - deadlineClockNanos;
+        lastDispatchLatenessNanos = lateness;
+        DISPATCH_LATENESS.record(lateness);
+
+        if (pauseForBusy()) {
+            TICK_DURATION.record(System.nanoTime() - tickStartNanos);
+            return;
+        }
+
+        int elapsedSeconds = getElapsedSeconds();
+
+        // 检查是否完成学习周期（测试模式：3个小周期；正常模式：90分钟）
+        if (elapsedSeconds >= getCycleSeconds()) {
+            LONG_BREAKS.increment();
+            recordReminder(true, getCycleSeconds(), elapsedSeconds, lateness);
+            invokeLongBreak();
+            cycleNumber++; // 下一个周期使用时间表的下一个版本
+            nextReminderIndex = 0;
+            lastTriggeredCycle = -1; // 重置触发周期记录
+        } else if (!handleReminders(elapsedSeconds)) {
+            // 还没到任何截止时间（提前唤醒），重新计算
+            scheduleNextDeadline();
+        }
+
+        TICK_DURATION.record(System.nanoTime() - tickStartNanos);
+        if (event.shouldCommit()) {
+            event.elapsedSeconds = elapsedSeconds;
+            event.latenessNanos = lateness;
+            event.commit();
+        }
+    }
+
+    // 当前处在（未被用户忽略的）忙碌时段中时暂停学习，并在时段结束时自动继续
+    private boolean pauseForBusy() {
+        if (calendar == null) return false;
+        long until = calendar.busyUntil(clock.currentTimeMillis());
+        if (until < 0 || until <= ignoreBusyUntil) return false;
+        stopSegment();
+        if (!changeState(LearningState.PAUSED)) return false;
+        cancelTasks();
+        calendarPaused = true;
+        scheduleBusyEnd(until);
+        updateRefreshTask();
+        updateProgressBar();
+        CALENDAR_PAUSES.increment();
+        Log.info("日历中有安排，学习已暂停，将在 {} 秒后自动继续", TimeUnit.MILLISECONDS.toSeconds(until - clock.currentTimeMillis()));
+        sink.busyChanged(true, until);
+        return true;
+    }
+
+    private void scheduleBusyEnd(long untilMillis) {
+        resumeTask = clock.schedule(this::finishBusy, Math.max(0, untilMillis - clock.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    // 忙碌时段结束：日历在此期间被修改、时段延长时继续等待，否则恢复学习
+    private synchronized void finishBusy() {
+        resumeTask = null;
+        if (!calendarPaused || stateManager.getState() != LearningState.PAUSED) return;
+        long until = calendar != null ? calendar.busyUntil(clock.currentTimeMillis()) : -1;
+        if (until >= 0) {
+            scheduleBusyEnd(until);
+            return;
+        }
+        start();
+        Log.info("日程结束，自动继续学习");
+        sink.busyChanged(false, -1);
+    }
+
+    // 短休息会和忙碌时段重叠时跳过这次休息，时段本身就是离开学习的时间
+    private boolean busyDuringShortBreak() {
+        if (calendar == null) return false;
+        long nowMillis = clock.currentTimeMillis();
+        long from = Math.max(nowMillis, ignoreBusyUntil);
+        long breakEnd = nowMillis + TimeUnit.SECONDS.toMillis(settings.getShortBreakSeconds());
+        return from < breakEnd && calendar.firstBusyStart(from, breakEnd) >= 0;
+    }
+
+    // 记录提醒的预定时间与实际触发时间之差
+    private static void recordReminder(boolean longBreak, int scheduledSecond, int firedSecond, long skewNanos) {
+        StudyEvents.ReminderFired event = new StudyEvents.ReminderFired();
+        if (event.isEnabled()) {
+            event.longBreak = longBreak;
+            event.scheduledSecond = scheduledSecond;
+            event.firedSecond = firedSecond;
+            event.skewNanos = skewNanos;
+            event.commit();
+        }
+    }
+
+    private static void recordBreakStarted(boolean longBreak, int plannedSeconds) {
+        StudyEvents.BreakStarted event = new StudyEvents.BreakStarted();
+        if (event.isEnabled()) {
+            event.longBreak = longBreak;
+            event.plannedSeconds = plannedSeconds;
+            event.commit();
+        }
+    }
+
+    // 当前周期的下一个提示音时间（秒），没有时返回-1；只在恢复会话或切换计划后重新定位下标
+    private int nextReminderTime(int elapsedSeconds) {
+        boolean located = nextReminderIndex < 0;
+        if (located) {
+            nextReminderIndex = schedule.indexFor(elapsedSeconds, lastTriggeredCycle);
+        }
+        int reminder = schedule.reminderAt(cycleNumber, nextReminderIndex);
+        if (located && reminder >= 0) {
+            Log.info("{}下一次提示音将在 {} 秒触发（周期{}）", isTestMode() ? "测试模式：" : "", reminder, nextReminderIndex + 1);
+        }
+        return reminder;
+    }
+
+    // 到达提示时间时播放提示音并进入短休息，返回是否已处理
+    private boolean handleReminders(int elapsedSeconds) {
+        int reminder = schedule.reminderAt(cycleNumber, nextReminderIndex);
+        if (reminder < 0 || elapsedSeconds < reminder) return false;
+
+        Log.info("{}提示音触发于 {} 秒", isTestMode() ? "测试模式：" : "", elapsedSeconds);
+        REMINDERS.increment();
+        recordReminder(false, reminder, elapsedSeconds, lastDispatchLatenessNanos);
+        lastTriggeredCycle = nextReminderIndex; // 记录已触发的小段
+        if (journal != null) {
+            journal.append(SessionJournal.TYPE_REMINDER, LearningState.STUDYING, elapsedSeconds, lastTriggeredCycle, 0);
+        }
+        nextReminderIndex++; // 指向下一个小段的提醒
+        int next = schedule.reminderAt(cycleNumber, nextReminderIndex);
+        if (next >= 0) {
+            Log.info("{}下一次提示音将在 {} 秒触发（周期{}）", isTestMode() ? "测试模式：" : "", next, nextReminderIndex + 1);
+        }
+        if (busyDuringShortBreak()) {
+            CALENDAR_SKIPPED_BREAKS.increment();
+            Log.info("短休息期间日历中有安排，跳过这次休息");
+            scheduleNextDeadline();
+            return true;
+        }
+        invokeShortBreak();
+        return true;
     }
 
-    private void invokeShortBreak(boolean testMode) {
+    private void invokeShortBreak() {
         // 更新状态
-        stateManager.setState(LearningState.BREAK);
+        stopSegment();
+        breakTotalSeconds = settings.getShortBreakSeconds();
+        longBreakActive = false;
+        changeState(LearningState.BREAK);
+        recordBreakStarted(false, breakTotalSeconds);
         
-        // 播放声音并显示弹窗
-        SwingUtilities.invokeLater(() -> {
-            // 首先触发声音播放
-            SoundPlayer.playSound("short_break.wav");
-            JOptionPane.showMessageDialog(null, "该休息了！短休息 " + (testMode ? TEST_SHORT_BREAK : shortBreakSeconds) + " 秒！", "休息提醒", JOptionPane.INFORMATION_MESSAGE);
-        });
+        // 播放声音并通知用户
+        sink.breakStarted(false, breakTotalSeconds);
 
-        pauseTimerThenResume(testMode ? TEST_SHORT_BREAK : shortBreakSeconds);
+        pauseTimerThenResume(breakTotalSeconds);
     }
 
     private void invokeLongBreak() {
         // 更新状态
-        stateManager.setState(LearningState.BREAK);
-
-        int breakDuration = testMode ? TEST_LONG_BREAK : longBreakSeconds;
-        String durationText = testMode ? breakDuration + " 秒" : (breakDuration / 60) + " 分钟";
+        stopSegment();
+        int breakDuration = settings.getLongBreakSeconds();
+        breakTotalSeconds = breakDuration;
+        longBreakActive = true;
+        changeState(LearningState.BREAK);
+        recordBreakStarted(true, breakDuration);
 
-        // 播放声音并显示弹窗
-        SwingUtilities.invokeLater(() -> {
-            // 首先触发声音播放
-            SoundPlayer.playSound("short_break.wav");
-            JOptionPane.showMessageDialog(null, "学习周期结束！开始 " + durationText + " 长休息", "休息提醒", JOptionPane.INFORMATION_MESSAGE);
-        });
+        // 播放声音并通知用户
+        sink.breakStarted(true, breakDuration);
 
         pauseTimerThenResume(breakDuration);
-        elapsedSeconds = 0;
+        accumulatedNanos = 0;
     }
 
     private void pauseTimerThenResume(int seconds) {
-        if (scheduledTask != null) scheduledTask.cancel(false);
+        cancelTasks();
 
-        // 创建一个单独的计时器任务用于倒计时显示
-        final int[] remainingSeconds = {seconds};
-        final ScheduledExecutorService countdownService = Executors.newSingleThreadScheduledExecutor();
-        
-        // 显示倒计时的进度条
-        updateBreakProgressBar(remainingSeconds[0], seconds);
-        
-        // 每秒更新倒计时显示
-        ScheduledFuture<?> countdownTask = countdownService.scheduleAtFixedRate(() -> {
-            remainingSeconds[0]--;
-            if (remainingSeconds[0] >= 0) {
-                updateBreakProgressBar(remainingSeconds[0], seconds);
-            } else {
-                countdownService.shutdown();
-            }
-        }, 1, 1, TimeUnit.SECONDS);
-
-        // 使用单次执行任务而不是延迟任务，可能会减少延迟
-        ScheduledFuture<?> breakTask = scheduler.schedule(() -> {
-            if (stateManager.getState() == LearningState.BREAK) {
-                // 取消倒计时任务
-                countdownTask.cancel(false);
-                countdownService.shutdown();
-                
-                // 播放声音并显示弹窗，然后恢复状态
-                SwingUtilities.invokeLater(() -> {
-                    // 播放声音
-                SoundPlayer.playSound("short_break.wav");
-                    JOptionPane.showMessageDialog(null, "休息结束！该继续学习了", "学习提醒", JOptionPane.INFORMATION_MESSAGE);
-                
-                    // 恢复状态
-                stateManager.setState(LearningState.STUDYING);
-                    
-                    // 启动计时器
-                    scheduledTask = scheduler.scheduleAtFixedRate(this::tick, 0, 1, TimeUnit.SECONDS);
-                
-                // 立即更新一次进度条
-                updateProgressBar();
-                
-                System.out.println("休息结束，恢复学习计时");
-                });
-            }
-        }, seconds, TimeUnit.SECONDS);
+        // 休息的结束时间，倒计时显示由界面刷新任务根据它计算
+        breakTotalSeconds = seconds;
+        breakEndNanos = clock.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        updateBreakProgressBar(seconds, seconds);
+        updateRefreshTask();
+
+        resumeTask = clock.schedule(this::finishBreak, seconds, TimeUnit.SECONDS);
     }
 
-    // 更新休息状态下的进度条
-    private void updateBreakProgressBar(int remainingSeconds, int totalSeconds) {
-        try {
-            SwingUtilities.invokeLater(() -> {
-                JProgressBar bar = mainWindow.getProgressBar();
-                if (bar != null) {
-                    // 设置进度条范围为休息总时长
-                    bar.setMaximum(totalSeconds);
-                    bar.setValue(totalSeconds - remainingSeconds);
-                    
-                    // 显示倒计时
-                    bar.setString(String.format("休息剩余: %02d:%02d", remainingSeconds / 60, remainingSeconds % 60));
-                    
-                    // 设置为不同颜色以区分学习状态
-                    bar.setForeground(new Color(155, 89, 182)); // 紫色表示休息
-                }
-            });
-        } catch (Exception e) {
-            System.err.println("更新休息进度条时出错: " + e.getMessage());
+    // 休息结束：在调度线程上立即恢复学习，再通知用户，不等待界面确认
+    private synchronized void finishBreak() {
+        resumeTask = null;
+        long endNanos = breakEndNanos;
+        int plannedSeconds = breakTotalSeconds;
+        if (!resumeStudy()) return;
+        long lateness = clock.nanoTime() - endNanos;
+        lastResumeLatenessNanos = lateness;
+        resumeCount++;
+        totalResumeLatenessNanos += lateness;
+        RESUMES.increment();
+        RESUME_LATENESS.record(lateness);
+        StudyEvents.BreakEnded event = new StudyEvents.BreakEnded();
+        if (event.isEnabled()) {
+            event.plannedSeconds = plannedSeconds;
+            event.resumeLatenessNanos = lateness;
+            event.commit();
         }
+        Log.info("休息结束，恢复学习计时");
+        sink.breakFinished();
     }
 
-    private void updateProgressBar() {
-        // 不使用SwingUtilities.invokeLater可能会导致线程问题，但通过直接调用可以减少延迟
-        // 这是一个权衡，如果后续发现界面更新不稳定，可能需要改回invokeLater方式
-        try {
-            JProgressBar bar = mainWindow.getProgressBar();
-            if (bar != null) {
-                // 设置为学习状态的进度条范围
-                int totalSeconds = testMode ? (TEST_CYCLE_SECONDS * TEST_TOTAL_CYCLES) : CYCLE_SECONDS;
-                bar.setMaximum(totalSeconds);
-                bar.setValue(elapsedSeconds);
-
-                int remaining = totalSeconds - elapsedSeconds;
-                String timeText = testMode ?
-                    String.format("测试剩余：%02d:%02d", remaining / 60, remaining % 60) :
-                    String.format("学习剩余：%02d:%02d", remaining / 60, remaining % 60);
-                bar.setString(timeText);
-
-                // 设置为绿色表示学习状态
-                bar.setForeground(new Color(46, 204, 113));
-            }
-        } catch (Exception e) {
-            // 捕获可能的线程问题
-            System.err.println("更新进度条时出错: " + e.getMessage());
+    private synchronized boolean resumeStudy() {
+        // 休息期间用户可能已手动开始或停止，只从BREAK切换
+        if (!stateManager.compareAndSet(LearningState.BREAK, LearningState.STUDYING)) return false;
+        if (journal != null) {
+            journal.append(SessionJournal.TYPE_STATE, LearningState.STUDYING, getElapsedSeconds(), lastTriggeredCycle, 0);
         }
+        cancelTasks();
+        breakEndNanos = -1;
+        segmentStartNanos = clock.nanoTime();
+        scheduleNextDeadline();
+        updateRefreshTask();
+
+        // 立即更新一次进度条
+        updateProgressBar();
+        return true;
+    }
+
+    // 窗口可见且在学习或休息时才按固定间隔刷新界面
+    private synchronized void updateRefreshTask() {
+        LearningState state = stateManager.getState();
+        boolean needRefresh = displayVisible && (state == LearningState.STUDYING || state == LearningState.BREAK);
+        if (needRefresh && refreshTask == null) {
+            refreshTask = clock.scheduleAtFixedRate(this::refreshDisplay,
+                    REFRESH_INTERVAL_MILLIS, REFRESH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } else if (!needRefresh && refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+
+    // 按当前状态输出一次进度；窗口重新显示时空闲和暂停状态也需要一次完整的进度
+    private synchronized void refreshDisplay() {
+        if (stateManager.getState() == LearningState.BREAK && breakEndNanos >= 0) {
+            updateBreakProgressBar(getBreakRemainingSeconds(), breakTotalSeconds);
+        } else {
+            updateProgressBar();
+        }
+    }
+
+    // 更新休息状态下的进度
+    private void updateBreakProgressBar(int remainingSeconds, int totalSeconds) {
+        sink.showBreakProgress(remainingSeconds, totalSeconds);
     }
 
-    public void setTestMode(boolean enabled) {
-        this.testMode = enabled;
+    private void updateProgressBar() {
+        int totalSeconds = getCycleSeconds();
+        sink.showStudyProgress(Math.min(getElapsedSeconds(), totalSeconds), totalSeconds, isTestMode());
+    }
+
+    public synchronized void setTestMode(boolean enabled) {
+        // 测试模式是一个缩短的学习计划，关闭时恢复之前的计划和休息时间
+        if (enabled && !isTestMode()) {
+            scheduleBeforeTest = schedule;
+            settingsBeforeTest = settings;
+            applySchedule(CyclePlan.TEST.compile(random.nextLong()));
+        } else if (!enabled && isTestMode()) {
+            if (scheduleBeforeTest != null) {
+                schedule = scheduleBeforeTest;
+                settings = settingsBeforeTest.withVolume(settings.getVolume());
+                scheduleBeforeTest = null;
+                settingsBeforeTest = null;
+            } else {
+                applySchedule(CyclePlan.CLASSIC.compile(random.nextLong()));
+            }
+        }
 
         // 如果当前正在学习或暂停状态，需要停止计时器并重置状态
         if (stateManager.isStudying() || stateManager.isPaused()) {
             // 停止当前的计时任务
-            if (scheduledTask != null) {
-                scheduledTask.cancel(false);
-                scheduledTask = null;
-            }
+            cancelTasks();
 
             // 重置状态为空闲
-            stateManager.setState(LearningState.IDLE);
-            System.out.println("模式切换：已停止当前学习任务，请重新点击开始学习");
+            changeState(LearningState.IDLE);
+            Log.info("模式切换：已停止当前学习任务，请重新点击开始学习");
         }
 
         // 重置计时相关变量
-        elapsedSeconds = 0;
-        nextReminderTime = -1;
+        stopSegment();
+        accumulatedNanos = 0;
+        cycleNumber = 0;
+        nextReminderIndex = -1;
         lastTriggeredCycle = -1;
 
         // 更新进度条显示
         updateProgressBar();
 
         if (enabled) {
-            System.out.println("测试模式已启用：60秒周期，30-45秒随机提示音，10秒短休息，3周期后30秒长休息");
+            Log.info("测试模式已启用：60秒周期，30-45秒随机提示音，10秒短休息，3周期后30秒长休息");
         } else {
-            System.out.println("测试模式已禁用，恢复正常模式：5分钟周期，3-5分钟随机提示音");
+            Log.info("测试模式已禁用，恢复学习计划：{}", schedule.getPlan().getName());
         }
     }
 
-    public boolean isTestMode() {
-        return testMode;
+    public synchronized boolean isTestMode() {
+        return schedule.getPlan().isTest();
     }
 } 
\ No newline at end of file
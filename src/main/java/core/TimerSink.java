@@ -0,0 +1,36 @@
+package core;
+
+/**
+ * 计时引擎的输出接口：TimerService只负责计时和周期逻辑，
+ * 进度显示、提示音和弹窗由具体实现（Swing界面或无界面模式）处理。
+ * 方法在计时线程上调用，实现中不要阻塞。
+ */
+public interface TimerSink {
+
+    /**
+     * 学习进度
+     */
+    void showStudyProgress(int elapsedSeconds, int totalSeconds, boolean testMode);
+
+    /**
+     * 休息倒计时
+     */
+    void showBreakProgress(int remainingSeconds, int totalSeconds);
+
+    /**
+     * 进入休息（此时状态已切换为BREAK）
+     * @param longBreak 是否为学习周期结束后的长休息
+     */
+    void breakStarted(boolean longBreak, int breakSeconds);
+
+    /**
+     * 休息时间到（此时已在计时线程上恢复为STUDYING），只负责通知用户
+     */
+    void breakFinished();
+
+    /**
+     * 因日历中的忙碌时段自动暂停（busy为true，untilMillis为时段结束的墙上时间）或自动恢复学习（busy为false）
+     */
+    default void busyChanged(boolean busy, long untilMillis) {
+    }
+}
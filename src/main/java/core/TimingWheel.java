@@ -0,0 +1,363 @@
+package core;
+
+import log.Log;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 分层时间轮调度器：所有计时任务（学习计时、提醒、休息倒计时、恢复学习）都在同一个线程上执行，
+ * 插入和取消都是O(1)，不再为每次休息单独创建线程池。
+ *
+ * 共有4层，每层256个槽：第0层精度为一个tick，越高层的槽覆盖的时间越长，
+ * 高层槽到期时把其中的任务重新分配到低层（级联）。
+ * 工作线程只在下一个非空槽到期时醒来，没有任务时一直休眠。
+ *
+ * 注意：任务在调度线程上执行，必须足够短，界面更新需要交给EDT。
+ */
+public class TimingWheel implements Clock {
+    private static final int LEVEL_BITS = 8;
+    private static final int SLOTS = 1 << LEVEL_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    // 超出最高层范围的任务先放在最远的位置，到期后重新分配
+    private static final long MAX_DELTA_TICKS = (1L << (LEVEL_BITS * LEVELS)) - 1;
+
+    private static volatile TimingWheel shared;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Bucket[][] wheel = new Bucket[LEVELS][SLOTS];
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private Thread worker; // 由start设置，之后不再改变
+    private volatile boolean running = true;
+
+    // 只在工作线程上访问
+    private long currentTick = 0;
+    private final Bucket expired = new Bucket();
+
+    // 统计信息
+    private final AtomicLong wakeupCount = new AtomicLong();
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private TimingWheel(long tickDuration, TimeUnit unit) {
+        this.tickNanos = unit.toNanos(tickDuration);
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[level][slot] = new Bucket();
+            }
+        }
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 创建时间轮并启动它的工作线程（构造完成后才启动，线程不会看到未初始化的对象）
+     */
+    public static TimingWheel start(String name, long tickDuration, TimeUnit unit) {
+        TimingWheel wheel = new TimingWheel(tickDuration, unit);
+        Thread worker = new Thread(wheel::run, name);
+        worker.setDaemon(true);
+        wheel.worker = worker;
+        worker.start();
+        return wheel;
+    }
+
+    /**
+     * 全局共享的时间轮（精度10毫秒）
+     */
+    public static TimingWheel shared() {
+        TimingWheel wheel = shared;
+        if (wheel == null) {
+            synchronized (TimingWheel.class) {
+                wheel = shared;
+                if (wheel == null) {
+                    wheel = start("study-timer", 10, TimeUnit.MILLISECONDS);
+                    shared = wheel;
+                }
+            }
+        }
+        return wheel;
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 延迟执行一次任务
+     */
+    @Override
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return submit(new Timeout(this, task, now() + unit.toNanos(Math.max(0, delay)), 0));
+    }
+
+    /**
+     * 按固定频率重复执行任务，直到被取消；错过的执行会被跳过
+     */
+    @Override
+    public Timeout scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) throw new IllegalArgumentException("period必须大于0");
+        return submit(new Timeout(this, task, now() + unit.toNanos(Math.max(0, initialDelay)), unit.toNanos(period)));
+    }
+
+    /**
+     * 停止工作线程，未执行的任务全部丢弃
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    public boolean isShutdown() {
+        return !running;
+    }
+
+    /**
+     * 工作线程被唤醒的次数
+     */
+    public long getWakeupCount() {
+        return wakeupCount.get();
+    }
+
+    /**
+     * 当前等待执行的任务数
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public Thread getWorkerThread() {
+        return worker;
+    }
+
+    private long now() {
+        return System.nanoTime() - startNanos;
+    }
+
+    private Timeout submit(Timeout timeout) {
+        if (!running) throw new IllegalStateException("时间轮已停止");
+        activeCount.incrementAndGet();
+        pending.add(timeout);
+        LockSupport.unpark(worker);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            wakeupCount.incrementAndGet();
+            removeCancelled();
+            long targetTick = now() / tickNanos;
+            advanceTo(targetTick);
+            drainPending();
+            runExpired();
+            removeCancelled();
+
+            long nextTick = nextEventTick();
+            if (nextTick < 0) {
+                LockSupport.park(this);
+            } else {
+                long sleepNanos = nextTick * tickNanos - now();
+                if (sleepNanos > 0) LockSupport.parkNanos(this, sleepNanos);
+            }
+        }
+    }
+
+    // 逐个处理有任务的tick，中间的空tick直接跳过
+    private void advanceTo(long targetTick) {
+        long next;
+        while ((next = nextEventTick()) >= 0 && next <= targetTick) {
+            currentTick = next;
+            // 先从高层向低层级联，再处理第0层当前槽
+            for (int level = LEVELS - 1; level > 0; level--) {
+                long lowBits = currentTick & ((1L << (LEVEL_BITS * level)) - 1);
+                if (lowBits == 0) {
+                    Bucket bucket = wheel[level][(int) ((currentTick >>> (LEVEL_BITS * level)) & MASK)];
+                    Timeout timeout;
+                    while ((timeout = bucket.poll()) != null) {
+                        place(timeout);
+                    }
+                }
+            }
+            Bucket bucket = wheel[0][(int) (currentTick & MASK)];
+            Timeout timeout;
+            while ((timeout = bucket.poll()) != null) {
+                expired.add(timeout);
+            }
+            runExpired();
+        }
+        if (targetTick > currentTick) currentTick = targetTick;
+    }
+
+    private void drainPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.state.get() == Timeout.WAITING) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) timeout.bucket.remove(timeout);
+        }
+    }
+
+    private void runExpired() {
+        Timeout timeout;
+        while ((timeout = expired.poll()) != null) {
+            if (timeout.state.get() != Timeout.WAITING) continue;
+            if (timeout.periodNanos == 0) {
+                if (!timeout.state.compareAndSet(Timeout.WAITING, Timeout.EXPIRED)) continue;
+                activeCount.decrementAndGet();
+            }
+            try {
+                timeout.task.run();
+            } catch (Throwable t) {
+                StackTraceElement[] trace = t.getStackTrace();
+                Log.error("计时任务执行出错: {}，位置 {}", t, trace.length > 0 ? trace[0] : "未知");
+            }
+            // 固定频率任务：复用同一个节点重新放入时间轮
+            if (timeout.periodNanos > 0 && timeout.state.get() == Timeout.WAITING) {
+                timeout.deadlineNanos += timeout.periodNanos;
+                // 系统休眠或长时间停顿后跳过错过的执行，不集中补跑
+                long lag = now() - timeout.deadlineNanos;
+                if (lag > 0) {
+                    timeout.deadlineNanos += (lag / timeout.periodNanos + 1) * timeout.periodNanos;
+                }
+                place(timeout);
+            }
+        }
+    }
+
+    // 把任务放到合适的层和槽，已到期的任务放入待执行队列
+    private void place(Timeout timeout) {
+        long deadlineTick = (timeout.deadlineNanos + tickNanos - 1) / tickNanos;
+        if (deadlineTick <= currentTick) {
+            expired.add(timeout);
+            return;
+        }
+        deadlineTick = Math.min(deadlineTick, currentTick + MAX_DELTA_TICKS);
+        for (int level = 0; level < LEVELS; level++) {
+            int higherShift = LEVEL_BITS * (level + 1);
+            if (level == LEVELS - 1 || (deadlineTick >>> higherShift) == (currentTick >>> higherShift)) {
+                int slot = (int) ((deadlineTick >>> (LEVEL_BITS * level)) & MASK);
+                if (level == LEVELS - 1 && (deadlineTick >>> higherShift) != (currentTick >>> higherShift)) {
+                    // 超出范围：放在最高层当前槽的前一个位置，一圈后重新分配
+                    slot = (int) (((currentTick >>> (LEVEL_BITS * level)) + MASK) & MASK);
+                }
+                wheel[level][slot].add(timeout);
+                return;
+            }
+        }
+    }
+
+    // 找到下一个需要处理（到期或级联）的tick，没有任务时返回-1
+    private long nextEventTick() {
+        if (!expired.isEmpty()) return currentTick;
+        long best = -1;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = LEVEL_BITS * level;
+            int currentSlot = (int) ((currentTick >>> shift) & MASK);
+            long base = (currentTick >>> (shift + LEVEL_BITS)) << (shift + LEVEL_BITS);
+            for (int i = 1; i <= SLOTS; i++) {
+                int slot = (currentSlot + i) & MASK;
+                if (!wheel[level][slot].isEmpty()) {
+                    long tick = slot > currentSlot
+                            ? base | ((long) slot << shift)
+                            : base + (1L << (shift + LEVEL_BITS)) + ((long) slot << shift);
+                    if (best < 0 || tick < best) best = tick;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 已调度的任务句柄
+     */
+    public static final class Timeout implements Clock.Task {
+        static final int WAITING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        private final TimingWheel owner;
+        private final Runnable task;
+        private final long periodNanos;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private long deadlineNanos;
+
+        // 所在槽的双向链表，只在工作线程上访问
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel owner, Runnable task, long deadlineNanos, long periodNanos) {
+            this.owner = owner;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        /**
+         * 取消任务，O(1)：只做标记，由工作线程从槽中摘除
+         * @return 是否成功取消（已执行的一次性任务返回false）
+         */
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) return false;
+            owner.activeCount.decrementAndGet();
+            owner.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /**
+     * 时间轮的一个槽：侵入式双向链表
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) head = timeout; else tail.next = timeout;
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) head = timeout.next; else timeout.prev.next = timeout.next;
+            if (timeout.next == null) tail = timeout.prev; else timeout.next.prev = timeout.prev;
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        Timeout poll() {
+            Timeout timeout = head;
+            if (timeout != null) remove(timeout);
+            return timeout;
+        }
+
+        boolean isEmpty() {
+            return head == null;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package core;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 虚拟时钟：时间只在调用advance时前进，到期任务按截止时间顺序在调用线程上执行。
+ * 用于模拟和回归检查，一整天的学习周期可以在很短的真实时间内跑完，结果完全可重复。
+ * 非线程安全，只能在一个线程上使用。
+ */
+public class VirtualClock implements Clock {
+    private final PriorityQueue<VirtualTask> queue = new PriorityQueue<>();
+    private final long wallStartMillis; // 虚拟时间0对应的墙上时间
+    private long now = 0;
+    private long sequence = 0;
+    private long executedCount = 0;
+
+    private final class VirtualTask implements Task, Comparable<VirtualTask> {
+        private final Runnable task;
+        private final long periodNanos;
+        private long deadline;
+        private long order;
+        private boolean cancelled;
+
+        VirtualTask(Runnable task, long deadline, long periodNanos) {
+            this.task = task;
+            this.deadline = deadline;
+            this.periodNanos = periodNanos;
+            this.order = sequence++;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (cancelled) return false;
+            cancelled = true;
+            return true;
+        }
+
+        @Override
+        public int compareTo(VirtualTask other) {
+            int c = Long.compare(deadline, other.deadline);
+            return c != 0 ? c : Long.compare(order, other.order);
+        }
+    }
+
+    public VirtualClock() {
+        this(0);
+    }
+
+    public VirtualClock(long wallStartMillis) {
+        this.wallStartMillis = wallStartMillis;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return wallStartMillis + TimeUnit.NANOSECONDS.toMillis(now);
+    }
+
+    @Override
+    public Task schedule(Runnable task, long delay, TimeUnit unit) {
+        VirtualTask virtualTask = new VirtualTask(task, now + unit.toNanos(Math.max(0, delay)), 0);
+        queue.add(virtualTask);
+        return virtualTask;
+    }
+
+    @Override
+    public Task scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) throw new IllegalArgumentException("period必须大于0");
+        VirtualTask virtualTask = new VirtualTask(task, now + unit.toNanos(Math.max(0, initialDelay)), unit.toNanos(period));
+        queue.add(virtualTask);
+        return virtualTask;
+    }
+
+    /**
+     * 让虚拟时间前进，期间到期的任务按顺序执行
+     * @return 本次执行的任务数
+     */
+    public int advance(long duration, TimeUnit unit) {
+        long target = now + unit.toNanos(duration);
+        int executed = 0;
+        VirtualTask next;
+        while ((next = queue.peek()) != null && next.deadline <= target) {
+            queue.poll();
+            if (next.cancelled) continue;
+            now = next.deadline;
+            next.task.run();
+            executed++;
+            if (next.periodNanos > 0 && !next.cancelled) {
+                next.deadline += next.periodNanos;
+                next.order = sequence++;
+                queue.add(next);
+            }
+        }
+        now = target;
+        executedCount += executed;
+        return executed;
+    }
+
+    /**
+     * 等待执行的任务数（包括已取消但尚未移除的）
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public long getExecutedCount() {
+        return executedCount;
+    }
+}
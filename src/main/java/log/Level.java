@@ -0,0 +1,12 @@
+package log;
+
+/**
+ * 日志级别，低于当前级别的日志在调用处直接返回
+ */
+public enum Level {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF     // 关闭全部日志
+}
@@ -0,0 +1,159 @@
+package log;
+
+import metrics.Metrics;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志：调用线程只把消息模板和参数填入环形队列中预先分配的事件，由写日志线程格式化后写入文件和控制台。
+ *
+ * 消息中的 {} 依次替换为参数；参数为long时不装箱，对象参数会在之后的写日志线程上转换为字符串，
+ * 因此只应传入不可变对象（枚举、字符串、Path等）。常用的参数组合都有对应的重载，调用处不分配对象；
+ * 低于当前级别时只读取一次级别就返回。队列满时丢弃并计数（log.dropped），调用线程从不等待，
+ * 计时和提醒线程上的日志不会推迟截止时间。
+ *
+ * 配置（系统属性）：
+ *   studyassist.log.level     DEBUG、INFO（默认）、WARN、ERROR、OFF
+ *   studyassist.log.file      日志文件，默认 ~/.studyassist/logs/studyassist.log，none表示不写文件
+ *   studyassist.log.console   是否同时输出到控制台，默认true（WARN及以上输出到标准错误）
+ *   studyassist.log.maxBytes  单个文件的大小上限，默认1MB，超过后轮转为 .1、.2 …
+ *   studyassist.log.files     保留的文件数（含当前文件），默认3
+ */
+public final class Log {
+    private static final int RING_CAPACITY = 8192;
+    private static final LongAdder DROPPED = Metrics.counter("log.dropped");
+
+    private static final LogRing ring = new LogRing(RING_CAPACITY);
+    private static final LogWriter writer = new LogWriter(ring);
+    private static volatile int threshold;
+
+    static {
+        threshold = parseLevel(System.getProperty("studyassist.log.level", "INFO")).ordinal();
+        String file = System.getProperty("studyassist.log.file");
+        if (file == null) {
+            writer.file = Paths.get(System.getProperty("user.home"), ".studyassist", "logs", "studyassist.log");
+        } else if (!file.equalsIgnoreCase("none")) {
+            writer.file = Paths.get(file);
+        }
+        writer.console = Boolean.parseBoolean(System.getProperty("studyassist.log.console", "true"));
+        writer.maxFileBytes = Long.getLong("studyassist.log.maxBytes", 1024 * 1024);
+        writer.maxFiles = Math.max(1, Integer.getInteger("studyassist.log.files", 3));
+        writer.start();
+        // 退出前写完队列中剩余的日志
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(1000), "log-flush"));
+    }
+
+    private Log() {
+    }
+
+    private static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("未知日志级别: " + name + "，使用INFO");
+            return Level.INFO;
+        }
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static Level getLevel() {
+        return Level.values()[threshold];
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    /**
+     * 设置日志文件，null表示不写文件
+     */
+    public static void setFile(Path file) {
+        writer.file = file;
+        writer.wake();
+    }
+
+    public static void setConsole(boolean console) {
+        writer.console = console;
+    }
+
+    /**
+     * 因队列满而丢弃的日志条数
+     */
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * 等待已进入队列的日志全部写出
+     * @return 超时前写完返回true
+     */
+    public static boolean flush(long timeoutMillis) {
+        long target = ring.claimed();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (writer.completed() < target) {
+            if (System.nanoTime() - deadline >= 0) return false;
+            writer.wake();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    public static void debug(String message) { log(Level.DEBUG, message, 0, 0, null, null, null, 0, 0, 0); }
+    public static void debug(String message, Object a) { log(Level.DEBUG, message, 1, 0, a, null, null, 0, 0, 0); }
+    public static void debug(String message, long a) { log(Level.DEBUG, message, 1, 0b1, null, null, null, a, 0, 0); }
+    public static void debug(String message, Object a, Object b) { log(Level.DEBUG, message, 2, 0, a, b, null, 0, 0, 0); }
+    public static void debug(String message, Object a, long b) { log(Level.DEBUG, message, 2, 0b10, a, null, null, 0, b, 0); }
+    public static void debug(String message, Object a, long b, long c) { log(Level.DEBUG, message, 3, 0b110, a, null, null, 0, b, c); }
+
+    public static void info(String message) { log(Level.INFO, message, 0, 0, null, null, null, 0, 0, 0); }
+    public static void info(String message, Object a) { log(Level.INFO, message, 1, 0, a, null, null, 0, 0, 0); }
+    public static void info(String message, long a) { log(Level.INFO, message, 1, 0b1, null, null, null, a, 0, 0); }
+    public static void info(String message, Object a, Object b) { log(Level.INFO, message, 2, 0, a, b, null, 0, 0, 0); }
+    public static void info(String message, Object a, long b) { log(Level.INFO, message, 2, 0b10, a, null, null, 0, b, 0); }
+    public static void info(String message, Object a, long b, long c) { log(Level.INFO, message, 3, 0b110, a, null, null, 0, b, c); }
+
+    public static void warn(String message) { log(Level.WARN, message, 0, 0, null, null, null, 0, 0, 0); }
+    public static void warn(String message, Object a) { log(Level.WARN, message, 1, 0, a, null, null, 0, 0, 0); }
+    public static void warn(String message, long a) { log(Level.WARN, message, 1, 0b1, null, null, null, a, 0, 0); }
+    public static void warn(String message, Object a, Object b) { log(Level.WARN, message, 2, 0, a, b, null, 0, 0, 0); }
+    public static void warn(String message, Object a, long b) { log(Level.WARN, message, 2, 0b10, a, null, null, 0, b, 0); }
+    public static void warn(String message, Object a, long b, long c) { log(Level.WARN, message, 3, 0b110, a, null, null, 0, b, c); }
+
+    public static void error(String message) { log(Level.ERROR, message, 0, 0, null, null, null, 0, 0, 0); }
+    public static void error(String message, Object a) { log(Level.ERROR, message, 1, 0, a, null, null, 0, 0, 0); }
+    public static void error(String message, long a) { log(Level.ERROR, message, 1, 0b1, null, null, null, a, 0, 0); }
+    public static void error(String message, Object a, Object b) { log(Level.ERROR, message, 2, 0, a, b, null, 0, 0, 0); }
+    public static void error(String message, Object a, long b) { log(Level.ERROR, message, 2, 0b10, a, null, null, 0, b, 0); }
+    public static void error(String message, Object a, long b, long c) { log(Level.ERROR, message, 3, 0b110, a, null, null, 0, b, c); }
+
+    private static void log(Level level, String message, int argCount, int longMask,
+                            Object a, Object b, Object c, long x, long y, long z) {
+        if (level.ordinal() < threshold) return;
+        LogRing.Event event = ring.claim();
+        if (event == null) {
+            DROPPED.increment();
+            return;
+        }
+        event.level = level;
+        event.wallMillis = System.currentTimeMillis();
+        event.threadName = Thread.currentThread().getName();
+        event.message = message;
+        event.argCount = argCount;
+        event.longMask = longMask;
+        event.objects[0] = a;
+        event.objects[1] = b;
+        event.objects[2] = c;
+        event.longs[0] = x;
+        event.longs[1] = y;
+        event.longs[2] = z;
+        ring.publish(event);
+        writer.signal();
+    }
+}
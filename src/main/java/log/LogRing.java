@@ -0,0 +1,105 @@
+package log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 有界无锁环形队列：多个线程写入，只有写日志线程读取。
+ * 槽位中的事件对象在创建时分配并反复使用；每个槽位的序号表示它当前可写（序号==位置）
+ * 还是已发布可读（序号==位置+1），写入方只做一次CAS，队列满时返回null而不等待。
+ */
+final class LogRing {
+    static final int MAX_ARGS = 3;
+
+    /**
+     * 可复用的日志事件，参数按位置保存为long或对象（对象参数应为不可变的，例如枚举和字符串）
+     */
+    static final class Event {
+        long position;
+        Level level;
+        long wallMillis;
+        String threadName;
+        String message;
+        int argCount;
+        int longMask;
+        final long[] longs = new long[MAX_ARGS];
+        final Object[] objects = new Object[MAX_ARGS];
+    }
+
+    private final Event[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // 只由读取线程访问
+    private long head = 0;
+
+    LogRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("容量必须是2的幂: " + capacity);
+        slots = new Event[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Event();
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * 占用一个槽位，填好后必须调用publish
+     * @return 队列已满时返回null
+     */
+    Event claim() {
+        long position = tail.get();
+        while (true) {
+            long sequence = sequences.get((int) position & mask);
+            long difference = sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    Event event = slots[(int) position & mask];
+                    event.position = position;
+                    return event;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    void publish(Event event) {
+        // 用volatile写：写入方随后检查读取线程是否挂起，两边都需要先写后读的顺序
+        sequences.set((int) event.position & mask, event.position + 1);
+    }
+
+    /**
+     * 读取下一个已发布的事件，处理完后调用release；没有事件时返回null
+     */
+    Event peek() {
+        int index = (int) head & mask;
+        return sequences.get(index) == head + 1 ? slots[index] : null;
+    }
+
+    void release(Event event) {
+        event.message = null;
+        for (int i = 0; i < MAX_ARGS; i++) event.objects[i] = null;
+        sequences.lazySet((int) head & mask, head + slots.length);
+        head++;
+    }
+
+    boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * 已占用过的槽位总数（不含因队列满而丢弃的）
+     */
+    long claimed() {
+        return tail.get();
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
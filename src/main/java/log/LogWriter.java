@@ -0,0 +1,280 @@
+package log;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 写日志线程：批量取出环形队列中的事件，格式化到复用的缓冲区，写入按大小轮转的日志文件，并按需回显到控制台。
+ * 格式化和编码都使用预先分配的缓冲区；没有事件时挂起，写入方只在它挂起时唤醒一次。
+ */
+final class LogWriter implements Runnable {
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_BATCH = 1024;
+    // 兜底的挂起时长，正常情况下由写入方唤醒
+    private static final long PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // 单核机器上自旋会占用写入方的CPU，不自旋
+    private static final long SPIN_NANOS = Runtime.getRuntime().availableProcessors() > 1 ? TimeUnit.MICROSECONDS.toNanos(50) : 0;
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final LogRing ring;
+    private final Thread thread;
+    private volatile boolean sleeping = false;
+    private volatile long completed = 0;
+
+    // 配置，可在任何线程修改，写日志线程在下一批开始时读取
+    volatile Path file;
+    volatile boolean console;
+    volatile long maxFileBytes;
+    volatile int maxFiles;
+
+    // 以下字段只在写日志线程上访问
+    private FileChannel channel;
+    private Path openPath;
+    private boolean fileFailed = false;
+    private long fileSize;
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] chars = new char[512];
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+    private final ByteBuffer fileBuffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final ByteBuffer consoleBuffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final CharsetEncoder fileEncoder = newEncoder(StandardCharsets.UTF_8);
+    private final CharsetEncoder consoleEncoder = newEncoder(Charset.defaultCharset());
+    private PrintStream consoleStream;
+    private long hourStartMillis = Long.MIN_VALUE / 2;
+    private String hourPrefix = "";
+
+    LogWriter(LogRing ring) {
+        this.ring = ring;
+        thread = new Thread(this, "log-writer");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * 写入方发布事件后调用，只在写日志线程挂起时唤醒它
+     */
+    void signal() {
+        if (sleeping) LockSupport.unpark(thread);
+    }
+
+    /**
+     * 已写出的事件数
+     */
+    long completed() {
+        return completed;
+    }
+
+    void wake() {
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                if (drain() > 0) continue;
+            } catch (RuntimeException e) {
+                System.err.println("写日志出错: " + e);
+            }
+            // 日志通常成串出现，先短暂自旋等待，避免写入方每条都要唤醒
+            long spinUntil = System.nanoTime() + SPIN_NANOS;
+            while (ring.isEmpty() && System.nanoTime() - spinUntil < 0) Thread.onSpinWait();
+            if (!ring.isEmpty()) continue;
+            sleeping = true;
+            if (ring.isEmpty()) LockSupport.parkNanos(this, PARK_NANOS);
+            sleeping = false;
+        }
+    }
+
+    private int drain() {
+        Path target = file;
+        if (target != openPath) reopen(target);
+        boolean echo = console;
+
+        int count = 0;
+        LogRing.Event event;
+        while (count < MAX_BATCH && (event = ring.peek()) != null) {
+            format(event);
+            Level level = event.level;
+            ring.release(event);
+            count++;
+            if (channel != null) {
+                // 按整行写出，轮转时不会把一行分到两个文件
+                if (fileBuffer.remaining() < line.length() * 3) flushFile();
+                encode(fileEncoder, fileBuffer, null);
+            }
+            if (echo) encode(consoleEncoder, consoleBuffer, level.compareTo(Level.WARN) >= 0 ? System.err : System.out);
+        }
+        if (count == 0) return 0;
+        flushFile();
+        flushConsole(null);
+        completed += count;
+        return count;
+    }
+
+    // 把一行日志格式化到line："2026-01-01 08:00:00.000 INFO  [线程] 内容"
+    private void format(LogRing.Event event) {
+        StringBuilder sb = line;
+        sb.setLength(0);
+        long millis = event.wallMillis;
+        if (millis < hourStartMillis || millis >= hourStartMillis + HOUR_MILLIS) updateHour(millis);
+        long inHour = millis - hourStartMillis;
+        sb.append(hourPrefix);
+        pad2(sb, inHour / 60_000).append(':');
+        pad2(sb, inHour / 1000 % 60).append('.');
+        long ms = inHour % 1000;
+        if (ms < 100) sb.append('0');
+        pad2(sb, ms).append(' ');
+        String levelName = event.level.name();
+        sb.append(levelName);
+        for (int i = levelName.length(); i < 6; i++) sb.append(' ');
+        sb.append('[').append(event.threadName).append("] ");
+
+        // 依次替换消息中的{}
+        String message = event.message;
+        int argIndex = 0;
+        int from = 0;
+        while (true) {
+            int at = argIndex < event.argCount ? message.indexOf("{}", from) : -1;
+            if (at < 0) {
+                sb.append(message, from, message.length());
+                break;
+            }
+            sb.append(message, from, at);
+            if ((event.longMask & (1 << argIndex)) != 0) {
+                sb.append(event.longs[argIndex]);
+            } else {
+                sb.append(event.objects[argIndex]);
+            }
+            argIndex++;
+            from = at + 2;
+        }
+        sb.append(System.lineSeparator());
+    }
+
+    private static StringBuilder pad2(StringBuilder sb, long value) {
+        if (value < 10) sb.append('0');
+        return sb.append(value);
+    }
+
+    // 跨过整点时重新计算"日期 小时:"前缀（每小时一次，夏令时切换也在整点）
+    private void updateHour(long millis) {
+        ZonedDateTime hour = Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).truncatedTo(ChronoUnit.HOURS);
+        hourStartMillis = hour.toInstant().toEpochMilli();
+        hourPrefix = hour.toLocalDate() + " " + (hour.getHour() < 10 ? "0" : "") + hour.getHour() + ":";
+    }
+
+    // 把line编码到缓冲区，缓冲区满时先写出
+    private void encode(CharsetEncoder encoder, ByteBuffer buffer, PrintStream stream) {
+        int length = line.length();
+        if (length > chars.length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        line.getChars(0, length, chars, 0);
+        if (stream != null && stream != consoleStream) {
+            // 标准输出和标准错误交替时按顺序写出
+            flushConsole(null);
+            consoleStream = stream;
+        }
+        charBuffer.clear().limit(length);
+        encoder.reset();
+        while (encoder.encode(charBuffer, buffer, true).isOverflow()) {
+            if (buffer == fileBuffer) flushFile(); else flushConsole(stream);
+        }
+    }
+
+    private void flushFile() {
+        if (channel == null || fileBuffer.position() == 0) {
+            fileBuffer.clear();
+            return;
+        }
+        fileBuffer.flip();
+        try {
+            while (fileBuffer.hasRemaining()) fileSize += channel.write(fileBuffer);
+            if (fileSize >= maxFileBytes) rotate();
+        } catch (IOException e) {
+            failFile(e);
+        }
+        fileBuffer.clear();
+    }
+
+    private void flushConsole(PrintStream stream) {
+        PrintStream target = stream != null ? stream : consoleStream;
+        if (target != null && consoleBuffer.position() > 0) {
+            target.write(consoleBuffer.array(), 0, consoleBuffer.position());
+            target.flush();
+        }
+        consoleBuffer.clear();
+    }
+
+    private void reopen(Path target) {
+        closeFile();
+        openPath = target;
+        fileFailed = false;
+        if (target == null) return;
+        try {
+            Path parent = target.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            fileSize = channel.size();
+        } catch (IOException e) {
+            failFile(e);
+        }
+    }
+
+    // 当前文件改名为.1，原有的.1改为.2，依此类推，超过maxFiles的删除
+    private void rotate() throws IOException {
+        closeFile();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path from = i == 1 ? openPath : openPath.resolveSibling(openPath.getFileName() + "." + (i - 1));
+            Path to = openPath.resolveSibling(openPath.getFileName() + "." + i);
+            if (Files.exists(from)) Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (maxFiles <= 1) Files.deleteIfExists(openPath);
+        channel = FileChannel.open(openPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private void failFile(IOException e) {
+        if (!fileFailed) System.err.println("无法写入日志文件 " + openPath + ": " + e.getMessage());
+        fileFailed = true;
+        closeFile();
+    }
+
+    private void closeFile() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+        channel = null;
+    }
+
+    private static CharsetEncoder newEncoder(Charset charset) {
+        return charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+}
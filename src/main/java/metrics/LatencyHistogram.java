@@ -0,0 +1,91 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图（HDR风格）：按2的幂分段，每段再线性分成32个桶，相对误差约3%，
+ * 记录范围为0到约2.4小时（纳秒），超出的值计入最后一个桶。
+ *
+ * 记录只是几次原子加法，不加锁、不分配对象，可以在计时线程和EDT上直接调用。
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 43;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 记录一个值（纳秒），负值按0记录
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(index(value));
+        totalCount.increment();
+        totalSum.add(value);
+        max.accumulate(value);
+    }
+
+    // 小于32的值每个值一个桶；更大的值按最高位所在的段分组，段内取最高的6位
+    private static int index(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    // 桶所覆盖区间的中间值
+    private static long valueAt(int index) {
+        int shift = Math.max(0, (index >> SUB_BITS) - 1);
+        long low = (long) (index - (shift << SUB_BITS)) << shift;
+        return low + ((1L << shift) - 1) / 2;
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : totalSum.sum() / count;
+    }
+
+    /**
+     * 百分位数（纳秒），q取0到1，例如0.99
+     */
+    public long getPercentile(double q) {
+        long count = totalCount.sum();
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(valueAt(i), getMax());
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-26s 次数=%-8d 平均=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms p99.9=%.3fms 最大=%.3fms",
+                name, getCount(), getMean() / 1e6, getPercentile(0.5) / 1e6, getPercentile(0.9) / 1e6,
+                getPercentile(0.99) / 1e6, getPercentile(0.999) / 1e6, getMax() / 1e6);
+    }
+}
@@ -0,0 +1,94 @@
+package metrics;
+
+import log.Log;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * 进程内的指标注册表：按名称创建计数器和延迟直方图。
+ * 调用方应把返回的对象保存在静态字段中，热路径上只做原子加法，不查表。
+ */
+public final class Metrics {
+    private static final String MBEAN_NAME = "studyassist:type=Metrics";
+
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * 按名称排序的文本报告
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder("===== 性能指标 =====\n");
+        new TreeMap<>(counters).forEach((name, counter) ->
+                sb.append(String.format("%-26s %d%n", name, counter.sum())));
+        new TreeMap<>(histograms).values().forEach(histogram -> sb.append(histogram).append('\n'));
+        return sb.toString();
+    }
+
+    /**
+     * 注册到平台MBeanServer，重复调用时忽略
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(MBEAN_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // 已注册
+        } catch (JMException e) {
+            Log.warn("无法注册性能指标MBean: {}", e.getMessage());
+        }
+    }
+
+    private static Map<String, Double> histogramMillis(ToLongFunction<LatencyHistogram> value) {
+        Map<String, Double> result = new TreeMap<>();
+        histograms.forEach((name, histogram) -> result.put(name, value.applyAsLong(histogram) / 1e6));
+        return result;
+    }
+
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> result = new TreeMap<>();
+            counters.forEach((name, counter) -> result.put(name, counter.sum()));
+            return result;
+        }
+
+        @Override
+        public Map<String, Double> getP50Millis() {
+            return histogramMillis(h -> h.getPercentile(0.5));
+        }
+
+        @Override
+        public Map<String, Double> getP99Millis() {
+            return histogramMillis(h -> h.getPercentile(0.99));
+        }
+
+        @Override
+        public Map<String, Double> getMaxMillis() {
+            return histogramMillis(LatencyHistogram::getMax);
+        }
+
+        @Override
+        public String dump() {
+            return Metrics.dump();
+        }
+    }
+}
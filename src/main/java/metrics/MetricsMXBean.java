@@ -0,0 +1,34 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * 通过JMX（例如JConsole、VisualVM）查看的性能指标，对象名为 studyassist:type=Metrics
+ */
+public interface MetricsMXBean {
+
+    /**
+     * 全部计数器
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * 各直方图的中位数（毫秒）
+     */
+    Map<String, Double> getP50Millis();
+
+    /**
+     * 各直方图的99百分位（毫秒）
+     */
+    Map<String, Double> getP99Millis();
+
+    /**
+     * 各直方图的最大值（毫秒）
+     */
+    Map<String, Double> getMaxMillis();
+
+    /**
+     * 文本格式的完整报告
+     */
+    String dump();
+}
@@ -0,0 +1,55 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动阶段计时：以进入main的时间为起点记录各阶段完成的时间，
+ * 同时写入指标注册表（startup.阶段名），可以和其他指标一起查看。
+ */
+public final class StartupTimer {
+    private static final long MAIN_NANOS = System.nanoTime();
+    private static final long MAIN_WALL_MILLIS = System.currentTimeMillis();
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Long> phaseNanos = new ArrayList<>();
+
+    private StartupTimer() {
+    }
+
+    /**
+     * 在main的第一行调用，确定计时起点
+     */
+    public static void begin() {
+        // 类初始化时已记录起点
+    }
+
+    /**
+     * 记录一个阶段完成，可在任何线程调用
+     * @return 距离进入main的纳秒数
+     */
+    public static long mark(String phase) {
+        long nanos = System.nanoTime() - MAIN_NANOS;
+        Metrics.histogram("startup." + phase).record(nanos);
+        synchronized (phases) {
+            phases.add(phase);
+            phaseNanos.add(nanos);
+        }
+        return nanos;
+    }
+
+    /**
+     * 各阶段的耗时报告（按完成顺序）
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder("启动耗时:");
+        // 进程启动时间只在报告时查询，不占用启动路径
+        ProcessHandle.current().info().startInstant().ifPresent(start ->
+                sb.append(" JVM到main=").append(MAIN_WALL_MILLIS - start.toEpochMilli()).append("ms"));
+        synchronized (phases) {
+            for (int i = 0; i < phases.size(); i++) {
+                sb.append(", ").append(phases.get(i)).append('=').append(phaseNanos.get(i) / 1_000_000).append("ms");
+            }
+        }
+        return sb.toString();
+    }
+}
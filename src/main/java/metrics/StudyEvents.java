@@ -0,0 +1,115 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder自定义事件。没有开启记录时commit几乎没有开销。
+ * 开启方式：java -XX:StartFlightRecording=filename=study.jfr ...，用JDK Mission Control查看"StudyAssist"分类。
+ */
+public final class StudyEvents {
+
+    private StudyEvents() {
+    }
+
+    @Name("studyassist.TimerTick")
+    @Label("计时截止任务")
+    @Description("一次学习截止任务（提示音或周期结束）的执行")
+    @Category({"StudyAssist", "Timer"})
+    @StackTrace(false)
+    public static final class TimerTick extends Event {
+        @Label("已学习秒数")
+        public int elapsedSeconds;
+
+        @Label("执行延迟")
+        @Timespan
+        public long latenessNanos;
+    }
+
+    @Name("studyassist.ReminderFired")
+    @Label("提醒触发")
+    @Description("提示音或长休息的预定时间与实际触发时间之差")
+    @Category({"StudyAssist", "Timer"})
+    @StackTrace(false)
+    public static final class ReminderFired extends Event {
+        @Label("长休息")
+        public boolean longBreak;
+
+        @Label("预定秒数")
+        public int scheduledSecond;
+
+        @Label("实际秒数")
+        public int firedSecond;
+
+        @Label("偏差")
+        @Timespan
+        public long skewNanos;
+    }
+
+    @Name("studyassist.BreakStarted")
+    @Label("休息开始")
+    @Category({"StudyAssist", "Timer"})
+    @StackTrace(false)
+    public static final class BreakStarted extends Event {
+        @Label("长休息")
+        public boolean longBreak;
+
+        @Label("计划时长（秒）")
+        public int plannedSeconds;
+    }
+
+    @Name("studyassist.BreakEnded")
+    @Label("休息结束")
+    @Category({"StudyAssist", "Timer"})
+    @StackTrace(false)
+    public static final class BreakEnded extends Event {
+        @Label("计划时长（秒）")
+        public int plannedSeconds;
+
+        @Label("恢复延迟")
+        @Timespan
+        public long resumeLatenessNanos;
+    }
+
+    @Name("studyassist.ClipOpen")
+    @Label("打开音频线路")
+    @Category({"StudyAssist", "Audio"})
+    @StackTrace(false)
+    public static final class ClipOpen extends Event {
+        @Label("音频")
+        public String sound;
+    }
+
+    @Name("studyassist.SoundStart")
+    @Label("提示音启动")
+    @Description("从请求播放到Clip开始播放的耗时")
+    @Category({"StudyAssist", "Audio"})
+    @StackTrace(false)
+    public static final class SoundStart extends Event {
+        @Label("音频")
+        public String sound;
+
+        @Label("启动延迟")
+        @Timespan
+        public long latencyNanos;
+    }
+
+    @Name("studyassist.EdtDispatch")
+    @Label("界面更新延迟")
+    @Description("从提交界面更新到EDT开始执行的等待时间")
+    @Category({"StudyAssist", "UI"})
+    @StackTrace(false)
+    public static final class EdtDispatch extends Event {
+        @Label("来源")
+        public String source;
+
+        @Label("等待时间")
+        @Timespan
+        public long delayNanos;
+    }
+}
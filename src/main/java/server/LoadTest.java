@@ -0,0 +1,107 @@
+package server;
+
+import core.TimingWheel;
+import log.Level;
+import log.Log;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话服务负载测试：在进程内创建大量测试模式会话，
+ * 统计每个会话占用的堆内存、提醒分发延迟分布和线程数，并通过HTTP接口抽样查询。
+ */
+class LoadTest {
+    private static final int MAX_SAMPLES = 1 << 20;
+    private static final int HTTP_PROBES = 200;
+
+    private LoadTest() {
+    }
+
+    static void run(int sessionCount, long durationSeconds) throws Exception {
+        PrintStream console = System.out;
+        Level logLevel = Log.getLevel();
+        Log.setLevel(Level.WARN);
+        try {
+            SessionRegistry registry = new SessionRegistry(TimingWheel.shared());
+            // 分发回调都在时间轮线程上执行，不需要同步
+            long[] lateness = new long[MAX_SAMPLES];
+            int[] sampleCount = {0};
+            registry.setDispatchListener((session, longBreak) -> {
+                if (sampleCount[0] < MAX_SAMPLES) {
+                    lateness[sampleCount[0]++] = session.getTimerService().getLastDispatchLatenessNanos();
+                }
+            });
+
+            long heapBefore = usedHeapAfterGc();
+            int threadsBefore = Thread.activeCount();
+            for (int i = 0; i < sessionCount; i++) {
+                SessionRegistry.Session session = registry.create("student-" + i);
+                session.getTimerService().setTestMode(true);
+                session.getTimerService().start();
+            }
+            long heapAfter = usedHeapAfterGc();
+            console.printf("已创建 %d 个会话，每个会话约 %d 字节堆内存，线程数 %d -> %d%n",
+                    sessionCount, (heapAfter - heapBefore) / sessionCount, threadsBefore, Thread.activeCount());
+
+            SessionServer server = new SessionServer(registry);
+            server.start(0);
+
+            long endMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(durationSeconds);
+            while (System.currentTimeMillis() < endMillis) {
+                Thread.sleep(Math.min(10_000, Math.max(1, endMillis - System.currentTimeMillis())));
+                int[] counts = registry.countByState();
+                console.printf("学习中=%d 休息中=%d 分发=%d 堆=%dMB 线程=%d%n", counts[1], counts[3], sampleCount[0],
+                        usedHeap() / (1024 * 1024), Thread.activeCount());
+            }
+
+            long[] httpNanos = new long[HTTP_PROBES];
+            for (int i = 0; i < HTTP_PROBES; i++) {
+                String id = "student-" + (i * 7919 % sessionCount);
+                long start = System.nanoTime();
+                get("http://127.0.0.1:" + server.getPort() + "/sessions/" + id);
+                httpNanos[i] = System.nanoTime() - start;
+            }
+            server.stop();
+
+            long[] samples = Arrays.copyOf(lateness, sampleCount[0]);
+            Arrays.sort(samples);
+            Arrays.sort(httpNanos);
+            console.printf("提醒分发 %d 次，延迟 p50=%.2fms p99=%.2fms max=%.2fms%n", samples.length,
+                    percentile(samples, 0.50) / 1e6, percentile(samples, 0.99) / 1e6,
+                    samples.length == 0 ? 0 : samples[samples.length - 1] / 1e6);
+            console.printf("HTTP查询 p50=%.2fms p99=%.2fms%n", percentile(httpNanos, 0.50) / 1e6, percentile(httpNanos, 0.99) / 1e6);
+        } finally {
+            Log.setLevel(logLevel);
+        }
+    }
+
+    private static void get(String url) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            in.readAllBytes();
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return usedHeap();
+    }
+}
@@ -0,0 +1,120 @@
+package server;
+
+import core.Clock;
+import core.LearningState;
+import core.StateManager;
+import core.TimerService;
+import core.TimerSink;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多租户会话表：每个会话有独立的状态和计时器，全部共用一个时钟（默认为共享时间轮线程），
+ * 会话数增加不会增加线程。
+ */
+public class SessionRegistry {
+    private final Clock clock;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private volatile DispatchListener dispatchListener;
+
+    /**
+     * 提醒/长休息分发时的回调，用于统计分发延迟
+     */
+    @FunctionalInterface
+    public interface DispatchListener {
+        void onDispatch(Session session, boolean longBreak);
+    }
+
+    /**
+     * 一个学习会话
+     */
+    public final class Session implements TimerSink {
+        private final String id;
+        private final StateManager stateManager = new StateManager();
+        private final TimerService timerService;
+        private volatile int shortBreaks;
+        private volatile int longBreaks;
+
+        private Session(String id) {
+            this.id = id;
+            this.timerService = new TimerService(stateManager, this, clock);
+            // 服务端没有界面，不需要定时刷新进度
+            timerService.setDisplayVisible(false);
+        }
+
+        public String getId() { return id; }
+        public StateManager getStateManager() { return stateManager; }
+        public TimerService getTimerService() { return timerService; }
+        public int getShortBreaks() { return shortBreaks; }
+        public int getLongBreaks() { return longBreaks; }
+
+        @Override
+        public void showStudyProgress(int elapsedSeconds, int totalSeconds, boolean testMode) {
+        }
+
+        @Override
+        public void showBreakProgress(int remainingSeconds, int totalSeconds) {
+        }
+
+        @Override
+        public void breakStarted(boolean longBreak, int breakSeconds) {
+            if (longBreak) longBreaks++; else shortBreaks++;
+            DispatchListener listener = dispatchListener;
+            if (listener != null) listener.onDispatch(this, longBreak);
+        }
+
+        @Override
+        public void breakFinished() {
+        }
+    }
+
+    public SessionRegistry(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void setDispatchListener(DispatchListener listener) {
+        this.dispatchListener = listener;
+    }
+
+    /**
+     * 创建会话；已存在时返回原会话
+     */
+    public Session create(String id) {
+        return sessions.computeIfAbsent(id, Session::new);
+    }
+
+    public Session get(String id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * 停止并移除会话
+     */
+    public boolean remove(String id) {
+        Session session = sessions.remove(id);
+        if (session == null) return false;
+        session.timerService.stop();
+        return true;
+    }
+
+    public Collection<Session> all() {
+        return sessions.values();
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * 各状态的会话数
+     */
+    public int[] countByState() {
+        int[] counts = new int[LearningState.values().length];
+        for (Session session : sessions.values()) {
+            counts[session.stateManager.getState().ordinal()]++;
+        }
+        return counts;
+    }
+}
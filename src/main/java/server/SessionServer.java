@@ -0,0 +1,291 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import core.CyclePlan;
+import core.LearningState;
+import core.Settings;
+import core.TimingWheel;
+import log.Level;
+import log.Log;
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 会话服务：在一个进程中托管整个学校的学习会话，通过本地HTTP接口管理和查询。
+ *
+ * 接口（只监听127.0.0.1）：
+ *   GET    /sessions                      汇总：各状态会话数
+ *   POST   /sessions/{id}?plan=classic&short=20&long=1200&test=false   创建会话
+ *   GET    /sessions/{id}                 查询会话状态
+ *   POST   /sessions/{id}/start | /pause  开始/暂停学习
+ *   DELETE /sessions/{id}                 删除会话
+ *   GET    /metrics                       性能指标（文本）
+ *
+ * 用法：java -cp studyassist.jar server.SessionServer [--port 8765]
+ *       java -cp studyassist.jar server.SessionServer --load-test 10000 [--duration 秒]
+ */
+public class SessionServer {
+    private static final int DEFAULT_PORT = 8765;
+    private static final int HTTP_THREADS = 4;
+
+    private final SessionRegistry registry;
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+
+    public SessionServer(SessionRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = DEFAULT_PORT;
+        int loadTestSessions = 0;
+        long durationSeconds = 120;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--load-test":
+                    loadTestSessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--duration":
+                    durationSeconds = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("未知参数: " + args[i]);
+                    System.err.println("用法: server.SessionServer [--port N] [--load-test 会话数 [--duration 秒]]");
+                    System.exit(1);
+            }
+        }
+
+        if (loadTestSessions > 0) {
+            LoadTest.run(loadTestSessions, durationSeconds);
+            return;
+        }
+
+        // 会话很多时各会话的日志没有意义，只保留服务本身的输出
+        PrintStream console = System.out;
+        Log.setLevel(Level.WARN);
+
+        SessionServer server = new SessionServer(new SessionRegistry(TimingWheel.shared()));
+        server.start(port);
+        console.println("会话服务已启动: http://127.0.0.1:" + port + "/sessions");
+    }
+
+    public void start(int port) throws IOException {
+        // 关闭Nagle算法，避免小响应被延迟确认拖慢约40毫秒
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        httpServer.createContext("/sessions", this::handle);
+        httpServer.createContext("/metrics", SessionServer::handleMetrics);
+        Metrics.registerMBean();
+        httpExecutor = Executors.newFixedThreadPool(HTTP_THREADS);
+        httpServer.setExecutor(httpExecutor);
+        httpServer.start();
+    }
+
+    /**
+     * 实际监听的端口（start时传入0则为系统分配的端口）
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (httpServer != null) httpServer.stop(0);
+        if (httpExecutor != null) httpExecutor.shutdown();
+        for (SessionRegistry.Session session : registry.all()) {
+            registry.remove(session.getId());
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            URI uri = exchange.getRequestURI();
+            String[] parts = uri.getPath().replaceAll("/+$", "").split("/");
+            // parts: ["", "sessions", id, action]；上下文按前缀匹配，/sessionsfoo也会进到这里
+            if (parts.length < 2 || !"sessions".equals(parts[1])) {
+                send(exchange, 404, "{\"error\":\"not found\"}");
+                return;
+            }
+            if (parts.length == 2) {
+                if (!"GET".equals(method)) {
+                    send(exchange, 405, "{\"error\":\"method not allowed\"}");
+                    return;
+                }
+                send(exchange, 200, summaryJson());
+                return;
+            }
+
+            String id = parts[2];
+            String action = parts.length > 3 ? parts[3] : null;
+            if (action == null) {
+                switch (method) {
+                    case "GET":
+                        sendSession(exchange, registry.get(id));
+                        return;
+                    case "POST":
+                        // 先校验参数再创建，参数错误时不会留下配置了一半的会话
+                        SessionConfig config = SessionConfig.parse(parseQuery(uri.getRawQuery()));
+                        SessionRegistry.Session session = registry.create(id);
+                        config.applyTo(session);
+                        sendSession(exchange, session);
+                        return;
+                    case "DELETE":
+                        boolean removed = registry.remove(id);
+                        send(exchange, removed ? 200 : 404, "{\"removed\":" + removed + "}");
+                        return;
+                    default:
+                        send(exchange, 405, "{\"error\":\"method not allowed\"}");
+                        return;
+                }
+            }
+
+            SessionRegistry.Session session = registry.get(id);
+            if (session == null) {
+                send(exchange, 404, "{\"error\":\"session not found\"}");
+                return;
+            }
+            if (!"POST".equals(method)) {
+                send(exchange, 405, "{\"error\":\"method not allowed\"}");
+                return;
+            }
+            switch (action) {
+                case "start":
+                    session.getTimerService().start();
+                    break;
+                case "pause":
+                    session.getTimerService().pause();
+                    break;
+                default:
+                    send(exchange, 404, "{\"error\":\"unknown action\"}");
+                    return;
+            }
+            sendSession(exchange, session);
+        } catch (RuntimeException e) {
+            send(exchange, 400, "{\"error\":\"" + escape(String.valueOf(e.getMessage())) + "\"}");
+        }
+    }
+
+    private static void handleMetrics(HttpExchange exchange) throws IOException {
+        byte[] bytes = Metrics.dump().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * 创建会话时的查询参数，解析时全部校验，非法参数抛出IllegalArgumentException（返回400）
+     */
+    private static final class SessionConfig {
+        boolean testMode;
+        CyclePlan plan;       // null表示不修改
+        int shortBreak = -1;  // -1表示不修改
+        int longBreak = -1;
+
+        static SessionConfig parse(Map<String, String> query) {
+            SessionConfig config = new SessionConfig();
+            config.testMode = "true".equals(query.get("test"));
+            if (!config.testMode && query.containsKey("plan")) {
+                config.plan = CyclePlan.byId(query.get("plan"));
+            }
+            if (query.containsKey("short")) {
+                config.shortBreak = parseSeconds("short", query.get("short"));
+                if (!Settings.isValidShortBreak(config.shortBreak)) {
+                    throw new IllegalArgumentException("短休息时长超出范围: " + config.shortBreak);
+                }
+            }
+            if (query.containsKey("long")) {
+                config.longBreak = parseSeconds("long", query.get("long"));
+                if (!Settings.isValidLongBreak(config.longBreak)) {
+                    throw new IllegalArgumentException("长休息时长超出范围: " + config.longBreak);
+                }
+            }
+            return config;
+        }
+
+        private static int parseSeconds(String name, String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + "不是整数: " + value);
+            }
+        }
+
+        void applyTo(SessionRegistry.Session session) {
+            if (testMode) {
+                session.getTimerService().setTestMode(true);
+            } else if (plan != null) {
+                session.getTimerService().setPlan(plan);
+            }
+            int[] breakTimes = session.getTimerService().getBreakTimes();
+            session.getTimerService().setBreakTimes(shortBreak >= 0 ? shortBreak : breakTimes[0],
+                    longBreak >= 0 ? longBreak : breakTimes[1]);
+        }
+    }
+
+    private String summaryJson() {
+        int[] counts = registry.countByState();
+        StringBuilder json = new StringBuilder("{\"sessions\":").append(registry.size());
+        for (LearningState state : LearningState.values()) {
+            json.append(",\"").append(state.name().toLowerCase()).append("\":").append(counts[state.ordinal()]);
+        }
+        return json.append('}').toString();
+    }
+
+    private void sendSession(HttpExchange exchange, SessionRegistry.Session session) throws IOException {
+        if (session == null) {
+            send(exchange, 404, "{\"error\":\"session not found\"}");
+            return;
+        }
+        int[] breakTimes = session.getTimerService().getBreakTimes();
+        String json = "{\"id\":\"" + escape(session.getId()) + "\""
+                + ",\"state\":\"" + session.getStateManager().getState() + "\""
+                + ",\"elapsedSeconds\":" + session.getTimerService().getElapsedSeconds()
+                + ",\"plan\":\"" + escape(session.getTimerService().getPlan().getId()) + "\""
+                + ",\"testMode\":" + session.getTimerService().isTestMode()
+                + ",\"shortBreakSeconds\":" + breakTimes[0]
+                + ",\"longBreakSeconds\":" + breakTimes[1]
+                + ",\"shortBreaks\":" + session.getShortBreaks()
+                + ",\"longBreaks\":" + session.getLongBreaks() + "}";
+        send(exchange, 200, json);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> result = new HashMap<>();
+        if (query == null || query.isEmpty()) return result;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) result.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return result;
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
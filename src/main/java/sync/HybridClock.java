@@ -0,0 +1,50 @@
+package sync;
+
+import core.Clock;
+
+/**
+ * 混合逻辑时钟（HLC）：时间戳的高48位为墙上时间毫秒，低16位为逻辑计数。
+ * 本机事件的时间戳不早于墙上时间，且晚于本机之前的事件和已收到的所有时间戳，
+ * 因此设备之间墙上时间有偏差时，因果上靠后的切换仍然得到更大的时间戳。线程安全。
+ */
+public final class HybridClock {
+    private static final int LOGICAL_BITS = 16;
+    private static final long LOGICAL_MASK = (1L << LOGICAL_BITS) - 1;
+
+    private final Clock clock;
+    private long last = 0;
+
+    public HybridClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * 本机事件（发送）的时间戳
+     */
+    public synchronized long now() {
+        long physical = clock.currentTimeMillis() << LOGICAL_BITS;
+        last = physical > last ? physical : last + 1;
+        return last;
+    }
+
+    /**
+     * 收到其他设备的时间戳，之后本机的时间戳都会大于它
+     */
+    public synchronized void update(long remote) {
+        if (remote > last) last = remote;
+    }
+
+    /**
+     * 时间戳中的墙上时间（毫秒）
+     */
+    public static long physicalMillis(long timestamp) {
+        return timestamp >>> LOGICAL_BITS;
+    }
+
+    /**
+     * 时间戳中的逻辑计数
+     */
+    public static int logical(long timestamp) {
+        return (int) (timestamp & LOGICAL_MASK);
+    }
+}
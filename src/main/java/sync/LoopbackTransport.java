@@ -0,0 +1,84 @@
+package sync;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的回环传输：同一个Network中的各个端点互相可见，发送时在发送线程上依次交给其他端点，
+ * 配合VirtualClock可以确定地模拟多台设备之间的同步。可以断开某个端点来模拟丢包或网络分区。
+ */
+public final class LoopbackTransport implements Transport {
+
+    /**
+     * 一个模拟的局域网
+     */
+    public static final class Network {
+        private final AtomicReference<LoopbackTransport[]> members = new AtomicReference<>(new LoopbackTransport[0]);
+
+        /**
+         * 加入一个新端点
+         */
+        public LoopbackTransport join() {
+            LoopbackTransport transport = new LoopbackTransport(this);
+            while (true) {
+                LoopbackTransport[] current = members.get();
+                LoopbackTransport[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = transport;
+                if (members.compareAndSet(current, updated)) return transport;
+            }
+        }
+
+        private void leave(LoopbackTransport transport) {
+            while (true) {
+                LoopbackTransport[] current = members.get();
+                LoopbackTransport[] updated = Arrays.stream(current).filter(t -> t != transport).toArray(LoopbackTransport[]::new);
+                if (updated.length == current.length || members.compareAndSet(current, updated)) return;
+            }
+        }
+    }
+
+    private final Network network;
+    private volatile Consumer<ByteBuffer> receiver;
+    private volatile boolean connected = true;
+    private long sentCount = 0;
+
+    private LoopbackTransport(Network network) {
+        this.network = network;
+    }
+
+    @Override
+    public void send(ByteBuffer packet) {
+        if (!connected) return;
+        synchronized (this) {
+            sentCount++;
+        }
+        for (LoopbackTransport member : network.members.get()) {
+            Consumer<ByteBuffer> target = member.receiver;
+            if (member == this || !member.connected || target == null) continue;
+            target.accept(packet.asReadOnlyBuffer());
+        }
+    }
+
+    @Override
+    public void setReceiver(Consumer<ByteBuffer> receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * 断开或恢复连接，断开期间既不发送也不接收
+     */
+    public void setConnected(boolean connected) {
+        this.connected = connected;
+    }
+
+    public synchronized long getSentCount() {
+        return sentCount;
+    }
+
+    @Override
+    public void close() {
+        network.leave(this);
+    }
+}
@@ -0,0 +1,130 @@
+package sync;
+
+import log.Log;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.Enumeration;
+import java.util.function.Consumer;
+
+/**
+ * 局域网UDP组播传输：所有设备加入同一个组播地址，TTL为1，数据包不会离开本地网络。
+ * 接收在一个守护线程上进行，接收缓冲区复用。
+ *
+ * 系统属性：studyassist.sync.address（默认239.255.83.65）、studyassist.sync.port（默认47654）、
+ * studyassist.sync.interface（网络接口名，默认取第一个支持组播的非回环IPv4接口）。
+ */
+public final class MulticastTransport implements Transport {
+    public static final String DEFAULT_ADDRESS = "239.255.83.65";
+    public static final int DEFAULT_PORT = 47654;
+    // 比消息稍大，长度不对的数据包由StateDelta.decode丢弃
+    private static final int RECEIVE_BUFFER = 128;
+
+    private final DatagramChannel channel;
+    private final InetSocketAddress target;
+    private volatile Consumer<ByteBuffer> receiver;
+
+    private MulticastTransport(InetAddress group, int port, NetworkInterface networkInterface) throws IOException {
+        if (!group.isMulticastAddress()) throw new IllegalArgumentException("不是组播地址: " + group);
+        this.target = new InetSocketAddress(group, port);
+        this.channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(port));
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, 1);
+            // 同一台机器上的多个实例也能互相看到，自己的数据包由接收方按设备ID忽略
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+            channel.join(group, networkInterface);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 加入组播组并启动接收线程（构造完成后才启动）
+     */
+    public static MulticastTransport open(InetAddress group, int port, NetworkInterface networkInterface) throws IOException {
+        MulticastTransport transport = new MulticastTransport(group, port, networkInterface);
+        Thread thread = new Thread(transport::receiveLoop, "sync-receive");
+        thread.setDaemon(true);
+        thread.start();
+        return transport;
+    }
+
+    /**
+     * 按系统属性打开组播传输
+     */
+    public static MulticastTransport openDefault() throws IOException {
+        InetAddress group = InetAddress.getByName(System.getProperty("studyassist.sync.address", DEFAULT_ADDRESS));
+        int port = Integer.getInteger("studyassist.sync.port", DEFAULT_PORT);
+        String name = System.getProperty("studyassist.sync.interface");
+        NetworkInterface networkInterface = name != null ? NetworkInterface.getByName(name) : defaultInterface();
+        if (networkInterface == null) {
+            throw new IOException(name != null ? "找不到网络接口: " + name : "没有可用于组播的网络接口");
+        }
+        Log.info("多设备同步使用组播 {}，网络接口 {}", group.getHostAddress() + ":" + port, networkInterface.getName());
+        return open(group, port, networkInterface);
+    }
+
+    // 第一个已启用、支持组播、有IPv4地址的非回环接口
+    private static NetworkInterface defaultInterface() throws SocketException {
+        Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+        while (interfaces != null && interfaces.hasMoreElements()) {
+            NetworkInterface candidate = interfaces.nextElement();
+            if (!candidate.isUp() || candidate.isLoopback() || !candidate.supportsMulticast()) continue;
+            Enumeration<InetAddress> addresses = candidate.getInetAddresses();
+            while (addresses.hasMoreElements()) {
+                if (addresses.nextElement() instanceof Inet4Address) return candidate;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void send(ByteBuffer packet) throws IOException {
+        channel.send(packet, target);
+    }
+
+    @Override
+    public void setReceiver(Consumer<ByteBuffer> receiver) {
+        this.receiver = receiver;
+    }
+
+    private void receiveLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER);
+        try {
+            while (true) {
+                buffer.clear();
+                channel.receive(buffer);
+                buffer.flip();
+                Consumer<ByteBuffer> handler = receiver;
+                if (handler == null) continue;
+                try {
+                    handler.accept(buffer);
+                } catch (RuntimeException e) {
+                    Log.error("处理同步消息出错: {}", e.getMessage());
+                }
+            }
+        } catch (ClosedChannelException e) {
+            // 已关闭
+        } catch (IOException e) {
+            Log.error("同步接收失败，停止接收: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
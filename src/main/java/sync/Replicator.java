@@ -0,0 +1,220 @@
+package sync;
+
+import core.Clock;
+import core.LearningState;
+import core.StateListener;
+import core.StateManager;
+import core.TimerService;
+import log.Log;
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多设备状态同步：同一用户在几台设备上同时运行时，让各台设备的学习、暂停和休息阶段保持一致。
+ *
+ * 整个计时状态看作一个"最后写入者胜出"的寄存器，版本是最近一次状态切换的HLC时间戳（相同时比较设备ID）。
+ * 本机切换时取一个新版本并广播一条StateDelta；收到版本更新的消息时采用对方的状态，
+ * 收到过时的消息时回复自己的状态。另外每HEARTBEAT_MILLIS发送一次心跳作为检查点，
+ * 用于补上丢失的数据包、让新加入的设备追上，并校正已学习时间的偏差。
+ *
+ * 所有状态切换都在TimerService的锁内进行，这里的字段也由同一把锁保护，
+ * 比较版本和应用对方状态因此不会与本机的切换交错。发送总是通过时钟推迟到锁外进行。
+ */
+public class Replicator implements AutoCloseable {
+    private static final LongAdder SENT = Metrics.counter("sync.sent");
+    private static final LongAdder SEND_FAILED = Metrics.counter("sync.sendFailed");
+    private static final LongAdder RECEIVED = Metrics.counter("sync.received");
+    private static final LongAdder DROPPED = Metrics.counter("sync.dropped");
+    private static final LongAdder APPLIED = Metrics.counter("sync.applied");
+
+    // 心跳间隔
+    private static final long HEARTBEAT_MILLIS = 10_000;
+    // 同一次切换的检查点与本机相差超过这个时间才校正
+    private static final long DRIFT_MILLIS = 2_000;
+    // 回复过时消息的最小间隔，避免几台设备之间来回回复
+    private static final long REPLY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final TimerService timerService;
+    private final StateManager stateManager;
+    private final Clock clock;
+    private final Transport transport;
+    private final HybridClock hlc;
+    private final int group;
+    private final long nodeId;
+    private final StateListener listener = this::onStateChanged;
+
+    // 以下字段由timerService的锁保护
+    private long version = 0;
+    private long versionNode;
+    private boolean applying = false;     // 正在应用对方的状态，期间的切换不再广播
+    private boolean sendPending = false;
+    private long lastReplyNanos = 0;
+    private boolean replied = false;
+    private Clock.Task heartbeatTask;
+    private volatile boolean sendFailing = false;
+
+    public Replicator(TimerService timerService, StateManager stateManager, Clock clock, Transport transport, String groupName) {
+        this(timerService, stateManager, clock, transport, groupName, ThreadLocalRandom.current().nextLong());
+    }
+
+    public Replicator(TimerService timerService, StateManager stateManager, Clock clock, Transport transport,
+                      String groupName, long nodeId) {
+        this.timerService = timerService;
+        this.stateManager = stateManager;
+        this.clock = clock;
+        this.transport = transport;
+        this.hlc = new HybridClock(clock);
+        this.group = groupName.hashCode();
+        this.nodeId = nodeId;
+        this.versionNode = nodeId;
+    }
+
+    /**
+     * 开始同步：立即发送一次心跳宣布自己，之后定期发送
+     */
+    public void start() {
+        synchronized (timerService) {
+            // 已经从会话日志恢复了状态时，它比从未切换过的设备新
+            if (!stateManager.isIdle()) version = hlc.now();
+            stateManager.addListener(listener);
+            transport.setReceiver(this::receive);
+            heartbeatTask = clock.scheduleAtFixedRate(() -> send(StateDelta.TYPE_HEARTBEAT),
+                    0, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        Log.info("多设备同步已启动，设备ID {}", Long.toHexString(nodeId));
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 当前状态的版本（HLC时间戳）
+     */
+    public long getVersion() {
+        synchronized (timerService) {
+            return version;
+        }
+    }
+
+    // 本机的状态切换，在TimerService的锁内调用
+    private void onStateChanged(LearningState oldState, LearningState newState) {
+        synchronized (timerService) {
+            if (applying) return;
+            version = hlc.now();
+            versionNode = nodeId;
+            scheduleSend();
+        }
+    }
+
+    // 切换完成、TimerService释放锁之后再取快照发送；连续的切换合并为一次
+    private void scheduleSend() {
+        if (sendPending) return;
+        sendPending = true;
+        clock.schedule(() -> {
+            synchronized (timerService) {
+                sendPending = false;
+            }
+            send(StateDelta.TYPE_STATE);
+        }, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private void send(byte type) {
+        StateDelta delta;
+        synchronized (timerService) {
+            delta = new StateDelta(type, group, nodeId, version, versionNode, timerService.snapshot());
+        }
+        ByteBuffer packet = ByteBuffer.allocate(StateDelta.SIZE);
+        delta.encode(packet);
+        packet.flip();
+        try {
+            transport.send(packet);
+            SENT.increment();
+            if (sendFailing) {
+                sendFailing = false;
+                Log.info("同步消息已恢复发送");
+            }
+        } catch (IOException e) {
+            SEND_FAILED.increment();
+            // 网络断开时心跳会一直失败，只在第一次记录
+            if (!sendFailing) {
+                sendFailing = true;
+                Log.warn("无法发送同步消息: {}", e.getMessage());
+            }
+        }
+    }
+
+    // 在传输的接收线程上调用
+    private void receive(ByteBuffer packet) {
+        StateDelta delta = StateDelta.decode(packet);
+        if (delta == null) {
+            DROPPED.increment();
+            return;
+        }
+        if (delta.group != group || delta.node == nodeId) return;
+        RECEIVED.increment();
+        synchronized (timerService) {
+            hlc.update(delta.version);
+            int c = compareVersion(delta.version, delta.versionNode, version, versionNode);
+            if (c > 0) {
+                version = delta.version;
+                versionNode = delta.versionNode;
+                if (differs(timerService.snapshot(), delta.snapshot)) apply(delta);
+            } else if (c == 0) {
+                // 同一次切换：以切换所在设备的检查点为准校正偏差
+                if (delta.node == versionNode && differs(timerService.snapshot(), delta.snapshot)) apply(delta);
+            } else {
+                // 对方还不知道较新的切换（丢包或刚加入），回复当前状态
+                long now = clock.nanoTime();
+                if (!replied || now - lastReplyNanos >= REPLY_INTERVAL_NANOS) {
+                    replied = true;
+                    lastReplyNanos = now;
+                    scheduleSend();
+                }
+            }
+        }
+    }
+
+    private void apply(StateDelta delta) {
+        applying = true;
+        try {
+            timerService.applySnapshot(delta.snapshot);
+        } finally {
+            applying = false;
+        }
+        APPLIED.increment();
+        Log.info("已采用设备 {} 的状态: {}", Long.toHexString(delta.node), delta.snapshot.state);
+    }
+
+    // 状态不同，或者同一状态下的时间相差超过DRIFT_MILLIS
+    private static boolean differs(TimerService.Snapshot local, TimerService.Snapshot remote) {
+        if (local.state != remote.state) return true;
+        if (local.state == LearningState.BREAK) {
+            return Math.abs(local.breakRemainingMillis - remote.breakRemainingMillis) > DRIFT_MILLIS;
+        }
+        return Math.abs(local.elapsedMillis - remote.elapsedMillis) > DRIFT_MILLIS;
+    }
+
+    private static int compareVersion(long version, long node, long otherVersion, long otherNode) {
+        int c = Long.compare(version, otherVersion);
+        return c != 0 ? c : Long.compare(node, otherNode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (timerService) {
+            if (heartbeatTask != null) {
+                heartbeatTask.cancel();
+                heartbeatTask = null;
+            }
+            stateManager.removeListener(listener);
+            transport.setReceiver(null);
+        }
+        transport.close();
+    }
+}
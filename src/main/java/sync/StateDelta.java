@@ -0,0 +1,95 @@
+package sync;
+
+import core.LearningState;
+import core.TimerService;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 同步消息：一台设备的计时状态，定长48字节（网络字节序），只在状态切换时和定期心跳时发送。
+ *
+ * <pre>
+ *  0  short  魔数 "SA"
+ *  2  byte   协议版本
+ *  3  byte   类型（TYPE_STATE：状态切换；TYPE_HEARTBEAT：定期检查点）
+ *  4  int    同步组（组名的哈希，其他组的消息直接丢弃）
+ *  8  long   发送设备的ID
+ * 16  long   状态的版本：最近一次切换的HLC时间戳
+ * 24  long   最近一次切换所在设备的ID，版本相同时比较它
+ * 32  byte   状态
+ * 33  byte   标志（第0位：长休息）
+ * 34  short  最近一次触发提醒的小段下标
+ * 36  int    已学习时间（毫秒）
+ * 40  int    休息剩余时间（毫秒）
+ * 44  short  休息总时长（秒）
+ * 46  short  保留
+ * </pre>
+ */
+public final class StateDelta {
+    public static final int SIZE = 48;
+    public static final byte TYPE_STATE = 1;
+    public static final byte TYPE_HEARTBEAT = 2;
+
+    private static final short MAGIC = 0x5341; // "SA"
+    private static final byte VERSION = 1;
+    private static final byte FLAG_LONG_BREAK = 1;
+    private static final LearningState[] STATES = LearningState.values();
+
+    public final byte type;
+    public final int group;
+    public final long node;
+    public final long version;
+    public final long versionNode;
+    public final TimerService.Snapshot snapshot;
+
+    public StateDelta(byte type, int group, long node, long version, long versionNode, TimerService.Snapshot snapshot) {
+        this.type = type;
+        this.group = group;
+        this.node = node;
+        this.version = version;
+        this.versionNode = versionNode;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * 写入buffer的当前位置，写入SIZE字节
+     */
+    public void encode(ByteBuffer buffer) {
+        buffer.putShort(MAGIC).put(VERSION).put(type).putInt(group)
+                .putLong(node).putLong(version).putLong(versionNode)
+                .put((byte) snapshot.state.ordinal())
+                .put(snapshot.longBreak ? FLAG_LONG_BREAK : 0)
+                .putShort((short) snapshot.lastTriggeredCycle)
+                .putInt((int) Math.min(Integer.MAX_VALUE, snapshot.elapsedMillis))
+                .putInt((int) Math.min(Integer.MAX_VALUE, snapshot.breakRemainingMillis))
+                .putShort((short) snapshot.breakTotalSeconds)
+                .putShort((short) 0);
+    }
+
+    /**
+     * 从buffer的剩余内容解析
+     * @return 长度、魔数、协议版本或字段不正确时返回null
+     */
+    public static StateDelta decode(ByteBuffer buffer) {
+        if (buffer.remaining() != SIZE) return null;
+        int base = buffer.position();
+        if (buffer.getShort(base) != MAGIC || buffer.get(base + 2) != VERSION) return null;
+        byte type = buffer.get(base + 3);
+        int state = buffer.get(base + 32);
+        if ((type != TYPE_STATE && type != TYPE_HEARTBEAT) || state < 0 || state >= STATES.length) return null;
+        int elapsed = buffer.getInt(base + 36);
+        int breakRemaining = buffer.getInt(base + 40);
+        int breakTotal = Short.toUnsignedInt(buffer.getShort(base + 44));
+        if (elapsed < 0 || breakRemaining < 0) return null;
+        TimerService.Snapshot snapshot = new TimerService.Snapshot(STATES[state], elapsed, buffer.getShort(base + 34),
+                breakRemaining, breakTotal, (buffer.get(base + 33) & FLAG_LONG_BREAK) != 0);
+        return new StateDelta(type, buffer.getInt(base + 4), buffer.getLong(base + 8), buffer.getLong(base + 16),
+                buffer.getLong(base + 24), snapshot);
+    }
+
+    @Override
+    public String toString() {
+        return "StateDelta{type=" + type + ", node=" + Long.toHexString(node) + ", version=" + version
+                + "@" + Long.toHexString(versionNode) + ", " + snapshot + "}";
+    }
+}
@@ -0,0 +1,26 @@
+package sync;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * 同步消息的传输：把一个数据包发给同组的所有其他设备（不保证送达和顺序，丢失的状态由心跳补上）。
+ * 实现需要线程安全。
+ */
+public interface Transport extends AutoCloseable {
+
+    /**
+     * 发送packet的剩余内容
+     */
+    void send(ByteBuffer packet) throws IOException;
+
+    /**
+     * 设置收到数据包时的回调，在传输的接收线程（或回环传输的发送线程）上调用；
+     * 传入的buffer只在回调期间有效。可能收到本机自己发送的数据包
+     */
+    void setReceiver(Consumer<ByteBuffer> receiver);
+
+    @Override
+    void close() throws IOException;
+}
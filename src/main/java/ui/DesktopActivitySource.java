@@ -0,0 +1,37 @@
+package ui;
+
+import core.IdleMonitor;
+
+import java.awt.*;
+import java.awt.event.AWTEventListener;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 桌面上的用户活动：鼠标在整个屏幕上的位置，加上本程序窗口内的键盘、滚轮和窗口焦点事件。
+ * 事件只累加一个计数，采样时读取鼠标位置和计数，不做其他工作。
+ * Java无法得到其他程序中的键盘输入，只在其他程序里打字而不动鼠标会被当作无操作。
+ */
+public class DesktopActivitySource implements IdleMonitor.ActivitySource {
+    private final AtomicLong events = new AtomicLong();
+    private final AWTEventListener listener = event -> events.incrementAndGet();
+
+    public DesktopActivitySource() {
+        Toolkit.getDefaultToolkit().addAWTEventListener(listener,
+                AWTEvent.KEY_EVENT_MASK | AWTEvent.MOUSE_WHEEL_EVENT_MASK | AWTEvent.WINDOW_FOCUS_EVENT_MASK);
+    }
+
+    @Override
+    public long sample() {
+        long fingerprint = events.get();
+        PointerInfo pointer = MouseInfo.getPointerInfo();
+        if (pointer != null) {
+            Point location = pointer.getLocation();
+            fingerprint = fingerprint * 31 + (((long) location.x << 32) ^ location.y);
+        }
+        return fingerprint;
+    }
+
+    public void dispose() {
+        Toolkit.getDefaultToolkit().removeAWTEventListener(listener);
+    }
+}
@@ -1,52 +1,150 @@
 package ui;
 
+import core.CyclePlan;
+import core.Settings;
+import core.SettingsStore;
 import core.SoundPlayer;
+import log.Log;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.StartupTimer;
+import sync.Replicator;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
 public class MainWindow {
+    // 学习计划下拉框中的"从文件加载"项
+    private static final String LOAD_PLAN_ITEM = "从文件加载…";
+    // 默认无操作多久后自动暂停（分钟）
+    private static final int DEFAULT_IDLE_MINUTES = 10;
+    // 隐藏到托盘时是否释放主窗口，默认只隐藏；-Dstudyassist.ui.releaseOnHide=true 时释放。
+    // 虚拟显示上测得的节省很小，在真实桌面上测出值得的收益之前不默认开启
+    private static final boolean RELEASE_ON_HIDE =
+            Boolean.parseBoolean(System.getProperty("studyassist.ui.releaseOnHide", "false"));
+    private static final LatencyHistogram WINDOW_RESTORE = Metrics.histogram("ui.window.restore");
+    private static final LongAdder WINDOW_RELEASES = Metrics.counter("ui.window.releases");
+
     private JFrame frame;
     private JButton startButton;
     private JButton pauseButton;
     private JButton exitButton;
     private JButton breakTimeButton;
     private JButton testButton;
+    private JButton statisticsButton;
+    private JDialog statisticsDialog;
     private JProgressBar progressBar;
+    private JSlider volumeSlider;
+    private volatile ProgressController progressController; // 窗口释放后为null，计时线程读取
+    private NotificationCenter notificationCenter;
     private core.TimerService timerService;
     private core.StateManager stateManager;
+    private core.StudyAnalytics analytics;
+    private core.IdleMonitor idleMonitor;
+    private SettingsStore settingsStore;
     private boolean testModeEnabled = false;
+    // 长休息时循环播放的背景音文件，null表示不播放
+    private volatile Path ambientFile;
 
     // 系统托盘相关
     private SystemTray systemTray;
     private TrayIcon trayIcon;
+    private TrayProgressIcon trayProgressIcon;
     private boolean isMinimizedToTray = false;
+    private boolean firstFrameShown = false;
+    private Point lastLocation; // 释放前窗口的位置，重建时放回原处
 
     public void createAndShowGUI() {
+        createAndShowGUI(StartupTasks.start(), SettingsStore.openDefault());
+    }
+
+    /**
+     * 先显示主窗口，托盘、会话日志等由后台预热任务准备好后再接入；
+     * 设置在首帧之前已读取，窗口一出现就是保存的休息时间、音量和测试模式
+     */
+    public void createAndShowGUI(StartupTasks startupTasks, SettingsStore settingsStore) {
+        this.settingsStore = settingsStore;
+        Settings settings = settingsStore.get();
+        SoundPlayer.setVolume(settings.getVolume());
+
+        // 休息提醒以非模态方式显示（托盘就绪后，窗口隐藏时使用托盘气泡）
+        notificationCenter = new NotificationCenter(null, null);
+
+        // 添加控制器绑定（状态和计时服务初始化，都不涉及I/O）
+        stateManager = new core.StateManager();
+        // 订阅状态切换，暂停时按钮显示为"继续"（窗口已释放时不更新）
+        stateManager.addListener((oldState, newState) -> {
+            if (progressController != null) SwingUtilities.invokeLater(this::updatePauseButton);
+        });
+        // 离开休息状态（休息结束、暂停或停止）时淡出背景音
+        stateManager.addListener((oldState, newState) -> {
+            if (oldState == core.LearningState.BREAK) SoundPlayer.getAmbientPlayer().stop();
+        });
+        timerService = new core.TimerService(stateManager, new SwingTimerSink(this));
+        timerService.applySettings(settings);
+        testModeEnabled = settings.isTestMode();
+        analytics = new core.StudyAnalytics(timerService::getBreakTotalSeconds, timerService::getIdleDeductedMillis);
+        // 无操作自动暂停：最短1秒、最长1分钟采样一次
+        idleMonitor = new core.IdleMonitor(timerService, stateManager, core.TimingWheel.shared(),
+                new DesktopActivitySource(), DEFAULT_IDLE_MINUTES * 60, 1000, 60_000);
+        idleMonitor.start();
+
+        buildFrame();
+        frame.setLocationRelativeTo(null); // 居中
+        frame.setVisible(true);
+
+        // 首帧绘制之后再接入后台准备好的托盘和会话日志
+        SwingUtilities.invokeLater(() -> finishStartup(startupTasks));
+    }
+
+    // 创建主窗口和全部控件，控件状态取自计时服务的当前状态；启动时和从托盘恢复时调用
+    private void buildFrame() {
         frame = new JFrame("学习辅助工具");
         frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE); // 改为不直接退出
-        frame.setSize(450, 150);
+        frame.setSize(540, 150);
         frame.setResizable(false); // 禁止调整窗口大小
         frame.setLayout(new BorderLayout());
-
-        // 初始化系统托盘
-        initSystemTray();
+        notificationCenter.setFrame(frame);
 
         // 添加窗口关闭监听器
         frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                if (!firstFrameShown) {
+                    firstFrameShown = true;
+                    StartupTimer.mark("firstFrame");
+                }
+            }
+
             @Override
             public void windowClosing(WindowEvent e) {
                 minimizeToTray();
             }
+
+            // 最小化到任务栏时同样停止界面刷新
+            @Override
+            public void windowIconified(WindowEvent e) {
+                if (timerService != null) timerService.setDisplayVisible(false);
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                if (timerService != null) timerService.setDisplayVisible(true);
+            }
         });
 
         // 进度条
         progressBar = new JProgressBar(0, 90 * 60); // 单位为秒
         progressBar.setStringPainted(true);
         progressBar.setPreferredSize(new Dimension(450, 30));
+        progressController = new ProgressController(progressBar);
         frame.add(progressBar, BorderLayout.NORTH);
 
         // 按钮面板
@@ -56,11 +154,13 @@ public class MainWindow {
         exitButton = new JButton("退出");
         breakTimeButton = new JButton("休息设置");
         testButton = new JButton("测试模式");
+        statisticsButton = new JButton("学习统计");
         
         buttonPanel.add(startButton);
         buttonPanel.add(pauseButton);
         buttonPanel.add(breakTimeButton);
         buttonPanel.add(testButton);
+        buttonPanel.add(statisticsButton);
         buttonPanel.add(exitButton);
         
         frame.add(buttonPanel, BorderLayout.CENTER);
@@ -68,61 +168,283 @@ public class MainWindow {
         // 音量控制滑块
         JPanel volumePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         JLabel volumeLabel = new JLabel("音量: ");
-        JSlider volumeSlider = new JSlider(JSlider.HORIZONTAL, 0, 100, 100);
+        volumeSlider = new JSlider(JSlider.HORIZONTAL, 0, 100, Math.round(SoundPlayer.getVolume() * 100));
         volumeSlider.setPreferredSize(new Dimension(150, 20));
         volumeSlider.addChangeListener(e -> {
             float volume = volumeSlider.getValue() / 100.0f;
             SoundPlayer.setVolume(volume);
+            // 拖动结束后才保存
+            if (!volumeSlider.getValueIsAdjusting()) saveSettings();
         });
         
         volumePanel.add(volumeLabel);
         volumePanel.add(volumeSlider);
         frame.add(volumePanel, BorderLayout.SOUTH);
 
-        frame.setLocationRelativeTo(null); // 居中
-        frame.setVisible(true);
-
-        // 添加控制器绑定（状态和计时服务初始化）
-        stateManager = new core.StateManager();
-        timerService = new core.TimerService(stateManager, this);
         new actions.UserActions(this, stateManager, timerService);
+        updatePauseButton();
+        updateTestButton();
         
         // 绑定休息时间设置按钮事件
         breakTimeButton.addActionListener(e -> showBreakTimeDialog());
         
         // 绑定测试按钮事件
         testButton.addActionListener(e -> toggleTestMode());
+
+        // 绑定学习统计按钮事件
+        statisticsButton.addActionListener(e -> showStatisticsDialog());
+
+        // 立即显示当前进度（空闲和暂停时不会有定时刷新）
+        timerService.setDisplayVisible(true);
+    }
+
+    /**
+     * 隐藏到托盘时释放主窗口：先停止进度更新，再销毁窗口、统计窗口和提示窗的整棵组件树，
+     * 只保留计时服务、托盘图标和通知队列；从托盘恢复时由buildFrame按当前状态重建
+     */
+    void releaseFrame() {
+        timerService.setDisplayVisible(false);
+        progressController = null; // 之后的进度更新在SwingTimerSink中直接丢弃
+        lastLocation = frame.getLocation();
+        if (statisticsDialog != null) {
+            statisticsDialog.dispose();
+            statisticsDialog = null;
+        }
+        notificationCenter.setFrame(null);
+        // 焦点管理器的静态字段会一直引用最后获得焦点的窗口和焦点循环根，销毁前先清掉，否则整棵组件树无法回收
+        KeyboardFocusManager focusManager = KeyboardFocusManager.getCurrentKeyboardFocusManager();
+        focusManager.clearGlobalFocusOwner();
+        if (focusManager.getCurrentFocusCycleRoot() == frame) focusManager.setGlobalCurrentFocusCycleRoot(null);
+        frame.dispose();
+        frame = null;
+        progressBar = null;
+        volumeSlider = null;
+        startButton = pauseButton = exitButton = breakTimeButton = testButton = statisticsButton = null;
+        WINDOW_RELEASES.increment();
+        Log.info("主窗口已释放，已用堆内存 {} KB", usedHeapKilobytes());
+    }
+
+    private static long usedHeapKilobytes() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1024;
+    }
+
+    private void updatePauseButton() {
+        if (pauseButton != null) {
+            pauseButton.setText(stateManager.getState() == core.LearningState.PAUSED ? "继续" : "暂停");
+        }
+    }
+
+    private void finishStartup(StartupTasks startupTasks) {
+        // 设置文件被其他程序修改时直接生效
+        try {
+            settingsStore.watch(this::onSettingsChanged);
+        } catch (IOException e) {
+            Log.warn("无法监视设置文件，修改后需要重启才能生效: {}", e.getMessage());
+        }
+
+        startupTasks.tray().thenAccept(sprites -> SwingUtilities.invokeLater(() -> {
+            initSystemTray(sprites);
+            notificationCenter.setTrayIcon(trayIcon);
+        }));
+
+        // 在后台用历史记录重建统计，再回到EDT恢复上次被中断的学习会话
+        CompletableFuture<Void> journalReady = startupTasks.journal().thenAcceptAsync(journal -> {
+            try {
+                analytics.replay(journal);
+            } catch (IOException e) {
+                Log.error("无法读取会话日志: {}", e.getMessage());
+            }
+            SwingUtilities.invokeLater(() -> {
+                timerService.setJournal(journal);
+                stateManager.addListener(analytics);
+                StartupTimer.mark("sessionRestored");
+            });
+        }).exceptionally(e -> {
+            Log.error("无法打开会话日志: {}", e.getMessage());
+            SwingUtilities.invokeLater(() -> stateManager.addListener(analytics));
+            return null;
+        });
+
+        // 日历目录存在时，按其中的课程和会议自动暂停、恢复学习和跳过休息
+        startupTasks.calendar().thenAccept(watcher -> {
+            if (watcher == null) return;
+            timerService.setBusyCalendar(watcher.getIndex());
+            watcher.setChangeListener(timerService::calendarChanged);
+        }).exceptionally(e -> {
+            Log.error("无法读取日历目录: {}", e.getMessage());
+            return null;
+        });
+
+        // 会话恢复之后再加入同步，恢复的状态作为本机最近的一次切换参与比较
+        journalReady.thenCombine(startupTasks.sync(), (ignored, transport) -> transport).thenAccept(transport -> {
+            if (transport == null) return;
+            SwingUtilities.invokeLater(() -> new Replicator(timerService, stateManager, core.TimingWheel.shared(), transport,
+                    System.getProperty("studyassist.sync.group", "default")).start());
+        }).exceptionally(e -> {
+            Log.error("无法启动多设备同步: {}", e.getMessage());
+            return null;
+        });
+
+        CompletableFuture.allOf(startupTasks.all(), journalReady)
+                .thenRun(() -> SwingUtilities.invokeLater(() -> Log.info("{}", StartupTimer.report())));
+    }
+
+    // 非模态的统计窗口，重复打开时复用
+    private void showStatisticsDialog() {
+        if (statisticsDialog == null) {
+            statisticsDialog = new JDialog(frame, "学习统计", false);
+            statisticsDialog.setContentPane(StatisticsPanel.create(analytics));
+            statisticsDialog.pack();
+            statisticsDialog.setLocationRelativeTo(frame);
+        }
+        statisticsDialog.setVisible(true);
+        statisticsDialog.toFront();
     }
     
     private void showBreakTimeDialog() {
         int[] currentTimes = timerService.getBreakTimes();
-        int shortBreakSeconds = currentTimes[0];
-        int longBreakMinutes = currentTimes[1] / 60;
-        
-        JPanel panel = new JPanel(new GridLayout(2, 2, 5, 5));
+        CyclePlan currentPlan = timerService.getPlan();
+
+        // 学习计划：内置计划（测试模式由测试按钮切换）、当前的自定义计划和"从文件加载"
+        JComboBox<Object> planBox = new JComboBox<>();
+        for (CyclePlan plan : CyclePlan.presets()) {
+            if (!plan.isTest()) planBox.addItem(plan);
+        }
+        if (!currentPlan.isTest() && !CyclePlan.presets().contains(currentPlan)) {
+            planBox.addItem(currentPlan);
+        }
+        planBox.addItem(LOAD_PLAN_ITEM);
+        planBox.setSelectedItem(currentPlan);
+        // 测试模式下不能切换计划
+        planBox.setEnabled(!testModeEnabled);
+
+        JPanel panel = new JPanel(new GridLayout(5, 2, 5, 5));
+        panel.add(new JLabel("学习计划:"));
+        panel.add(planBox);
+
         panel.add(new JLabel("短休息时间(秒):"));
-        JSpinner shortBreakSpinner = new JSpinner(new SpinnerNumberModel(shortBreakSeconds, 10, 60, 1));
-        panel.add(shortBreakSpinner);
+        SpinnerNumberModel shortBreakModel = new SpinnerNumberModel(clamp(currentTimes[0], 10, 1800), 10, 1800, 5);
+        panel.add(new JSpinner(shortBreakModel));
         
         panel.add(new JLabel("长休息时间(分钟):"));
-        JSpinner longBreakSpinner = new JSpinner(new SpinnerNumberModel(longBreakMinutes, 15, 30, 1));
-        panel.add(longBreakSpinner);
+        SpinnerNumberModel longBreakModel = new SpinnerNumberModel(clamp(currentTimes[1] / 60, 1, 60), 1, 60, 1);
+        panel.add(new JSpinner(longBreakModel));
+
+        panel.add(new JLabel("无操作自动暂停(分钟，0为关闭):"));
+        SpinnerNumberModel idleModel = new SpinnerNumberModel(idleMonitor.getIdleThresholdSeconds() / 60, 0, 60, 1);
+        panel.add(new JSpinner(idleModel));
+
+        // 长休息背景音：点击选择文件，取消选择则不播放
+        panel.add(new JLabel("长休息背景音:"));
+        Path[] selectedAmbient = {ambientFile};
+        JButton ambientButton = new JButton(ambientText(selectedAmbient[0]));
+        ambientButton.addActionListener(e -> {
+            selectedAmbient[0] = chooseAmbientFile(selectedAmbient[0]);
+            ambientButton.setText(ambientText(selectedAmbient[0]));
+        });
+        panel.add(ambientButton);
+
+        // 选择计划后把休息时间改为计划的默认值
+        CyclePlan[] selectedPlan = {currentPlan};
+        planBox.addActionListener(e -> {
+            Object item = planBox.getSelectedItem();
+            if (item == LOAD_PLAN_ITEM) {
+                CyclePlan loaded = loadPlanFromFile();
+                if (loaded == null) {
+                    planBox.setSelectedItem(selectedPlan[0]);
+                    return;
+                }
+                planBox.insertItemAt(loaded, planBox.getItemCount() - 1);
+                planBox.setSelectedItem(loaded);
+                return;
+            }
+            if (item instanceof CyclePlan && item != selectedPlan[0]) {
+                selectedPlan[0] = (CyclePlan) item;
+                shortBreakModel.setValue(clamp(selectedPlan[0].getShortBreakSeconds(), 10, 1800));
+                longBreakModel.setValue(clamp(selectedPlan[0].getLongBreakSeconds() / 60, 1, 60));
+            }
+        });
         
         int result = JOptionPane.showConfirmDialog(frame, panel, 
-            "休息时间设置", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            "学习计划与休息时间", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
             
         if (result == JOptionPane.OK_OPTION) {
-            int newShortBreak = (Integer) shortBreakSpinner.getValue();
-            int newLongBreak = (Integer) longBreakSpinner.getValue() * 60;
+            if (selectedPlan[0] != currentPlan) {
+                timerService.setPlan(selectedPlan[0]);
+            }
+            int newShortBreak = (Integer) shortBreakModel.getValue();
+            int newLongBreak = (Integer) longBreakModel.getValue() * 60;
             timerService.setBreakTimes(newShortBreak, newLongBreak);
+            ambientFile = selectedAmbient[0];
+            idleMonitor.setIdleThresholdSeconds((Integer) idleModel.getValue() * 60);
+            saveSettings();
+        }
+    }
+
+    // 保存计时服务当前生效的设置和音量
+    private void saveSettings() {
+        settingsStore.save(timerService.getSettings().withVolume(SoundPlayer.getVolume()));
+    }
+
+    // 设置文件被修改后在监视线程上调用：计时服务整体替换设置，再回到EDT同步控件
+    private void onSettingsChanged(Settings settings) {
+        timerService.applySettings(settings);
+        SoundPlayer.setVolume(settings.getVolume());
+        SwingUtilities.invokeLater(() -> {
+            testModeEnabled = settings.isTestMode();
+            // 窗口已释放时只记录状态，重建时从当前设置创建控件
+            if (volumeSlider != null) volumeSlider.setValue(Math.round(settings.getVolume() * 100));
+            if (testButton != null) updateTestButton();
+        });
+    }
+
+    private static String ambientText(Path file) {
+        return file == null ? "无（点击选择）" : file.getFileName().toString();
+    }
+
+    // 选择背景音文件并检查能否播放；取消时不播放背景音，出错时保持原来的选择
+    private Path chooseAmbientFile(Path current) {
+        JFileChooser chooser = new JFileChooser(current != null ? current.getParent().toFile() : null);
+        chooser.setDialogTitle("选择长休息背景音（取消则不播放）");
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return null;
+        Path file = chooser.getSelectedFile().toPath();
+        try {
+            core.AmbientPlayer.probe(file);
+            return file;
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, "无法播放这个文件：\n" + e.getMessage(),
+                    "长休息背景音", JOptionPane.ERROR_MESSAGE);
+            return current;
+        }
+    }
+
+    public Path getAmbientFile() {
+        return ambientFile;
+    }
+
+    // 选择并加载自定义计划文件，取消或出错时返回null
+    private CyclePlan loadPlanFromFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("加载学习计划");
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return null;
+        try {
+            return CyclePlan.load(chooser.getSelectedFile().toPath());
+        } catch (IOException | IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(frame, "无法加载学习计划：\n" + e.getMessage(),
+                    "加载学习计划", JOptionPane.ERROR_MESSAGE);
+            return null;
         }
     }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
     
     private void toggleTestMode() {
         testModeEnabled = !testModeEnabled;
-        testButton.setText(testModeEnabled ? "关闭测试" : "测试模式");
-        testButton.setBackground(testModeEnabled ? new Color(255, 200, 200) : null);
+        updateTestButton();
         timerService.setTestMode(testModeEnabled);
+        saveSettings();
         
         if (testModeEnabled) {
             JOptionPane.showMessageDialog(frame, 
@@ -134,26 +456,30 @@ public class MainWindow {
         }
     }
 
+    private void updateTestButton() {
+        testButton.setText(testModeEnabled ? "关闭测试" : "测试模式");
+        testButton.setBackground(testModeEnabled ? new Color(255, 200, 200) : null);
+    }
+
     // 控件暴露接口（后续用于控制器绑定事件）
     public JButton getStartButton() { return startButton; }
     public JButton getPauseButton() { return pauseButton; }
     public JButton getExitButton() { return exitButton; }
     public JButton getTestButton() { return testButton; }
     public JProgressBar getProgressBar() { return progressBar; }
+    public ProgressController getProgressController() { return progressController; }
+    public NotificationCenter getNotificationCenter() { return notificationCenter; }
 
     // 系统托盘相关方法
-    private void initSystemTray() {
+    private void initSystemTray(TraySprites sprites) {
         // 检查系统是否支持托盘
-        if (!SystemTray.isSupported()) {
-            System.out.println("系统不支持托盘功能");
+        if (sprites == null || !SystemTray.isSupported()) {
+            Log.warn("系统不支持托盘功能");
             return;
         }
 
         systemTray = SystemTray.getSystemTray();
 
-        // 创建托盘图标（使用默认图标，后续可以替换为自定义图标）
-        Image trayImage = createTrayImage();
-
         // 创建弹出菜单
         PopupMenu popup = new PopupMenu();
 
@@ -186,52 +512,56 @@ public class MainWindow {
 
         popup.addSeparator();
 
+        // 性能指标菜单项
+        MenuItem metricsItem = new MenuItem("性能指标");
+        metricsItem.addActionListener(e -> showMetrics());
+        popup.add(metricsItem);
+
         // 退出菜单项
         MenuItem exitItem = new MenuItem("退出程序");
         exitItem.addActionListener(e -> exitApplication());
         popup.add(exitItem);
 
         // 创建托盘图标
-        trayIcon = new TrayIcon(trayImage, "学习辅助工具", popup);
+        // 创建托盘图标，图片由进度环按学习进度更换
+        trayIcon = new TrayIcon(sprites.frame(TraySprites.index(core.LearningState.IDLE, 0)), "学习辅助工具", popup);
         trayIcon.setImageAutoSize(true);
+        trayProgressIcon = new TrayProgressIcon(trayIcon, sprites, timerService, stateManager, core.TimingWheel.shared());
+        trayProgressIcon.install();
 
         // 双击托盘图标显示窗口
         trayIcon.addActionListener(e -> showWindow());
 
         try {
             systemTray.add(trayIcon);
-            System.out.println("系统托盘初始化成功");
+            Log.info("系统托盘初始化成功");
         } catch (AWTException e) {
-            System.err.println("无法添加到系统托盘: " + e.getMessage());
+            Log.error("无法添加到系统托盘: {}", e.getMessage());
         }
     }
 
-    private Image createTrayImage() {
-        // 创建一个简单的16x16像素的图标
-        // 这里使用程序化生成的图标，你也可以加载图片文件
-        int size = 16;
-        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
-
-        // 设置抗锯齿
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        // 绘制一个简单的圆形图标
-        g2d.setColor(new Color(46, 204, 113)); // 绿色
-        g2d.fillOval(2, 2, size-4, size-4);
-
-        // 绘制边框
-        g2d.setColor(Color.WHITE);
-        g2d.setStroke(new BasicStroke(1.5f));
-        g2d.drawOval(2, 2, size-4, size-4);
-
-        g2d.dispose();
-        return image;
+    // 输出当前的性能指标（计时延迟、提示音延迟、界面更新延迟等）
+    private void showMetrics() {
+        String report = Metrics.dump();
+        JTextArea textArea = new JTextArea(report);
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JDialog dialog = new JDialog(frame, "性能指标", false);
+        dialog.setContentPane(new JScrollPane(textArea));
+        dialog.setSize(900, 320);
+        dialog.setLocationRelativeTo(frame);
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dialog.setVisible(true);
     }
 
     private void minimizeToTray() {
         if (systemTray != null && trayIcon != null) {
-            frame.setVisible(false);
+            if (RELEASE_ON_HIDE) {
+                releaseFrame();
+            } else {
+                frame.setVisible(false);
+                timerService.setDisplayVisible(false);
+            }
             isMinimizedToTray = true;
 
             // 显示托盘通知
@@ -246,14 +576,34 @@ public class MainWindow {
 
     private void showWindow() {
         if (isMinimizedToTray) {
-            frame.setVisible(true);
-            frame.setState(JFrame.NORMAL);
-            frame.toFront();
-            frame.requestFocus();
+            restoreFrame();
             isMinimizedToTray = false;
         }
     }
 
+    /**
+     * 显示主窗口，已释放时先按当前状态重建
+     * @return 重建并显示所用的纳秒数，窗口未释放时返回-1
+     */
+    long restoreFrame() {
+        long startNanos = System.nanoTime();
+        boolean rebuild = frame == null;
+        if (rebuild) {
+            buildFrame();
+            frame.setLocation(lastLocation);
+        }
+        frame.setVisible(true);
+        frame.setState(JFrame.NORMAL);
+        frame.toFront();
+        frame.requestFocus();
+        timerService.setDisplayVisible(true);
+        if (!rebuild) return -1;
+        long restoreNanos = System.nanoTime() - startNanos;
+        WINDOW_RESTORE.record(restoreNanos);
+        Log.info("主窗口已按当前状态（{}）重建，耗时 {} 微秒，已用堆内存 {} KB", stateManager.getState(), restoreNanos / 1000, usedHeapKilobytes());
+        return restoreNanos;
+    }
+
     private void exitApplication() {
         int result = JOptionPane.showConfirmDialog(null,
                 "确定要退出吗？", "退出确认",
@@ -261,13 +611,50 @@ public class MainWindow {
         if (result == JOptionPane.YES_OPTION) {
             // 从系统托盘移除图标
             if (systemTray != null && trayIcon != null) {
+                trayProgressIcon.dispose();
                 systemTray.remove(trayIcon);
             }
             timerService.stop();
+            Log.info("{}", notificationCenter.toString());
             System.exit(0);
         }
     }
 
+    /**
+     * 处理另一次启动转发来的命令（show、start、pause、status），在单实例监听线程上调用
+     * @return 一行回复，status返回可供脚本解析的 key=value 格式
+     */
+    public String handleCommand(String command) {
+        switch (command) {
+            case "show":
+                SwingUtilities.invokeLater(() -> {
+                    showWindow();
+                    frame.setState(JFrame.NORMAL);
+                    frame.toFront();
+                });
+                return "已显示窗口";
+            case "start":
+                if (!stateManager.isStudying()) timerService.start();
+                return describeState();
+            case "pause":
+                if (stateManager.isStudying()) timerService.pause();
+                return describeState();
+            case "status":
+                return describeState();
+            default:
+                return "错误: 未知命令 " + command;
+        }
+    }
+
+    private String describeState() {
+        core.LearningState state = stateManager.getState();
+        String line = "state=" + state.name().toLowerCase();
+        if (state == core.LearningState.BREAK) {
+            return line + " remaining=" + timerService.getBreakRemainingSeconds() + " total=" + timerService.getBreakTotalSeconds();
+        }
+        return line + " elapsed=" + timerService.getElapsedSeconds() + " cycle=" + timerService.getCycleSeconds();
+    }
+
     // 获取frame引用，供其他类使用
     public JFrame getFrame() {
         return frame;
@@ -0,0 +1,244 @@
+package ui;
+
+import core.SoundPlayer;
+
+import javax.swing.*;
+import javax.swing.border.CompoundBorder;
+import javax.swing.border.EmptyBorder;
+import javax.swing.border.LineBorder;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 非模态通知：提醒进入队列，由EDT依次显示为屏幕右下角的小提示窗（窗口隐藏到托盘时改用托盘气泡），
+ * 几秒后自动消失，不需要点击确认，也不会阻塞计时或界面线程。
+ *
+ * 同一个key的通知尚未显示时，新通知直接替换旧通知（例如休息已经结束时不再显示"该休息了"）；
+ * 两次显示之间至少间隔MIN_INTERVAL_MILLIS，避免提示窗和提示音连续弹出。
+ */
+public class NotificationCenter {
+    // 两次通知之间的最小间隔
+    private static final int MIN_INTERVAL_MILLIS = 2000;
+    // 提示窗显示时长
+    private static final int DISPLAY_MILLIS = 6000;
+    private static final Color TOAST_BACKGROUND = new Color(52, 73, 94);
+    private static final Color TOAST_BORDER = new Color(46, 204, 113);
+
+    private JFrame frame; // 主窗口，释放到托盘后为null；只在EDT上访问
+    private volatile TrayIcon trayIcon;
+
+    // 待显示的通知，按key合并，保持提交顺序
+    private final Map<String, Notification> pending = new LinkedHashMap<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    // 以下字段只在EDT上访问
+    private JWindow toast;
+    private JLabel toastLabel;
+    private final Timer hideTimer;
+    private final Timer drainTimer;
+    private long lastShownNanos = 0;
+
+    // 统计计数
+    private final AtomicLong postedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong shownCount = new AtomicLong();
+    private final AtomicLong totalDelayNanos = new AtomicLong();
+    private volatile long lastDelayNanos = 0;
+
+    /**
+     * 一条通知
+     */
+    private static final class Notification {
+        final String title;
+        final String message;
+        final String sound;
+        final long postedNanos = System.nanoTime();
+
+        Notification(String title, String message, String sound) {
+            this.title = title;
+            this.message = message;
+            this.sound = sound;
+        }
+    }
+
+    /**
+     * @param trayIcon 托盘图标，系统不支持托盘时为null
+     */
+    public NotificationCenter(JFrame frame, TrayIcon trayIcon) {
+        this.frame = frame;
+        this.trayIcon = trayIcon;
+        hideTimer = new Timer(DISPLAY_MILLIS, e -> hideToast());
+        hideTimer.setRepeats(false);
+        drainTimer = new Timer(MIN_INTERVAL_MILLIS, e -> drain());
+        drainTimer.setRepeats(false);
+    }
+
+    /**
+     * 设置托盘图标（托盘在启动后才初始化），为null时只使用提示窗
+     */
+    public void setTrayIcon(TrayIcon trayIcon) {
+        this.trayIcon = trayIcon;
+    }
+
+    /**
+     * 更换主窗口（主窗口被释放时为null），属于旧窗口的提示窗一起销毁，下次显示时重新创建；必须在EDT上调用
+     */
+    public void setFrame(JFrame frame) {
+        if (frame == this.frame) return;
+        hideTimer.stop();
+        if (toast != null) {
+            toast.dispose();
+            toast = null;
+            toastLabel = null;
+        }
+        this.frame = frame;
+    }
+
+    /**
+     * 提交通知，可在任何线程调用，立即返回
+     * @param key   合并用的key，同一key尚未显示的通知会被替换
+     * @param sound 显示时播放的提示音，null表示不播放
+     */
+    public void post(String key, String title, String message, String sound) {
+        postedCount.incrementAndGet();
+        synchronized (pending) {
+            // 先移除再放入，被替换的通知排到队尾
+            if (pending.remove(key) != null) coalescedCount.incrementAndGet();
+            pending.put(key, new Notification(title, message, sound));
+        }
+        if (drainScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::drain);
+        }
+    }
+
+    // 在EDT上显示下一条通知，距上次显示不足最小间隔时稍后再试
+    private void drain() {
+        drainScheduled.set(false);
+        long sinceLast = (System.nanoTime() - lastShownNanos) / 1_000_000;
+        if (lastShownNanos != 0 && sinceLast < MIN_INTERVAL_MILLIS) {
+            drainTimer.setInitialDelay((int) (MIN_INTERVAL_MILLIS - sinceLast));
+            drainTimer.restart();
+            return;
+        }
+
+        Notification notification;
+        boolean more;
+        synchronized (pending) {
+            Iterator<Notification> iterator = pending.values().iterator();
+            if (!iterator.hasNext()) return;
+            notification = iterator.next();
+            iterator.remove();
+            more = !pending.isEmpty();
+        }
+
+        show(notification);
+        if (more) {
+            drainTimer.setInitialDelay(MIN_INTERVAL_MILLIS);
+            drainTimer.restart();
+        }
+    }
+
+    private void show(Notification notification) {
+        lastShownNanos = System.nanoTime();
+        long delay = lastShownNanos - notification.postedNanos;
+        shownCount.incrementAndGet();
+        totalDelayNanos.addAndGet(delay);
+        lastDelayNanos = delay;
+
+        if (notification.sound != null) {
+            SoundPlayer.playSound(notification.sound);
+        }
+        // 主窗口不可见时用托盘气泡，否则在屏幕右下角显示提示窗
+        TrayIcon trayIcon = this.trayIcon;
+        if (trayIcon != null && (frame == null || !frame.isVisible())) {
+            trayIcon.displayMessage(notification.title, notification.message, TrayIcon.MessageType.INFO);
+        } else {
+            showToast(notification);
+        }
+    }
+
+    private void showToast(Notification notification) {
+        if (toast == null) {
+            toast = new JWindow(frame);
+            // 不抢占焦点，不打断用户正在进行的输入
+            toast.setFocusableWindowState(false);
+            toast.setAlwaysOnTop(true);
+            toastLabel = new JLabel();
+            toastLabel.setForeground(Color.WHITE);
+            JPanel panel = new JPanel(new BorderLayout());
+            panel.setBackground(TOAST_BACKGROUND);
+            panel.setBorder(new CompoundBorder(new LineBorder(TOAST_BORDER, 2), new EmptyBorder(10, 14, 10, 14)));
+            panel.add(toastLabel, BorderLayout.CENTER);
+            // 点击提示窗立即关闭
+            panel.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    hideToast();
+                }
+            });
+            toast.setContentPane(panel);
+        }
+        toastLabel.setText("<html><b>" + escape(notification.title) + "</b><br>" + escape(notification.message) + "</html>");
+        toast.pack();
+
+        // 放在主窗口所在屏幕的右下角（任务栏之上）
+        GraphicsConfiguration config = frame != null ? frame.getGraphicsConfiguration()
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        Rectangle bounds = config.getBounds();
+        Insets insets = Toolkit.getDefaultToolkit().getScreenInsets(config);
+        toast.setLocation(bounds.x + bounds.width - insets.right - toast.getWidth() - 16,
+                bounds.y + bounds.height - insets.bottom - toast.getHeight() - 16);
+        toast.setVisible(true);
+        hideTimer.restart();
+    }
+
+    private void hideToast() {
+        hideTimer.stop();
+        if (toast != null) toast.setVisible(false);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * 关闭提示窗并丢弃尚未显示的通知
+     */
+    public void dispose() {
+        synchronized (pending) {
+            pending.clear();
+        }
+        SwingUtilities.invokeLater(() -> {
+            drainTimer.stop();
+            hideTimer.stop();
+            if (toast != null) {
+                toast.dispose();
+                toast = null;
+            }
+        });
+    }
+
+    // 统计信息
+    public long getPostedCount() { return postedCount.get(); }
+    public long getCoalescedCount() { return coalescedCount.get(); }
+    public long getShownCount() { return shownCount.get(); }
+    public long getLastDelayMillis() { return lastDelayNanos / 1_000_000; }
+
+    public long getAverageDelayMillis() {
+        long shown = shownCount.get();
+        return shown == 0 ? 0 : totalDelayNanos.get() / shown / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return "通知统计: 提交=" + getPostedCount() + ", 合并=" + getCoalescedCount()
+                + ", 显示=" + getShownCount() + ", 平均显示延迟=" + getAverageDelayMillis() + "ms"
+                + ", 最近显示延迟=" + getLastDelayMillis() + "ms";
+    }
+}
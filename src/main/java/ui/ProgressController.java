@@ -1,4 +1,173 @@
 package ui;
 
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.StudyEvents;
+
+import javax.swing.*;
+import java.awt.Color;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进度条控制器：任何线程都可以提交进度快照，
+ * 多次提交会合并成最多一次待执行的EDT更新，只设置真正变化的属性。
+ *
+ * 快照打包在一个long里（模式、最大值、当前值、剩余秒数），提交时不分配对象；
+ * 颜色使用常量，剩余时间文本写入复用的字符缓冲区，只有文本变化时才生成新字符串。
+ */
 public class ProgressController {
+    // 显示模式（0保留给"尚未显示"）
+    private static final int MODE_STUDY = 1;
+    private static final int MODE_TEST = 2;
+    private static final int MODE_BREAK = 3;
+
+    private static final Color STUDY_COLOR = new Color(46, 204, 113);  // 绿色表示学习状态
+    private static final Color BREAK_COLOR = new Color(155, 89, 182);  // 紫色表示休息
+    private static final char[][] PREFIXES = {
+            new char[0],  // 保留
+            "学习剩余：".toCharArray(),
+            "测试剩余：".toCharArray(),
+            "休息剩余: ".toCharArray()
+    };
+
+    private static final LatencyHistogram EDT_DELAY = Metrics.histogram("ui.edt.delay");
+
+    private static final int FIELD_BITS = 20;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+
+    private volatile JProgressBar bar;
+    private final Executor edtExecutor;
+    private final AtomicLong pendingSnapshot = new AtomicLong(-1);
+    private final AtomicBoolean updateScheduled = new AtomicBoolean(false);
+    private final Runnable applyTask = this::applyPending;
+    private volatile long scheduledNanos = 0; // 最近一次投递更新的时间，用于统计EDT等待时间
+
+    // 以下字段只在EDT上访问：上一次实际设置到进度条的值
+    private int lastMode = -1;
+    private int lastMaximum = -1;
+    private int lastValue = -1;
+    private int lastRemaining = -1;
+    private final char[] textBuffer = new char[32];
+
+    public ProgressController(JProgressBar bar) {
+        this(bar, SwingUtilities::invokeLater);
+    }
+
+    /**
+     * @param edtExecutor 把更新投递到界面线程的方式（基准测试中可以替换为手动调用applyPending）
+     */
+    public ProgressController(JProgressBar bar, Executor edtExecutor) {
+        this.bar = bar;
+        this.edtExecutor = edtExecutor;
+    }
+
+    /**
+     * 更换（或清除）控制的进度条，新进度条会在下一次更新时完整刷新
+     */
+    public void setProgressBar(JProgressBar bar) {
+        this.bar = bar;
+        edtExecutor.execute(() -> {
+            lastMode = lastMaximum = lastValue = lastRemaining = -1;
+            applyPending();
+        });
+    }
+
+    /**
+     * 提交学习进度
+     */
+    public void showStudy(int elapsedSeconds, int totalSeconds, boolean testMode) {
+        submit(testMode ? MODE_TEST : MODE_STUDY, totalSeconds, elapsedSeconds, totalSeconds - elapsedSeconds);
+    }
+
+    /**
+     * 提交休息倒计时
+     */
+    public void showBreak(int remainingSeconds, int totalSeconds) {
+        submit(MODE_BREAK, totalSeconds, totalSeconds - remainingSeconds, remainingSeconds);
+    }
+
+    private void submit(int mode, int maximum, int value, int remaining) {
+        long snapshot = ((long) mode << (FIELD_BITS * 3))
+                | (clamp(maximum) << (FIELD_BITS * 2))
+                | (clamp(value) << FIELD_BITS)
+                | clamp(remaining);
+        pendingSnapshot.set(snapshot);
+        // 已经有待执行的更新时不再重复提交，EDT执行时读取最新快照
+        if (updateScheduled.compareAndSet(false, true)) {
+            scheduledNanos = System.nanoTime();
+            edtExecutor.execute(applyTask);
+        }
+    }
+
+    private static long clamp(int v) {
+        return Math.max(0, Math.min(v, (int) FIELD_MASK));
+    }
+
+    /**
+     * 把最新快照应用到进度条，必须在EDT上调用
+     */
+    public void applyPending() {
+        recordDispatchDelay();
+        updateScheduled.set(false);
+        long snapshot = pendingSnapshot.get();
+        JProgressBar bar = this.bar;
+        if (snapshot < 0 || bar == null) return;
+
+        int mode = (int) (snapshot >>> (FIELD_BITS * 3));
+        int maximum = (int) ((snapshot >>> (FIELD_BITS * 2)) & FIELD_MASK);
+        int value = (int) ((snapshot >>> FIELD_BITS) & FIELD_MASK);
+        int remaining = (int) (snapshot & FIELD_MASK);
+
+        if (maximum != lastMaximum) {
+            bar.setMaximum(maximum);
+            lastMaximum = maximum;
+        }
+        if (value != lastValue) {
+            bar.setValue(value);
+            lastValue = value;
+        }
+        if (mode != lastMode || remaining != lastRemaining) {
+            bar.setString(formatText(mode, remaining));
+            lastRemaining = remaining;
+        }
+        if (mode != lastMode) {
+            bar.setForeground(mode == MODE_BREAK ? BREAK_COLOR : STUDY_COLOR);
+            lastMode = mode;
+        }
+    }
+
+    private void recordDispatchDelay() {
+        long scheduled = scheduledNanos;
+        if (scheduled == 0) return;
+        scheduledNanos = 0;
+        long delay = System.nanoTime() - scheduled;
+        EDT_DELAY.record(delay);
+        StudyEvents.EdtDispatch event = new StudyEvents.EdtDispatch();
+        if (event.isEnabled()) {
+            event.source = "progress";
+            event.delayNanos = delay;
+            event.commit();
+        }
+    }
+
+    // 把 "前缀mm:ss" 写入复用的缓冲区
+    private String formatText(int mode, int remainingSeconds) {
+        char[] prefix = PREFIXES[mode];
+        int len = prefix.length;
+        System.arraycopy(prefix, 0, textBuffer, 0, len);
+        int minutes = Math.min(remainingSeconds / 60, 9999);
+        int seconds = remainingSeconds % 60;
+        if (minutes >= 100) {
+            if (minutes >= 1000) textBuffer[len++] = (char) ('0' + minutes / 1000);
+            textBuffer[len++] = (char) ('0' + minutes / 100 % 10);
+        }
+        textBuffer[len++] = (char) ('0' + minutes / 10 % 10);
+        textBuffer[len++] = (char) ('0' + minutes % 10);
+        textBuffer[len++] = ':';
+        textBuffer[len++] = (char) ('0' + seconds / 10);
+        textBuffer[len++] = (char) ('0' + seconds % 10);
+        return new String(textBuffer, 0, len);
+    }
 }
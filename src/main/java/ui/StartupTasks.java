@@ -0,0 +1,130 @@
+package ui;
+
+import calendar.CalendarWatcher;
+import core.SessionJournal;
+import core.SoundPlayer;
+import metrics.Metrics;
+import metrics.StartupTimer;
+import sync.MulticastTransport;
+
+import java.awt.SystemTray;
+import java.awt.Toolkit;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 启动时的后台预热：在外观初始化和首帧绘制的同时，并行初始化AWT工具包和系统托盘（预渲染托盘图标）、
+ * 解码提示音、打开会话日志、索引日历、加入同步组播和注册JMX，主窗口显示后再使用这些结果。
+ */
+public class StartupTasks {
+    private static final String SOUND = "short_break";
+
+    private final CompletableFuture<TraySprites> tray;
+    private final CompletableFuture<Void> audio;
+    private final CompletableFuture<SessionJournal> journal;
+    private final CompletableFuture<Void> jmx;
+    private final CompletableFuture<CalendarWatcher> calendar;
+    private final CompletableFuture<MulticastTransport> sync;
+
+    private StartupTasks(ExecutorService executor) {
+        tray = CompletableFuture.supplyAsync(() -> {
+            Toolkit.getDefaultToolkit();
+            TraySprites sprites = null;
+            if (SystemTray.isSupported()) {
+                // 按托盘图标尺寸预渲染进度环，之后只更换图片
+                sprites = TraySprites.render(SystemTray.getSystemTray().getTrayIconSize());
+            }
+            StartupTimer.mark("tray");
+            return sprites;
+        }, executor);
+        audio = CompletableFuture.runAsync(() -> {
+            SoundPlayer.preload(SOUND);
+            StartupTimer.mark("audio");
+        }, executor);
+        journal = CompletableFuture.supplyAsync(() -> {
+            try {
+                SessionJournal opened = SessionJournal.openDefault();
+                StartupTimer.mark("journal");
+                return opened;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+        calendar = CompletableFuture.supplyAsync(() -> {
+            try {
+                CalendarWatcher watcher = CalendarWatcher.startDefault();
+                StartupTimer.mark("calendar");
+                return watcher;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+        sync = CompletableFuture.supplyAsync(() -> {
+            if (!Boolean.getBoolean("studyassist.sync")) return null;
+            try {
+                MulticastTransport transport = MulticastTransport.openDefault();
+                StartupTimer.mark("sync");
+                return transport;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+        jmx = CompletableFuture.runAsync(() -> {
+            Metrics.registerMBean();
+            StartupTimer.mark("jmx");
+        }, executor);
+    }
+
+    /**
+     * 立即在后台线程上开始全部预热任务
+     */
+    public static StartupTasks start() {
+        ExecutorService executor = Executors.newFixedThreadPool(5, runnable -> {
+            Thread thread = new Thread(runnable, "startup-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        StartupTasks tasks = new StartupTasks(executor);
+        // 已提交的任务会继续执行，全部完成后线程退出
+        executor.shutdown();
+        return tasks;
+    }
+
+    /**
+     * 预渲染的托盘图标，系统不支持托盘时为null
+     */
+    public CompletableFuture<TraySprites> tray() {
+        return tray;
+    }
+
+    /**
+     * 已打开的会话日志，打开失败时异常完成
+     */
+    public CompletableFuture<SessionJournal> journal() {
+        return journal;
+    }
+
+    /**
+     * 已读取日历目录并开始监视的日历，目录不存在时为null，读取失败时异常完成
+     */
+    public CompletableFuture<CalendarWatcher> calendar() {
+        return calendar;
+    }
+
+    /**
+     * 多设备同步的组播传输，未启用（-Dstudyassist.sync=true）时为null，打开失败时异常完成
+     */
+    public CompletableFuture<MulticastTransport> sync() {
+        return sync;
+    }
+
+    /**
+     * 全部预热任务结束（无论成功与否）
+     */
+    public CompletableFuture<Void> all() {
+        return CompletableFuture.allOf(tray, audio, journal, calendar, sync, jmx).handle((v, e) -> null);
+    }
+}
@@ -0,0 +1,139 @@
+package ui;
+
+import core.StudyAnalytics;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * 学习统计面板：今天、本周、最近30天的汇总，以及最近7天每天学习时长的柱状图。
+ * 每次刷新只对汇总做几次区间查询，不扫描历史记录；面板显示时每5秒刷新一次。
+ * 用create创建，刷新定时器和显示状态监听器在构造完成后才注册。
+ */
+public final class StatisticsPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static final int REFRESH_MILLIS = 5000;
+    private static final int CHART_DAYS = 7;
+    private static final Color BAR_COLOR = new Color(46, 204, 113);  // 与学习进度条相同的绿色
+    private static final String[] WEEKDAYS = {"一", "二", "三", "四", "五", "六", "日"};
+
+    private final transient StudyAnalytics analytics; // 统计只在内存中，不随面板序列化
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final JLabel todayLabel = new JLabel();
+    private final JLabel weekLabel = new JLabel();
+    private final JLabel monthLabel = new JLabel();
+    private final ChartPanel chart = new ChartPanel();
+    private Timer refreshTimer;
+
+    private StatisticsPanel(StudyAnalytics analytics) {
+        super(new BorderLayout(0, 8));
+        this.analytics = analytics;
+        setBorder(BorderFactory.createEmptyBorder(10, 12, 10, 12));
+
+        JPanel totals = new JPanel(new GridLayout(3, 1, 0, 4));
+        totals.add(todayLabel);
+        totals.add(weekLabel);
+        totals.add(monthLabel);
+        add(totals, BorderLayout.NORTH);
+        add(chart, BorderLayout.CENTER);
+    }
+
+    /**
+     * 创建统计面板，面板显示时开始定时刷新
+     */
+    public static StatisticsPanel create(StudyAnalytics analytics) {
+        StatisticsPanel panel = new StatisticsPanel(analytics);
+        panel.installRefresh();
+        return panel;
+    }
+
+    // 只在面板显示时刷新
+    private void installRefresh() {
+        refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+        addHierarchyListener(e -> {
+            if (isShowing()) {
+                refresh();
+                refreshTimer.start();
+            } else {
+                refreshTimer.stop();
+            }
+        });
+    }
+
+    /**
+     * 重新查询并显示统计
+     */
+    public void refresh() {
+        LocalDate today = LocalDate.now(zone);
+        long tomorrowMillis = startOf(today.plusDays(1));
+        todayLabel.setText(format("今天", analytics.query(startOf(today), tomorrowMillis)));
+        weekLabel.setText(format("本周",
+                analytics.query(startOf(today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))), tomorrowMillis)));
+        monthLabel.setText(format("最近30天", analytics.query(startOf(today.minusDays(29)), tomorrowMillis)));
+
+        for (int i = 0; i < CHART_DAYS; i++) {
+            LocalDate day = today.minusDays(CHART_DAYS - 1 - i);
+            chart.minutes[i] = analytics.query(startOf(day), startOf(day.plusDays(1))).getStudyMinutes();
+            chart.labels[i] = WEEKDAYS[day.getDayOfWeek().getValue() - 1];
+        }
+        chart.repaint();
+    }
+
+    private long startOf(LocalDate day) {
+        return day.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private static String format(String title, StudyAnalytics.Totals totals) {
+        int minutes = totals.getStudyMinutes();
+        return String.format("%s：学习 %d 小时 %d 分钟，休息 %d 次（跳过 %d 次），暂停 %d 次",
+                title, minutes / 60, minutes % 60, totals.breaks, totals.skippedBreaks, totals.pauses);
+    }
+
+    /**
+     * 最近几天学习时长的柱状图
+     */
+    private static class ChartPanel extends JPanel {
+        private static final long serialVersionUID = 1L;
+
+        final int[] minutes = new int[CHART_DAYS];
+        final String[] labels = new String[CHART_DAYS];
+
+        ChartPanel() {
+            setPreferredSize(new Dimension(420, 140));
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Graphics2D g2d = (Graphics2D) g;
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            int max = 60;
+            for (int m : minutes) max = Math.max(max, m);
+            FontMetrics fm = g2d.getFontMetrics();
+            int textHeight = fm.getHeight();
+            int chartHeight = getHeight() - textHeight * 2 - 4;
+            int slotWidth = getWidth() / CHART_DAYS;
+            int barWidth = slotWidth * 3 / 5;
+
+            for (int i = 0; i < CHART_DAYS; i++) {
+                int x = i * slotWidth + (slotWidth - barWidth) / 2;
+                int barHeight = chartHeight * minutes[i] / max;
+                int y = textHeight + chartHeight - barHeight;
+                g2d.setColor(BAR_COLOR);
+                g2d.fillRect(x, y, barWidth, barHeight);
+
+                g2d.setColor(getForeground());
+                String value = minutes[i] + "分";
+                g2d.drawString(value, x + (barWidth - fm.stringWidth(value)) / 2, y - 2);
+                if (labels[i] != null) {
+                    g2d.drawString(labels[i], x + (barWidth - fm.stringWidth(labels[i])) / 2, getHeight() - fm.getDescent());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ui;
+
+import core.SoundPlayer;
+import core.TimerSink;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 桌面界面的计时输出：进度交给ProgressController，休息提醒交给NotificationCenter以非模态方式显示
+ */
+public class SwingTimerSink implements TimerSink {
+    private final MainWindow mainWindow;
+
+    public SwingTimerSink(MainWindow mainWindow) {
+        this.mainWindow = mainWindow;
+    }
+
+    @Override
+    public void showStudyProgress(int elapsedSeconds, int totalSeconds, boolean testMode) {
+        ProgressController progress = mainWindow.getProgressController();
+        if (progress != null) {
+            progress.showStudy(elapsedSeconds, totalSeconds, testMode);
+        }
+    }
+
+    @Override
+    public void showBreakProgress(int remainingSeconds, int totalSeconds) {
+        ProgressController progress = mainWindow.getProgressController();
+        if (progress != null) {
+            progress.showBreak(remainingSeconds, totalSeconds);
+        }
+    }
+
+    // 休息开始和结束使用同一个key，尚未显示的旧提醒会被新提醒替换
+    private static final String BREAK_KEY = "break";
+    private static final String SOUND = "short_break";
+
+    @Override
+    public void breakStarted(boolean longBreak, int breakSeconds) {
+        String message;
+        if (longBreak) {
+            String durationText = breakSeconds % 60 == 0 ? (breakSeconds / 60) + " 分钟" : breakSeconds + " 秒";
+            message = "学习周期结束！开始 " + durationText + " 长休息";
+            // 长休息期间循环播放背景音，离开休息状态时由MainWindow停止
+            Path ambientFile = mainWindow.getAmbientFile();
+            if (ambientFile != null) {
+                SoundPlayer.getAmbientPlayer().start(ambientFile);
+            }
+        } else {
+            message = "该休息了！短休息 " + breakSeconds + " 秒！";
+        }
+
+        notify("休息提醒", message);
+    }
+
+    @Override
+    public void breakFinished() {
+        // 计时已经恢复，这里只提示用户
+        notify("学习提醒", "休息结束！该继续学习了");
+    }
+
+    private static final String CALENDAR_KEY = "calendar";
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+    @Override
+    public void busyChanged(boolean busy, long untilMillis) {
+        NotificationCenter notifications = mainWindow.getNotificationCenter();
+        if (notifications == null) return;
+        if (busy) {
+            String until = LocalTime.ofInstant(Instant.ofEpochMilli(untilMillis), ZoneId.systemDefault()).format(TIME);
+            notifications.post(CALENDAR_KEY, "日程提醒", "日历中有安排，学习已暂停，" + until + " 后自动继续", null);
+        } else {
+            notifications.post(CALENDAR_KEY, "日程提醒", "日程结束，已自动继续学习", null);
+        }
+    }
+
+    private void notify(String title, String message) {
+        NotificationCenter notifications = mainWindow.getNotificationCenter();
+        if (notifications != null) {
+            notifications.post(BREAK_KEY, title, message, SOUND);
+        }
+    }
+}
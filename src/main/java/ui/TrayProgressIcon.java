@@ -0,0 +1,113 @@
+package ui;
+
+import core.Clock;
+import core.LearningState;
+import core.StateListener;
+import core.StateManager;
+import core.TimerService;
+
+import javax.swing.*;
+import java.awt.TrayIcon;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 托盘图标显示当前进度：进度环的颜色表示学习状态，图片从预渲染的TraySprites中取出。
+ *
+ * 只在量化后的进度步变化时才更换图片：每次刷新后计算下一步开始的时间，只在那时再刷新一次
+ * （90分钟的周期分为32步，约每3分钟一次），状态切换时立即刷新；空闲和暂停时没有定时任务。
+ * 刷新都在EDT上执行，不需要加锁。构造后调用install开始跟随状态变化。
+ */
+public class TrayProgressIcon implements StateListener {
+    private final TrayIcon trayIcon;
+    private final TraySprites sprites;
+    private final TimerService timerService;
+    private final StateManager stateManager;
+    private final Clock clock;
+    private final Runnable refreshTask = this::refresh;
+    private final Runnable refreshLater = () -> SwingUtilities.invokeLater(refreshTask);
+
+    // 以下字段只在EDT上访问
+    private int lastIndex = -1;
+    private Clock.Task nextRefresh;
+    private long swapCount = 0;
+
+    public TrayProgressIcon(TrayIcon trayIcon, TraySprites sprites, TimerService timerService,
+                            StateManager stateManager, Clock clock) {
+        this.trayIcon = trayIcon;
+        this.sprites = sprites;
+        this.timerService = timerService;
+        this.stateManager = stateManager;
+        this.clock = clock;
+    }
+
+    /**
+     * 订阅状态切换并显示当前进度；在构造完成后调用，监听器不会看到未初始化的对象
+     */
+    public void install() {
+        stateManager.addListener(this);
+        SwingUtilities.invokeLater(refreshTask);
+    }
+
+    @Override
+    public void onStateChanged(LearningState oldState, LearningState newState) {
+        // 监听器可能在持有计时服务锁的线程上调用，交给EDT刷新
+        SwingUtilities.invokeLater(refreshTask);
+    }
+
+    private void refresh() {
+        LearningState state = stateManager.getState();
+        int value = 0;
+        int max = 1;
+        if (state == LearningState.BREAK) {
+            max = timerService.getBreakTotalSeconds();
+            value = max - timerService.getBreakRemainingSeconds();
+        } else if (state != LearningState.IDLE) {
+            max = timerService.getCycleSeconds();
+            value = Math.min(max, timerService.getElapsedSeconds());
+        }
+        int step = max <= 0 ? 0 : (int) ((long) value * TraySprites.STEPS / max);
+
+        int index = TraySprites.index(state, step);
+        if (index != lastIndex) {
+            lastIndex = index;
+            swapCount++;
+            trayIcon.setImage(sprites.frame(index));
+            trayIcon.setToolTip(tooltip(state, step));
+        }
+
+        // 进度还在变化时，在下一步开始时再刷新
+        if (nextRefresh != null) {
+            nextRefresh.cancel();
+            nextRefresh = null;
+        }
+        if ((state == LearningState.STUDYING || state == LearningState.BREAK) && step < TraySprites.STEPS && max > 0) {
+            long nextStepAt = ((long) (step + 1) * max + TraySprites.STEPS - 1) / TraySprites.STEPS;
+            nextRefresh = clock.schedule(refreshLater, Math.max(1, nextStepAt - value), TimeUnit.SECONDS);
+        }
+    }
+
+    private static String tooltip(LearningState state, int step) {
+        int percent = step * 100 / TraySprites.STEPS;
+        switch (state) {
+            case STUDYING: return "学习辅助工具 - 学习中 " + percent + "%";
+            case BREAK: return "学习辅助工具 - 休息中 " + percent + "%";
+            case PAUSED: return "学习辅助工具 - 已暂停 " + percent + "%";
+            default: return "学习辅助工具";
+        }
+    }
+
+    /**
+     * 托盘图片实际更换的次数
+     */
+    public long getSwapCount() {
+        return swapCount;
+    }
+
+    public void dispose() {
+        stateManager.removeListener(this);
+        SwingUtilities.invokeLater(() -> {
+            if (nextRefresh != null) nextRefresh.cancel();
+            nextRefresh = null;
+        });
+    }
+}
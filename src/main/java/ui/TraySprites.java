@@ -0,0 +1,94 @@
+package ui;
+
+import core.LearningState;
+
+import java.awt.*;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * 托盘进度环的预渲染帧：每种学习状态一种颜色，进度量化为STEPS步，启动时按托盘图标尺寸一次性画好，
+ * 运行时只按下标取出图片，不再绘制。
+ */
+public final class TraySprites {
+    // 进度环的量化步数
+    public static final int STEPS = 32;
+
+    private static final Color TRACK_COLOR = new Color(255, 255, 255, 90);
+
+    private final Image[] frames;
+
+    private TraySprites(Image[] frames) {
+        this.frames = frames;
+    }
+
+    /**
+     * 按托盘图标尺寸渲染全部帧，可以在后台线程调用
+     */
+    public static TraySprites render(Dimension size) {
+        int width = Math.max(16, size.width);
+        int height = Math.max(16, size.height);
+        LearningState[] states = LearningState.values();
+        Image[] frames = new Image[states.length * (STEPS + 1)];
+        for (LearningState state : states) {
+            for (int step = 0; step <= STEPS; step++) {
+                frames[index(state, step)] = renderFrame(width, height, colorOf(state), state == LearningState.IDLE ? STEPS : step);
+            }
+        }
+        return new TraySprites(frames);
+    }
+
+    /**
+     * 帧下标，相同下标表示托盘图标不需要更换
+     * @param step 0到STEPS之间的进度步
+     */
+    public static int index(LearningState state, int step) {
+        return state.ordinal() * (STEPS + 1) + Math.max(0, Math.min(STEPS, step));
+    }
+
+    public Image frame(int index) {
+        return frames[index];
+    }
+
+    private static Color colorOf(LearningState state) {
+        switch (state) {
+            case STUDYING: return new Color(46, 204, 113);   // 绿色，与学习进度条一致
+            case BREAK: return new Color(155, 89, 182);      // 紫色，与休息进度条一致
+            case PAUSED: return new Color(243, 156, 18);     // 橙色
+            default: return new Color(149, 165, 166);        // 灰色
+        }
+    }
+
+    private static Image renderFrame(int width, int height, Color color, int step) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+
+        float size = Math.min(width, height);
+        float stroke = Math.max(2f, size / 6f);
+        float inset = stroke / 2f + 0.5f;
+        float x = (width - size) / 2f + inset;
+        float y = (height - size) / 2f + inset;
+        float diameter = size - inset * 2f;
+
+        // 底圈
+        g2d.setStroke(new BasicStroke(stroke));
+        g2d.setColor(TRACK_COLOR);
+        g2d.draw(new Ellipse2D.Float(x, y, diameter, diameter));
+        // 进度：从12点方向顺时针
+        if (step > 0) {
+            g2d.setColor(color);
+            g2d.setStroke(new BasicStroke(stroke, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND));
+            g2d.draw(new Arc2D.Float(x, y, diameter, diameter, 90, -360f * step / STEPS, Arc2D.OPEN));
+        }
+        // 中心圆点表示当前状态
+        float dot = diameter / 2.6f;
+        g2d.setColor(color);
+        g2d.fill(new Ellipse2D.Float(width / 2f - dot / 2f, height / 2f - dot / 2f, dot, dot));
+
+        g2d.dispose();
+        return image;
+    }
+}
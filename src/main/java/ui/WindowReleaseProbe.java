@@ -0,0 +1,159 @@
+package ui;
+
+import com.formdev.flatlaf.FlatLightLaf;
+import core.SettingsStore;
+import log.Level;
+import log.Log;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 测量隐藏到托盘时释放主窗口的效果：窗口显示、只隐藏、释放三种情况下GC后的已用堆内存和进程RSS，
+ * 以及从托盘重建并显示主窗口的耗时。每轮测量前都完整GC，结果取多轮的中位数。
+ *
+ * 需要图形环境（或Xvfb等虚拟显示）；用户目录指向一个临时目录，不读写真实的设置和会话日志。
+ * 用法：java -cp studyassist.jar ui.WindowReleaseProbe [--rounds N] [--warmup N]
+ */
+public class WindowReleaseProbe {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private final MainWindow mainWindow = new MainWindow();
+
+    public static void main(String[] args) throws Exception {
+        int rounds = 20;
+        int warmup = 5;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rounds":
+                    rounds = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("未知参数: " + args[i]);
+                    System.err.println("用法: ui.WindowReleaseProbe [--rounds N] [--warmup N]");
+                    System.exit(1);
+            }
+        }
+
+        // 在第一次使用日志、设置和会话日志之前换到临时目录
+        Path home = Files.createTempDirectory("studyassist-probe");
+        System.setProperty("user.home", home.toString());
+        System.setProperty("studyassist.log.file", "none");
+        Log.setLevel(Level.WARN);
+
+        new WindowReleaseProbe().run(rounds, warmup);
+        System.exit(0);
+    }
+
+    private void run(int rounds, int warmup) throws Exception {
+        StartupTasks startupTasks = StartupTasks.start();
+        SettingsStore settings = SettingsStore.openDefault();
+        FlatLightLaf.setup();
+        onEdt(() -> mainWindow.createAndShowGUI(startupTasks, settings));
+        startupTasks.all().join();
+        mainWindow.handleCommand("start");
+
+        // 预热：加载类、填满各种缓存，之后的轮次只反映窗口本身
+        for (int i = 0; i < warmup; i++) {
+            onEdt(mainWindow::releaseFrame);
+            onEdt(mainWindow::restoreFrame);
+        }
+
+        long[] shownHeap = new long[rounds];
+        long[] hiddenHeap = new long[rounds];
+        long[] releasedHeap = new long[rounds];
+        long[] shownRss = new long[rounds];
+        long[] releasedRss = new long[rounds];
+        long[] restoreNanos = new long[rounds];
+        int collected = 0;
+        for (int i = 0; i < rounds; i++) {
+            shownHeap[i] = usedHeapAfterGc();
+            shownRss[i] = residentKilobytes();
+
+            onEdt(() -> mainWindow.getFrame().setVisible(false));
+            hiddenHeap[i] = usedHeapAfterGc();
+            onEdt(() -> mainWindow.getFrame().setVisible(true));
+
+            WeakReference<JFrame> released = new WeakReference<>(mainWindow.getFrame());
+            onEdt(mainWindow::releaseFrame);
+            replaceActiveWindow();
+            releasedHeap[i] = usedHeapAfterGc();
+            releasedRss[i] = residentKilobytes();
+            if (released.get() == null) collected++;
+
+            AtomicReference<Long> nanos = new AtomicReference<>();
+            onEdt(() -> nanos.set(mainWindow.restoreFrame()));
+            restoreNanos[i] = nanos.get();
+        }
+
+        long shown = median(shownHeap);
+        long hidden = median(hiddenHeap);
+        long releasedKb = median(releasedHeap);
+        System.out.printf("Java %s，%s，%d 轮（预热 %d 轮）%n", System.getProperty("java.version"),
+                java.awt.Toolkit.getDefaultToolkit().getClass().getName(), rounds, warmup);
+        System.out.printf("已用堆内存（GC后中位数）：显示 %d KB，只隐藏 %d KB，释放 %d KB，释放比只隐藏少 %d KB%n",
+                shown, hidden, releasedKb, hidden - releasedKb);
+        System.out.printf("进程RSS（中位数）：显示 %d KB，释放 %d KB，差 %d KB%n",
+                median(shownRss), median(releasedRss), median(shownRss) - median(releasedRss));
+        System.out.printf("从托盘重建并显示：中位数 %.2f ms，最大 %.2f ms%n",
+                median(restoreNanos) / 1e6, Arrays.stream(restoreNanos).max().orElse(0) / 1e6);
+        System.out.printf("释放后窗口对象被回收：%d/%d 轮%n", collected, rounds);
+    }
+
+    private static void onEdt(Runnable task) throws Exception {
+        SwingUtilities.invokeAndWait(task);
+    }
+
+    // 没有窗口管理器的虚拟显示不会给销毁的窗口发失去激活的事件，焦点管理器会一直引用最后一个激活的窗口，
+    // 真实桌面上激活的窗口会换成其他程序的。用一个空窗口顶替它，测量结果才只反映主窗口是否还被程序引用
+    private static void replaceActiveWindow() throws Exception {
+        JFrame placeholder = new JFrame();
+        onEdt(() -> placeholder.setVisible(true));
+        Thread.sleep(100); // 等激活事件送达
+        onEdt(placeholder::dispose);
+    }
+
+    // 等EDT上的事件处理完后多次完整GC，返回已用堆内存（KB）
+    private static long usedHeapAfterGc() throws Exception {
+        onEdt(() -> { });
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed() / 1024;
+    }
+
+    // Linux下从/proc读取进程RSS（KB），其他系统返回-1
+    private static long residentKilobytes() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) return -1;
+        try {
+            List<String> lines = Files.readAllLines(status, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                if (line.startsWith("VmRSS:")) return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
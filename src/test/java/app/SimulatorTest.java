@@ -0,0 +1,32 @@
+package app;
+
+import core.CyclePlan;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 每个内置计划都用虚拟时间跑一整天，提醒窗口、长休息时机或休息时长有任何违规都失败
+ */
+class SimulatorTest {
+    private static final int SESSIONS = 20;
+    private static final int HOURS = 24;
+    private static final long SEED = 42;
+
+    static List<CyclePlan> presets() {
+        return CyclePlan.presets();
+    }
+
+    @ParameterizedTest
+    @MethodSource("presets")
+    void presetHasNoViolations(CyclePlan plan) {
+        Simulator simulator = new Simulator();
+        int violationCount = simulator.run(SESSIONS, HOURS, SEED, plan);
+        assertEquals(0, violationCount, () -> plan.getId() + " 的违规: " + simulator.getViolations());
+        assertTrue(simulator.getViolations().isEmpty());
+    }
+}
@@ -0,0 +1,182 @@
+package core;
+
+import log.Level;
+import log.Log;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 会话日志的压缩和恢复：压缩只丢弃统计已经不再保留的旧记录，重放压缩后的日志得到的统计和压缩前一样；
+ * 文件头不正确的日志被改名为.bad后重新创建。
+ */
+class SessionJournalTest {
+    private static final long HOUR_MILLIS = 3600_000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    // 2026-01-01 00:00 UTC
+    private static final long NOW = 1_767_225_600_000L;
+    private static final long CUTOFF = NOW - (StudyAnalytics.HISTORY_DAYS + 1) * DAY_MILLIS;
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong clock = new AtomicLong();
+    private Level logLevel;
+
+    @BeforeEach
+    void setUp() {
+        logLevel = Log.getLevel();
+        Log.setLevel(Level.OFF);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Log.setLevel(logLevel);
+    }
+
+    @Test
+    void compactionKeepsHistoryWithinRollupWindow() throws Exception {
+        Path path = dir.resolve("session.journal");
+        // 统计范围之外的旧记录，之后是最近一年每天一次学习
+        studyDays(path, StudyAnalytics.HISTORY_DAYS + 200, StudyAnalytics.HISTORY_DAYS + 2, 10);
+        studyDays(path, 365, 0, 1);
+
+        List<SessionJournal.Record> before = records(path, Long.MAX_VALUE);
+        StudyAnalytics expected = replay(path);
+        List<SessionJournal.Record> after = records(path, 100);
+        StudyAnalytics actual = replay(path);
+
+        assertTrue(after.size() < before.size(), "没有丢弃旧记录");
+        assertEquals(365 * 5, after.size());
+        for (SessionJournal.Record record : after) {
+            assertTrue(record.timestampMillis >= CUTOFF, "保留了过期的记录: " + record);
+        }
+        assertEquals(before.get(before.size() - 1).toString(), after.get(after.size() - 1).toString());
+
+        for (long days : new long[]{1, 7, 30, 365}) {
+            StudyAnalytics.Totals want = expected.query(NOW - days * DAY_MILLIS, NOW);
+            StudyAnalytics.Totals got = actual.query(NOW - days * DAY_MILLIS, NOW);
+            assertTrue(want.studyMillis > 0);
+            assertEquals(want.toString(), got.toString(), "最近 " + days + " 天的统计");
+        }
+
+        // 压缩后可以继续追加
+        try (SessionJournal journal = open(path, 100)) {
+            journal.append(SessionJournal.TYPE_STATE, LearningState.STUDYING, 0, 0, 0);
+        }
+        assertEquals(after.size() + 1, records(path, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void compactionKeepsLastRecordWhenEverythingExpired() throws Exception {
+        Path path = dir.resolve("session.journal");
+        studyDays(path, StudyAnalytics.HISTORY_DAYS + 300, StudyAnalytics.HISTORY_DAYS + 2, 1);
+
+        List<SessionJournal.Record> after = records(path, 100);
+        assertEquals(1, after.size());
+        assertEquals(SessionJournal.TYPE_CHECKPOINT, after.get(0).type);
+    }
+
+    @Test
+    void badHeaderIsMovedAsideBeforeOpening() throws Exception {
+        Path path = dir.resolve("session.journal");
+        Files.write(path, "not a session journal, just some text".getBytes(StandardCharsets.UTF_8));
+
+        try (SessionJournal journal = open(path, Long.MAX_VALUE)) {
+            assertEquals(null, journal.getLastRecord());
+            journal.append(SessionJournal.TYPE_STATE, LearningState.STUDYING, 0, 0, 0);
+        }
+
+        assertTrue(Files.exists(dir.resolve("session.journal.bad")));
+        List<SessionJournal.Record> records = records(path, Long.MAX_VALUE);
+        assertEquals(1, records.size());
+        assertEquals(LearningState.STUDYING, records.get(0).state);
+    }
+
+    @Test
+    void recoveryStopsAtTornRecord() throws Exception {
+        Path path = dir.resolve("session.journal");
+        clock.set(NOW);
+        try (SessionJournal journal = open(path, Long.MAX_VALUE)) {
+            journal.append(SessionJournal.TYPE_STATE, LearningState.STUDYING, 0, 0, 0);
+            journal.append(SessionJournal.TYPE_STATE, LearningState.BREAK, 1500, 1, 300);
+            journal.append(SessionJournal.TYPE_STATE, LearningState.STUDYING, 1500, 1, 0);
+        }
+        // 模拟崩溃时写了一半的第三条记录：破坏它的校验和
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[16 + 2 * 32 + 28] ^= 0x5A;
+        Files.write(path, bytes);
+
+        try (SessionJournal journal = open(path, Long.MAX_VALUE)) {
+            SessionJournal.Record last = journal.getLastRecord();
+            assertNotNull(last);
+            assertEquals(LearningState.BREAK, last.state);
+            assertEquals(300, last.extra);
+        }
+        assertFalse(Files.exists(dir.resolve("session.journal.bad")));
+    }
+
+    private SessionJournal open(Path path, long compactThreshold) throws Exception {
+        return new SessionJournal(path, compactThreshold, clock::get);
+    }
+
+    // 从fromDaysAgo天前到toDaysAgo天前（不含），每step天学习一次；每写100天重新打开一次，不超过追加队列的容量
+    private void studyDays(Path path, long fromDaysAgo, long toDaysAgo, long step) throws Exception {
+        long day = fromDaysAgo;
+        while (day > toDaysAgo) {
+            try (SessionJournal journal = open(path, Long.MAX_VALUE)) {
+                for (int i = 0; i < 100 && day > toDaysAgo; i++, day -= step) {
+                    studyDay(journal, NOW - day * DAY_MILLIS);
+                }
+                assertEquals(0, journal.getDroppedCount());
+            }
+        }
+    }
+
+    // 一天的学习：9点开始学习，10点休息5分钟，学到11点后正常退出
+    private void studyDay(SessionJournal journal, long dayStart) {
+        append(journal, dayStart + 9 * HOUR_MILLIS, SessionJournal.TYPE_STATE, LearningState.STUDYING, 0);
+        append(journal, dayStart + 10 * HOUR_MILLIS, SessionJournal.TYPE_STATE, LearningState.BREAK, 300);
+        append(journal, dayStart + 10 * HOUR_MILLIS + 300_000, SessionJournal.TYPE_STATE, LearningState.STUDYING, 0);
+        append(journal, dayStart + 11 * HOUR_MILLIS, SessionJournal.TYPE_STATE, LearningState.IDLE, 0);
+        append(journal, dayStart + 11 * HOUR_MILLIS, SessionJournal.TYPE_CHECKPOINT, LearningState.IDLE, 0);
+    }
+
+    private void append(SessionJournal journal, long timestamp, byte type, LearningState state, int extra) {
+        clock.set(timestamp);
+        journal.append(type, state, 0, 0, extra);
+    }
+
+    // 以给定的压缩阈值打开日志，读出全部记录
+    private List<SessionJournal.Record> records(Path path, long compactThreshold) throws Exception {
+        clock.set(NOW);
+        List<SessionJournal.Record> records = new ArrayList<>();
+        try (SessionJournal journal = open(path, compactThreshold)) {
+            journal.forEachRecoveredRecord(records::add);
+        }
+        return records;
+    }
+
+    private StudyAnalytics replay(Path path) throws Exception {
+        clock.set(NOW);
+        StudyAnalytics analytics = new StudyAnalytics(() -> 0, () -> 0, ZoneOffset.UTC);
+        try (SessionJournal journal = open(path, Long.MAX_VALUE)) {
+            analytics.replay(journal);
+        }
+        return analytics;
+    }
+}
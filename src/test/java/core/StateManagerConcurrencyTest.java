@@ -0,0 +1,138 @@
+package core;
+
+import log.Level;
+import log.Log;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多个线程同时用setState和compareAndSet切换状态（开始、暂停、休息、停止互相竞争）：
+ * 监听器只收到状态机允许的切换，版本号严格递增，BREAK和PAUSED之间从不直接切换
+ */
+class StateManagerConcurrencyTest {
+    private static final LearningState[] STATES = LearningState.values();
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 20_000;
+
+    private static Level logLevel;
+
+    @BeforeAll
+    static void silence() {
+        // 每次切换都会记录日志，测试只关心状态字
+        logLevel = Log.getLevel();
+        Log.setLevel(Level.OFF);
+    }
+
+    @AfterAll
+    static void restore() {
+        Log.setLevel(logLevel);
+    }
+
+    @RepeatedTest(5)
+    void racingTransitionsFollowStateMachine() throws Exception {
+        StateManager stateManager = new StateManager();
+        ConcurrentLinkedQueue<LearningState[]> delivered = new ConcurrentLinkedQueue<>();
+        stateManager.addListener((oldState, newState) -> delivered.add(new LearningState[]{oldState, newState}));
+
+        AtomicLong succeeded = new AtomicLong();
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                long lastVersion = -1;
+                await(start);
+                for (int i = 0; i < OPERATIONS; i++) {
+                    LearningState target = STATES[random.nextInt(STATES.length)];
+                    boolean ok = random.nextBoolean()
+                            ? stateManager.setState(target)
+                            : stateManager.compareAndSet(STATES[random.nextInt(STATES.length)], target);
+                    if (ok) succeeded.incrementAndGet();
+                    // 每个线程看到的版本号不会后退
+                    long version = stateManager.getVersion();
+                    if (version < lastVersion) failure.compareAndSet(null, "版本号后退: " + lastVersion + " -> " + version);
+                    lastVersion = version;
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+
+        assertNull(failure.get());
+        // 每次成功的切换版本号加一，且只有成功的切换通知监听器
+        assertEquals(succeeded.get(), stateManager.getVersion());
+        assertEquals(succeeded.get(), delivered.size());
+
+        int[] balance = new int[STATES.length]; // 每个状态的离开次数减进入次数
+        for (LearningState[] transition : delivered) {
+            LearningState from = transition[0];
+            LearningState to = transition[1];
+            assertTrue(StateManager.isAllowed(from, to), "监听器收到非法切换: " + from + " -> " + to);
+            assertTrue(from != to, "监听器收到没有变化的切换: " + from);
+            assertTrue(!(from == LearningState.BREAK && to == LearningState.PAUSED)
+                    && !(from == LearningState.PAUSED && to == LearningState.BREAK), "BREAK和PAUSED之间直接切换");
+            balance[from.ordinal()]++;
+            balance[to.ordinal()]--;
+        }
+        // 全部切换首尾相接，组成一条从IDLE到最终状态的路径
+        LearningState last = stateManager.getState();
+        for (LearningState state : STATES) {
+            int expected = (state == LearningState.IDLE ? 1 : 0) - (state == last ? 1 : 0);
+            assertEquals(expected, balance[state.ordinal()], "状态 " + state + " 的进出次数不一致");
+        }
+    }
+
+    @RepeatedTest(5)
+    void onlyOneRacerWinsEachCompareAndSet() throws Exception {
+        // 所有线程同时从STUDYING抢着进入BREAK或PAUSED，每一轮只有一个成功
+        StateManager stateManager = new StateManager();
+        stateManager.setState(LearningState.STUDYING);
+        int rounds = 2_000;
+        AtomicLong wins = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            LearningState target = t % 2 == 0 ? LearningState.BREAK : LearningState.PAUSED;
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < rounds; i++) {
+                    if (stateManager.compareAndSet(LearningState.STUDYING, target)) {
+                        wins.incrementAndGet();
+                        // 赢家负责回到STUDYING，开始下一轮
+                        assertTrue(stateManager.compareAndSet(target, LearningState.STUDYING));
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(1 + 2 * wins.get(), stateManager.getVersion());
+        assertEquals(LearningState.STUDYING, stateManager.getState());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
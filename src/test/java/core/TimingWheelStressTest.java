@@ -0,0 +1,137 @@
+package core;
+
+import log.Level;
+import log.Log;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 在真实的时间轮线程上让TimerService连续跑几千次学习/休息：所有计时任务都在同一个工作线程上执行，
+ * 线程数不随休息次数增长（以前每次休息都会新建线程池）。
+ */
+class TimingWheelStressTest {
+    private static final int BREAKS = 3000;
+    // 测试期间JVM自己可能启动少量服务线程，每次休息泄漏一个线程会远超这个值
+    private static final int ALLOWED_THREAD_DRIFT = 2;
+    // 时间放快的倍数：计划中的1秒在时间轮上是1毫秒
+    private static final long SPEEDUP = 1000;
+    // 6秒一个周期，2秒一个小段，1-2秒提醒，短休息和长休息各1秒
+    private static final CyclePlan FAST = new CyclePlan("stress", "stress", 6, 2, 1, 2, 1, 1, false);
+
+    private Level logLevel;
+    private TimingWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        logLevel = Log.getLevel();
+        Log.setLevel(Level.OFF);
+        wheel = TimingWheel.start("stress-timer", 1, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        wheel.shutdown();
+        Log.setLevel(logLevel);
+    }
+
+    @Test
+    void threadCountStaysFlatAcrossBreaks() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        CountDownLatch finished = new CountDownLatch(BREAKS);
+        AtomicInteger started = new AtomicInteger();
+        TimerService timerService = new TimerService(new StateManager(), new TimerSink() {
+            @Override
+            public void showStudyProgress(int elapsedSeconds, int totalSeconds, boolean testMode) {
+            }
+
+            @Override
+            public void showBreakProgress(int remainingSeconds, int totalSeconds) {
+            }
+
+            @Override
+            public void breakStarted(boolean longBreak, int breakSeconds) {
+                started.incrementAndGet();
+            }
+
+            @Override
+            public void breakFinished() {
+                finished.countDown();
+            }
+        }, new FastClock(wheel));
+        timerService.setPlan(FAST);
+        timerService.setDisplayVisible(false);
+
+        int activeBefore = Thread.activeCount();
+        int liveBefore = threads.getThreadCount();
+        long startedBefore = threads.getTotalStartedThreadCount();
+        threads.resetPeakThreadCount();
+
+        timerService.start();
+        int maxActive = activeBefore;
+        while (!finished.await(50, TimeUnit.MILLISECONDS)) {
+            maxActive = Math.max(maxActive, Thread.activeCount());
+            assertTrue(wheel.getWorkerThread().isAlive(), "时间轮工作线程已退出");
+        }
+        timerService.stop();
+
+        assertTrue(started.get() >= BREAKS);
+        assertTrue(maxActive - activeBefore <= ALLOWED_THREAD_DRIFT,
+                "活动线程数从 " + activeBefore + " 增长到 " + maxActive);
+        assertTrue(threads.getPeakThreadCount() - liveBefore <= ALLOWED_THREAD_DRIFT,
+                "线程数峰值从 " + liveBefore + " 增长到 " + threads.getPeakThreadCount());
+        assertTrue(threads.getTotalStartedThreadCount() - startedBefore <= ALLOWED_THREAD_DRIFT,
+                "运行期间新启动了 " + (threads.getTotalStartedThreadCount() - startedBefore) + " 个线程");
+    }
+
+    @Test
+    void workerStartsAfterConstructionAndStopsOnShutdown() throws Exception {
+        Thread worker = wheel.getWorkerThread();
+        assertEquals("stress-timer", worker.getName());
+        assertTrue(worker.isDaemon());
+        CountDownLatch ran = new CountDownLatch(1);
+        wheel.schedule(ran::countDown, 1, TimeUnit.MILLISECONDS);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+        wheel.shutdown();
+        worker.join(5000);
+        assertFalse(worker.isAlive());
+    }
+
+    // 把计划中的时间缩短SPEEDUP倍放到真实的时间轮上，任务仍然在时间轮的工作线程上执行
+    private static final class FastClock implements Clock {
+        private final TimingWheel wheel;
+        private final long originNanos;
+
+        FastClock(TimingWheel wheel) {
+            this.wheel = wheel;
+            this.originNanos = wheel.nanoTime();
+        }
+
+        @Override
+        public long nanoTime() {
+            return (wheel.nanoTime() - originNanos) * SPEEDUP;
+        }
+
+        @Override
+        public Task schedule(Runnable task, long delay, TimeUnit unit) {
+            return wheel.schedule(task, unit.toNanos(delay) / SPEEDUP, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public Task scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            return wheel.scheduleAtFixedRate(task, unit.toNanos(initialDelay) / SPEEDUP,
+                    Math.max(1, unit.toNanos(period) / SPEEDUP), TimeUnit.NANOSECONDS);
+        }
+    }
+}
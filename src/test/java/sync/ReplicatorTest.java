@@ -0,0 +1,159 @@
+package sync;
+
+import core.CyclePlan;
+import core.LearningState;
+import core.StateManager;
+import core.TimerService;
+import core.TimerSink;
+import core.VirtualClock;
+import log.Level;
+import log.Log;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 两台设备（TimerService + Replicator）共用一个VirtualClock，通过LoopbackTransport同步，结果完全确定
+ */
+class ReplicatorTest {
+    private static final long WALL_START = 1_700_000_000_000L;
+    private static final long DRIFT_MILLIS = 2_000;
+
+    private Level logLevel;
+    private VirtualClock clock;
+    private LoopbackTransport.Network network;
+
+    @BeforeEach
+    void setUp() {
+        logLevel = Log.getLevel();
+        Log.setLevel(Level.OFF);
+        clock = new VirtualClock(WALL_START);
+        network = new LoopbackTransport.Network();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Log.setLevel(logLevel);
+    }
+
+    @Test
+    void equalTimestampsAreResolvedByNodeId() {
+        Device a = new Device(1);
+        Device b = new Device(2);
+        // 让初始心跳交换完，之后两边的HLC都落后于墙上时间
+        advanceSeconds(1);
+
+        // 同一毫秒内两台设备各自切换，消息还没有送达
+        a.timerService.start();
+        b.timerService.pause();
+        assertEquals(a.replicator.getVersion(), b.replicator.getVersion(), "两次切换应得到相同的HLC时间戳");
+        assertEquals(LearningState.STUDYING, a.stateManager.getState());
+        assertEquals(LearningState.PAUSED, b.stateManager.getState());
+
+        advanceSeconds(1);
+        // 时间戳相同时设备ID大的胜出
+        assertEquals(LearningState.PAUSED, a.stateManager.getState());
+        assertEquals(LearningState.PAUSED, b.stateManager.getState());
+        assertEquals(a.replicator.getVersion(), b.replicator.getVersion());
+    }
+
+    @Test
+    void droppedPacketIsHealedByHeartbeat() {
+        Device a = new Device(1);
+        Device b = new Device(2);
+        advanceSeconds(1);
+
+        // A的状态切换消息丢失
+        b.transport.setConnected(false);
+        a.timerService.start();
+        advanceSeconds(1);
+        b.transport.setConnected(true);
+        advanceSeconds(1);
+        assertEquals(LearningState.IDLE, b.stateManager.getState());
+
+        // 下一次心跳（10秒）补上
+        advanceSeconds(10);
+        assertEquals(LearningState.STUDYING, b.stateManager.getState());
+        assertEquals(a.replicator.getVersion(), b.replicator.getVersion());
+        assertInSync(a, b);
+    }
+
+    @Test
+    void lateJoinerCatchesUpAndStaysInLockstep() {
+        Device a = new Device(1);
+        a.timerService.start();
+        // 测试计划：3分钟一个周期，其间有短休息，周期结束后长休息
+        advanceSeconds(100);
+
+        Device b = new Device(2);
+        advanceSeconds(1);
+        assertEquals(a.stateManager.getState(), b.stateManager.getState());
+        assertInSync(a, b);
+
+        // 之后两台设备一起经过多次学习和休息
+        int breaksBefore = a.breaks;
+        b.breaks = 0;
+        for (int second = 0; second < 30 * 60; second++) {
+            advanceSeconds(1);
+            assertEquals(a.stateManager.getState(), b.stateManager.getState(), "第 " + second + " 秒状态不一致");
+            assertInSync(a, b);
+        }
+        assertTrue(b.breaks >= 10, "应经过多次休息，实际 " + b.breaks);
+        assertEquals(a.breaks - breaksBefore, b.breaks);
+        assertEquals(a.replicator.getVersion(), b.replicator.getVersion());
+    }
+
+    private void advanceSeconds(long seconds) {
+        clock.advance(seconds, TimeUnit.SECONDS);
+    }
+
+    private static void assertInSync(Device a, Device b) {
+        TimerService.Snapshot left = a.timerService.snapshot();
+        TimerService.Snapshot right = b.timerService.snapshot();
+        assertEquals(left.state, right.state);
+        assertTrue(Math.abs(left.elapsedMillis - right.elapsedMillis) <= DRIFT_MILLIS,
+                "已学习时间相差过大: " + left + " / " + right);
+        assertTrue(Math.abs(left.breakRemainingMillis - right.breakRemainingMillis) <= DRIFT_MILLIS,
+                "休息剩余时间相差过大: " + left + " / " + right);
+    }
+
+    private final class Device implements TimerSink {
+        final StateManager stateManager = new StateManager();
+        final TimerService timerService;
+        final LoopbackTransport transport;
+        final Replicator replicator;
+        int breaks = 0;
+
+        Device(long nodeId) {
+            timerService = new TimerService(stateManager, this, clock, new Random(42));
+            timerService.setPlan(CyclePlan.TEST);
+            timerService.setDisplayVisible(false);
+            transport = network.join();
+            replicator = new Replicator(timerService, stateManager, clock, transport, "test", nodeId);
+            replicator.start();
+        }
+
+        @Override
+        public void showStudyProgress(int elapsedSeconds, int totalSeconds, boolean testMode) {
+        }
+
+        @Override
+        public void showBreakProgress(int remainingSeconds, int totalSeconds) {
+        }
+
+        @Override
+        public void breakStarted(boolean longBreak, int breakSeconds) {
+            breaks++;
+        }
+
+        @Override
+        public void breakFinished() {
+        }
+    }
+}